@@ -0,0 +1,109 @@
+package flatset.benchmarks;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+import flatset.View;
+import flatset.storage.FlatRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Генерация синтетических данных и вспомогательные средства для бенчмарков.
+ * Данные детерминированы (фиксированное зерно генератора), поэтому результаты разных запусков сравнимы.
+ */
+final class BenchmarkData {
+    /** Количество различных домов в синтетической коллекции */
+    static final int HOUSE_COUNT = 1_000;
+    private static final long SEED = 20240601L;
+    private static final ZonedDateTime BASE_DATE = ZonedDateTime.of(2023, 10, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Генерирует квартиры с ID от 1 до size.
+     * Около 10% квартир без дома, у части квартир статус новизны не задан.
+     *
+     * @param size количество квартир
+     * @return список квартир в порядке возрастания ID
+     */
+    static List<Flat> generate(int size) {
+        Random random = new Random(SEED);
+        House[] houses = new House[HOUSE_COUNT];
+        for (int i = 0; i < houses.length; i++) {
+            houses[i] = new House("House " + i, 1950 + random.nextInt(75), 1 + random.nextInt(12));
+        }
+        View[] views = View.values();
+
+        List<Flat> flats = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            int newFlag = random.nextInt(10);
+            flats.add(new Flat(i, "Flat " + i,
+                    new Coordinates(random.nextInt(2_000) - 1_000, random.nextInt(1_000) - 300),
+                    BASE_DATE.plusSeconds(random.nextInt(86_400 * 365)),
+                    20 + random.nextInt(200), 1 + random.nextInt(6), newFlag == 9 ? null : newFlag % 2 == 0,
+                    random.nextInt(600) / 10.0, views[random.nextInt(views.length)],
+                    random.nextInt(10) == 0 ? null : houses[random.nextInt(houses.length)]));
+        }
+        return flats;
+    }
+
+    /**
+     * Заполняет новое хранилище квартирами из списка.
+     */
+    static FlatRepository toRepository(List<Flat> flats) {
+        FlatRepository repository = new FlatRepository(flats.size());
+        refill(repository, flats);
+        return repository;
+    }
+
+    /**
+     * Очищает хранилище и заново заполняет его квартирами из списка.
+     */
+    static void refill(FlatRepository repository, List<Flat> flats) {
+        repository.clear();
+        for (Flat flat : flats) {
+            repository.add(flat);
+        }
+    }
+
+    /**
+     * @return поток вывода, отбрасывающий всё записанное; используется, чтобы вывод команд
+     *         не попадал в консоль и не влиял на измерения
+     */
+    static PrintStream discardingStream() {
+        return new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    /**
+     * Рекурсивно удаляет временный каталог бенчмарка.
+     */
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package flatset.benchmarks;
+
+import flatset.storage.FlatRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк команд, зарегистрированных в CommandManager и не изменяющих коллекцию, на коллекциях разного размера.
+ * Команда выполняется через CommandManager.executeCommand, то есть вместе с разбором строки и диспетчеризацией.
+ * Коллекцию между вызовами восстанавливать не нужно, поэтому вызовы идут подряд без действий между ними.
+ * Изменяющие команды измеряет {@link MutatingCommandBenchmark}; вместе они покрывают все команды,
+ * кроме exit, которая только выставляет флаг завершения.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class CommandBenchmark extends CommandFixture {
+
+    @Param({"help", "info", "stats", "show", "save", "save_snapshot", "compact",
+            "print_unique_house", "print_field_ascending_number_of_rooms", "print_field_descending_house",
+            "filter", "nearest", "within", "range", "top"})
+    private String command;
+
+    @Override
+    protected String command() {
+        return command;
+    }
+
+    @Benchmark
+    public FlatRepository execute() {
+        manager.executeCommand(input);
+        return flats;
+    }
+}
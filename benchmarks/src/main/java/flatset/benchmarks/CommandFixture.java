@@ -0,0 +1,122 @@
+package flatset.benchmarks;
+
+import flatset.Flat;
+import flatset.commands.CommandManager;
+import flatset.storage.FlatRepository;
+import flatset.storage.Journal;
+import flatset.utils.FlatSnapshot;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Общая подготовка бенчмарков команд: коллекция заданного размера, менеджер команд и журнал
+ * во временном каталоге испытания, строка команды с аргументом и перенаправление вывода в никуда.
+ * Все файлы команд (save, save_snapshot, load_snapshot, execute_script, а также базовый снимок,
+ * который пишут compact и load_snapshot рядом с журналом) создаются во временном каталоге,
+ * поэтому бенчмарки не трогают файлы данных приложения в текущем каталоге.
+ */
+@State(Scope.Thread)
+public abstract class CommandFixture {
+    /** Строка, по которой AddCommand и FlatParser создают квартиру */
+    static final String FLAT_LITERAL = "{Benchmark flat,10,-20,75,3,true,12.5,PARK,House 1,2005,4}";
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    protected int size;
+
+    protected List<Flat> baseline;
+    protected FlatRepository flats;
+    protected CommandManager manager;
+    protected String input;
+    private Journal journal;
+    private Path workDirectory;
+    private PrintStream originalOut;
+    private PrintStream originalErr;
+
+    /**
+     * @return измеряемая команда
+     */
+    protected abstract String command();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        baseline = Collections.unmodifiableList(BenchmarkData.generate(size));
+        flats = BenchmarkData.toRepository(baseline);
+        workDirectory = Files.createTempDirectory("flat-bench");
+        journal = Journal.open(workDirectory.resolve(Journal.DEFAULT_JOURNAL_FILE).toString());
+        manager = new CommandManager(flats, journal);
+        input = command() + " " + argumentFor(command());
+
+        originalOut = System.out;
+        originalErr = System.err;
+        PrintStream discarding = BenchmarkData.discardingStream();
+        System.setOut(discarding);
+        System.setErr(discarding);
+    }
+
+    /**
+     * Формирует аргумент команды; для команд, работающих с файлами, готовит файлы во временном каталоге.
+     */
+    private String argumentFor(String command) throws IOException {
+        long middleId = Math.max(1, size / 2);
+        switch (command) {
+            case "add":
+            case "add_if_min":
+            case "add_if_max":
+            case "remove_greater":
+                return FLAT_LITERAL;
+            case "remove_by_id":
+                return Long.toString(middleId);
+            case "update":
+                return middleId + " " + FLAT_LITERAL;
+            case "update_by_id":
+                return middleId + " {\"name\": \"Updated\", \"area\": 80, \"coordinates\": {\"x\": 1, \"y\": 2}}";
+            case "save":
+                return workDirectory.resolve("flats.json").toString();
+            case "save_snapshot":
+                return workDirectory.resolve("saved.snapshot").toString();
+            case "load_snapshot": {
+                Path snapshot = workDirectory.resolve("load.snapshot");
+                FlatSnapshot.saveToFile(flats, snapshot.toString());
+                return snapshot.toString();
+            }
+            case "filter":
+                return "rooms = 3 and view = PARK and metro < 20";
+            case "nearest":
+                return "0 0 10";
+            case "within":
+                return "-10 -10 10 10";
+            case "range":
+                return "area 100 101";
+            case "top":
+                return "area 10";
+            case "execute_script": {
+                Path script = workDirectory.resolve("script.txt");
+                String text = "# benchmark script\ninfo\nprint_unique_house\nremove_by_id " + middleId + "\n";
+                Files.write(script, text.getBytes(StandardCharsets.UTF_8));
+                return script.toString();
+            }
+            default:
+                return "";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+        journal.close();
+        BenchmarkData.deleteRecursively(workDirectory);
+    }
+}
@@ -0,0 +1,59 @@
+package flatset.benchmarks;
+
+import flatset.Flat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк сравнения квартир.
+ * Сравниваются квартиры с одинаковым ID, названием и прочими полями вплоть до дома,
+ * поэтому сравнение проходит по всем полям. С профилировщиком -prof gc видно,
+ * что compareTo не создаёт объектов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComparatorBenchmark {
+    private static final int SORT_SIZE = 10_000;
+
+    private Flat left;
+    private Flat right;
+    private Flat[] unsorted;
+
+    @Setup
+    public void setUp() {
+        left = BenchmarkData.generate(1).get(0);
+        right = left.toBuilder().setHouse(null).build();
+        unsorted = BenchmarkData.generate(SORT_SIZE).toArray(new Flat[0]);
+        for (int i = 0; i < unsorted.length; i++) {
+            unsorted[i] = unsorted[i].withId(unsorted[i].getId() % 10);
+        }
+    }
+
+    @Benchmark
+    public int compareAllFields() {
+        return left.compareTo(right);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Flat[] sort() {
+        Flat[] copy = unsorted.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,76 @@
+package flatset.benchmarks;
+
+import flatset.commands.SaveCommand;
+import flatset.storage.FlatRepository;
+import flatset.utils.FlatLoader;
+import flatset.utils.FlatSaver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк загрузки коллекции из JSON-файла и её сохранения командой save.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class LoadSaveBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private FlatRepository flats;
+    private Path workDirectory;
+    private String sourceFile;
+    private String targetFile;
+    private SaveCommand saveCommand;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        flats = BenchmarkData.toRepository(BenchmarkData.generate(size));
+        workDirectory = Files.createTempDirectory("flat-bench");
+        sourceFile = workDirectory.resolve("source.json").toString();
+        targetFile = workDirectory.resolve("target.json").toString();
+        FlatSaver.saveToFile(flats, sourceFile);
+        saveCommand = new SaveCommand();
+
+        originalOut = System.out;
+        System.setOut(BenchmarkData.discardingStream());
+    }
+
+    @Benchmark
+    public FlatRepository load() throws IOException {
+        return FlatLoader.loadFromFile(sourceFile);
+    }
+
+    @Benchmark
+    public void save() {
+        saveCommand.execute(flats, targetFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        BenchmarkData.deleteRecursively(workDirectory);
+    }
+}
@@ -0,0 +1,62 @@
+package flatset.benchmarks;
+
+import flatset.storage.FlatRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк команд, изменяющих коллекцию, на коллекциях разного размера.
+ * Каждый вызов должен видеть исходную коллекцию, поэтому измерение ведётся в режиме SingleShotTime:
+ * итерация — пакет из {@value #BATCH_SIZE} вызова, после которого изменения откатываются через {@link UndoLog}
+ * вне измерения (TearDown уровня Iteration). Пакет из одного вызова выбран потому, что повтор изменения
+ * без отката измерял бы уже другую операцию (повторная очистка пустой коллекции, удаление отсутствующего ID).
+ * В отличие от TearDown уровня Invocation в режимах по времени, откат не добавляет к измерению
+ * чтение таймера на каждый вызов.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20, batchSize = MutatingCommandBenchmark.BATCH_SIZE)
+@Measurement(iterations = 50, batchSize = MutatingCommandBenchmark.BATCH_SIZE)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class MutatingCommandBenchmark extends CommandFixture {
+    static final int BATCH_SIZE = 1;
+
+    @Param({"add", "remove_by_id", "clear", "load_snapshot", "add_if_min", "add_if_max", "remove_greater",
+            "update", "update_by_id", "execute_script"})
+    private String command;
+
+    private UndoLog undoLog;
+
+    @Override
+    protected String command() {
+        return command;
+    }
+
+    @Setup(Level.Trial)
+    public void attachUndoLog() {
+        undoLog = new UndoLog(flats);
+        flats.addListener(undoLog);
+    }
+
+    @Benchmark
+    public FlatRepository execute() {
+        manager.executeCommand(input);
+        return flats;
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback() {
+        undoLog.rollback(baseline);
+    }
+}
@@ -0,0 +1,61 @@
+package flatset.benchmarks;
+
+import flatset.Flat;
+import flatset.utils.FlatLiteralParser;
+import flatset.utils.FlatParser;
+import flatset.utils.FlatUpdater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк разбора квартиры из строки команды (литерала) и частичного обновления полей из JSON.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    private static final String UPDATE_JSON = "{\"name\": \"Updated\", \"area\": 80, \"new\": false,"
+            + " \"coordinates\": {\"x\": 1, \"y\": 2}, \"house\": {\"name\": \"House 2\", \"year\": 2010}}";
+
+    private final FlatLiteralParser literal = new FlatLiteralParser();
+    private Flat flat;
+
+    @Setup
+    public void setUp() {
+        flat = BenchmarkData.generate(1).get(0);
+    }
+
+    @Benchmark
+    public Flat parseFlat() {
+        return FlatParser.parseFlat(CommandFixture.FLAT_LITERAL);
+    }
+
+    /**
+     * Только разбор и проверка литерала переиспользуемым разборщиком, без создания квартиры, как в пакетных add.
+     */
+    @Benchmark
+    public boolean parseLiteral() {
+        return literal.parse(CommandFixture.FLAT_LITERAL);
+    }
+
+    /**
+     * Обновление создаёт новую версию квартиры, как в команде update_by_id.
+     */
+    @Benchmark
+    public Flat updateFields() {
+        return FlatUpdater.updateFields(flat, UPDATE_JSON);
+    }
+}
@@ -0,0 +1,73 @@
+package flatset.benchmarks;
+
+import flatset.Flat;
+import flatset.storage.CollectionListener;
+import flatset.storage.FlatRepository;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Журнал отмены изменений хранилища между вызовами бенчмарка.
+ * Позволяет измерять изменяющие команды на большой коллекции, не пересоздавая её после каждого вызова:
+ * отменяются только сделанные изменения, а полное перезаполнение нужно лишь после очистки коллекции.
+ */
+final class UndoLog implements CollectionListener {
+    private final Deque<Runnable> undo = new ArrayDeque<>();
+    private final FlatRepository flats;
+    private boolean cleared;
+
+    UndoLog(FlatRepository flats) {
+        this.flats = flats;
+    }
+
+    @Override
+    public void onAdd(Flat flat) {
+        if (!cleared) {
+            undo.push(() -> flats.removeById(flat.getId()));
+        }
+    }
+
+    @Override
+    public void onRemove(Flat flat) {
+        if (!cleared) {
+            undo.push(() -> flats.add(flat));
+        }
+    }
+
+    @Override
+    public void onReplace(Flat previous, Flat updated) {
+        if (!cleared) {
+            undo.push(() -> flats.replace(previous));
+        }
+    }
+
+    @Override
+    public void onClear() {
+        cleared = true;
+        undo.clear();
+    }
+
+    /**
+     * Возвращает хранилище в исходное состояние.
+     *
+     * @param baseline исходное содержимое хранилища
+     */
+    void rollback(List<Flat> baseline) {
+        flats.removeListener(this);
+        try {
+            if (cleared) {
+                BenchmarkData.refill(flats, baseline);
+            } else {
+                while (!undo.isEmpty()) {
+                    undo.pop().run();
+                }
+            }
+        } finally {
+            cleared = false;
+            undo.clear();
+            flats.addListener(this);
+        }
+    }
+}
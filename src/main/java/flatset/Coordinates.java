@@ -1,76 +1,53 @@
 package flatset;
 
-import java.util.Comparator;
-import java.util.Objects;
 /**
  * Класс, представляющий координаты.
  * Содержит информацию о координатах, таких как x и y.
  */
-public class Coordinates implements Comparable<Coordinates>
+public final class Coordinates implements Comparable<Coordinates>
 {
     /**
      * Координата x. Не может быть null.
      */
-    private int x; // Поле не может быть null
+    private final int x; // Поле не может быть null
     /**
      * Координата y. Не может быть null, значение должно быть больше -318.
      */
-    private int y; // Значение поля должно быть больше -318, Поле не может быть null
+    private final int y; // Значение поля должно быть больше -318, Поле не может быть null
     /**
      * Конструктор с параметрами. Инициализирует координаты x и y.
      *
      * @param x Координата x.
      * @param y Координата y.
+     * @throws IllegalArgumentException если значение y меньше или равно -318.
      */
     public Coordinates(int x, int y)
     {
-        this.setX(x);
-        this.setY(y);
+        if ( y <= -318)
+        {
+            throw new IllegalArgumentException("Coordinate y must be greater than -318.");
+        }
+        this.x = x;
+        this.y = y;
     }
     /**
      * Возвращает координату x.
      *
      * @return Координата x.
      */
-    // Геттеры и сеттеры
-    public Integer getX() {
+    // Геттеры
+    public int getX() {
         return x;
     }
     /**
-     * Устанавливает координату x.
-     *
-     * @param x Координата x.
-     */
-
-    public void setX(Integer x) {
-        this.x = x;
-    }
-    /**
  * Возвращает координату y.
  *
  * @return Координата y.
  */
 
-    public Integer getY() {
+    public int getY() {
         return y;
     }
-    /**
-     * Устанавливает координату y.
-     *
-     * @param y Координата y
-     * @throws IllegalArgumentException если значение y меньше или равно -318.
-     */
-    public void setY(Integer y)
-    {
-        if ( y <= -318)
-        {
-            throw new IllegalArgumentException("Coordinate y must be greater than -318.");
-        }
-        else
-        {
-            this.y = y;
-        }
-    }
     /**
      * Возвращает строковое представление объекта координат.
      *
@@ -94,7 +71,7 @@ public class Coordinates implements Comparable<Coordinates>
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Coordinates that = (Coordinates) o;
-        return Objects.equals(x, that.x) && Objects.equals(y, that.y);
+        return x == that.x && y == that.y;
     }
     /**
      * Возвращает хэш-код объекта координат.
@@ -103,11 +80,13 @@ public class Coordinates implements Comparable<Coordinates>
      */
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        // То же значение, что и Objects.hash(x, y), но без упаковки и массива аргументов
+        return 31 * (31 + x) + y;
     }
     /**
      * Сравнивает текущие координаты с другими координатами для упорядочивания.
      * Сравнение производится сначала по координате x, затем по координате y.
+     * Значения сравниваются как примитивы, без создания объектов.
      *
      * @param other Другие координаты для сравнения.
      * @return Отрицательное число, если текущие координаты меньше других,
@@ -115,9 +94,7 @@ public class Coordinates implements Comparable<Coordinates>
      */
     @Override
     public int compareTo(Coordinates other) {
-
-        return Comparator.comparing(Coordinates::getX, Comparator.nullsFirst(Integer::compareTo))
-                .thenComparing(Coordinates::getY, Comparator.nullsFirst(Integer::compareTo))
-                .compare(this, other);
+        int result = Integer.compare(x, other.x);
+        return result != 0 ? result : Integer.compare(y, other.y);
     }
 }
\ No newline at end of file
@@ -1,68 +1,65 @@
 package flatset;
 
 import java.time.ZonedDateTime;
-import java.util.Comparator;
 import java.util.Objects;
 /**
  * Класс, представляющий квартиру.
  * Содержит информацию о квартире, такую как идентификатор, название, координаты, дата создания,
  * площадь, количество комнат, статус новизны, время до метро на транспорте, вид из окна и дом.
  */
-public class Flat implements Comparable<Flat>
+public final class Flat implements Comparable<Flat>
 {
     /**
      * Уникальный идентификатор квартиры. Значение должно быть больше 0.
      */
-    private long id; // Значение поля должно быть больше 0, уникальное, генерируется автоматически
+    private final long id; // Значение поля должно быть больше 0, уникальное, генерируется автоматически
     /**
      * Название квартиры. Не может быть null или пустой строкой.
      */
-    private String name; // Поле не может быть null, строка не может быть пустой
+    private final String name; // Поле не может быть null, строка не может быть пустой
     /**
      * Координаты квартиры. Не может быть null.
      */
-    private Coordinates coordinates; // Поле не может быть null
+    private final Coordinates coordinates; // Поле не может быть null
     /**
      * Дата создания записи о квартире. Не может быть null, генерируется автоматически.
      */
-    private ZonedDateTime creationDate; // Поле не может быть null, генерируется автоматически
+    private final ZonedDateTime creationDate; // Поле не может быть null, генерируется автоматически
     /**
      * Площадь квартиры. Значение должно быть больше 0.
      */
-    private long area; // Значение поля должно быть больше 0
+    private final long area; // Значение поля должно быть больше 0
     /**
             * Количество комнат в квартире. Значение должно быть больше 0.
         */
-    private long numberOfRooms; // Значение поля должно быть больше 0
+    private final long numberOfRooms; // Значение поля должно быть больше 0
 
     /**
      * Статус новизны квартиры. Может быть null.
      */
-    private Boolean isNew; // Поле может быть null
+    private final Boolean isNew; // Поле может быть null
     /**
      * Время до метро на транспорте. Значение должно быть больше 0.
      */
-    private double timeToMetroByTransport; // Значение поля должно быть больше 0
+    private final double timeToMetroByTransport; // Значение поля должно быть больше 0
 
     /**
      * Вид из окна квартиры. Не может быть null.
      */
-    private View view; // Поле не может быть null
+    private final View view; // Поле не может быть null
     /**
      * Дом, в котором находится квартира. Может быть null.
      */
 
-    private House house; // Поле может быть null
+    private final House house; // Поле может быть null
     /**
-     * Конструктор по умолчанию. Инициализирует дату создания текущей датой и временем.
+     * Хэш-код, вычисленный один раз при создании объекта.
      */
+    private final int hash;
 
-    public Flat()
-    {
-        this.creationDate = ZonedDateTime.now();
-    };
     /**
      * Конструктор с параметрами. Инициализирует все поля класса.
+     * Квартира неизменяема: изменение любого поля создаёт новый объект (см. {@link #toBuilder()}).
 
      * @param id Уникальный идентификатор квартиры.
      * @param name Название квартиры.
@@ -70,13 +67,13 @@ public class Flat implements Comparable<Flat>
      * @param creationDate Дата создания записи о квартире.
      * @param area Площадь квартиры.
      * @param numberOfRooms Количество комнат в квартире.
-     * @param isNew Статус новизны квартиры.
+     * @param isNew Статус новизны квартиры (может быть null).
      * @param timeToMetroByTransport Время до метро на транспорте.
      * @param view Вид из окна квартиры.
      * @param house Дом, в котором находится квартира.
      */
     public Flat(long id, String name, Coordinates coordinates, ZonedDateTime creationDate, long area,
-                long numberOfRooms, boolean isNew, double timeToMetroByTransport, View view, House house) {
+                long numberOfRooms, Boolean isNew, double timeToMetroByTransport, View view, House house) {
         this.id = id;
         this.name = name;
         this.coordinates = coordinates;
@@ -87,61 +84,75 @@ public class Flat implements Comparable<Flat>
         this.timeToMetroByTransport = timeToMetroByTransport;
         this.view = view;
         this.house = house;
+        this.hash = Objects.hash(id, name, coordinates, creationDate, area, numberOfRooms, isNew, timeToMetroByTransport, view, house);
     }
 
     /**
-     * Возвращает уникальный идентификатор квартиры.
+     * Создаёт построитель квартиры. Дата создания по умолчанию - текущие дата и время.
 
-     * @return Уникальный идентификатор квартиры.
+     * @return Новый построитель.
      */
-    public long getId()
-    {
-        return id;
+    public static Builder builder() {
+        return new Builder();
     }
+
     /**
-     * Устанавливает уникальный идентификатор квартиры.
+     * Создаёт построитель, заполненный значениями полей этой квартиры.
+     * Используется для получения изменённой версии квартиры.
 
-     * @param id Уникальный идентификатор квартиры.
+     * @return Построитель с копией полей квартиры.
      */
-    public void setId(long id) {
-        this.id = id;
+    public Builder toBuilder() {
+        return new Builder()
+                .setId(id)
+                .setName(name)
+                .setCoordinates(coordinates)
+                .setCreationDate(creationDate)
+                .setArea(area)
+                .setNumberOfRooms(numberOfRooms)
+                .setNew(isNew)
+                .setTimeToMetroByTransport(timeToMetroByTransport)
+                .setView(view)
+                .setHouse(house);
     }
 
     /**
-     * Возвращает название квартиры.
+     * Возвращает копию квартиры с другим идентификатором.
 
-     * @return Название квартиры.
+     * @param id Новый идентификатор.
+     * @return Квартира с тем же содержимым и новым идентификатором.
      */
-    public String getName() {
-        return name;
+    public Flat withId(long id) {
+        return id == this.id ? this : toBuilder().setId(id).build();
     }
 
     /**
-     * Устанавливает название квартиры.
+     * Возвращает уникальный идентификатор квартиры.
 
-     * @param name Название квартиры.
+     * @return Уникальный идентификатор квартиры.
      */
-    public void setName(String name) {
-        this.name = name;
+    public long getId()
+    {
+        return id;
     }
+
     /**
-     * Возвращает координаты квартиры.
+     * Возвращает название квартиры.
 
-     * @return Координаты квартиры.
+     * @return Название квартиры.
      */
-
-    public Coordinates getCoordinates() {
-        return coordinates;
+    public String getName() {
+        return name;
     }
 
     /**
-     * Устанавливает координаты квартиры.
+     * Возвращает координаты квартиры.
 
-     * @param coordinates Координаты квартиры.
+     * @return Координаты квартиры.
      */
 
-    public void setCoordinates(Coordinates coordinates) {
-        this.coordinates = coordinates;
+    public Coordinates getCoordinates() {
+        return coordinates;
     }
 
     /**
@@ -153,14 +164,6 @@ public class Flat implements Comparable<Flat>
         return creationDate;
     }
 
-    /**
-     * Устанавливает дату создания записи о квартире.
-
-     * @param creationDate Дата создания записи о квартире.
-     */
-    public void setCreationDate(ZonedDateTime creationDate) {
-        this.creationDate = creationDate;
-    }
     /**
      * Возвращает площадь квартиры.
 
@@ -170,15 +173,6 @@ public class Flat implements Comparable<Flat>
     public long getArea() {
         return area;
     }
-    /**
-     * Устанавливает площадь квартиры.
-
-     * @param area Площадь квартиры.
-     */
-
-    public void setArea(long area) {
-        this.area = area;
-    }
     /**
      * Возвращает количество комнат в квартире.
 
@@ -188,15 +182,6 @@ public class Flat implements Comparable<Flat>
     public long getNumberOfRooms() {
         return numberOfRooms;
     }
-    /**
-     * Устанавливает количество комнат в квартире.
-
-     * @param numberOfRooms Количество комнат в квартире.
-     */
-
-    public void setNumberOfRooms(long numberOfRooms) {
-        this.numberOfRooms = numberOfRooms;
-    }
     /**
      * Возвращает статус новизны квартиры.
 
@@ -206,15 +191,6 @@ public class Flat implements Comparable<Flat>
     public Boolean isNew() {
         return isNew;
     }
-    /**
-     * Устанавливает статус новизны квартиры.
-
-     * @param isNew Статус новизны квартиры.
-     */
-
-    public void setNew(Boolean isNew) {
-        this.isNew = isNew;
-    }
     /**
      * Возвращает время до метро на транспорте.
 
@@ -224,14 +200,6 @@ public class Flat implements Comparable<Flat>
     public double getTimeToMetroByTransport() {
         return timeToMetroByTransport;
     }
-    /**
-     * Устанавливает время до метро на транспорте.
-
-     * @param timeToMetroByTransport Время до метро на транспорте.
-     */
-    public void setTimeToMetroByTransport(double timeToMetroByTransport) {
-        this.timeToMetroByTransport = timeToMetroByTransport;
-    }
     /**
      * Возвращает вид из окна квартиры.
 
@@ -240,14 +208,6 @@ public class Flat implements Comparable<Flat>
     public View getView() {
         return view;
     }
-    /**
-     * Устанавливает вид из окна квартиры.
-
-     * @param view Вид из окна квартиры.
-     */
-    public void setView(View view) {
-        this.view = view;
-    }
     /**
      * Возвращает дом, в котором находится квартира.
 
@@ -256,14 +216,6 @@ public class Flat implements Comparable<Flat>
     public House getHouse() {
         return house;
     }
-    /**
-     * Устанавливает дом, в котором находится квартира.
-
-     * @param house Дом, в котором находится квартира.
-     */
-    public void setHouse(House house) {
-        this.house = house;
-    }
     /**
      * Возвращает строковое представление объекта квартиры.
 
@@ -295,7 +247,8 @@ public class Flat implements Comparable<Flat>
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Flat flat = (Flat) o; //преобразование класса для сравнения
-        return id == flat.id &&
+        return hash == flat.hash &&
+                id == flat.id &&
                 area == flat.area &&
                 numberOfRooms == flat.numberOfRooms &&
                 Double.compare(flat.timeToMetroByTransport, timeToMetroByTransport) == 0 &&
@@ -307,18 +260,21 @@ public class Flat implements Comparable<Flat>
                 Objects.equals(house, flat.house);
     }
     /**
-     * Возвращает хэш-код объекта квартиры.
+     * Возвращает хэш-код объекта квартиры, вычисленный при создании.
 
      * @return Хэш-код объекта квартиры.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, coordinates, creationDate, area, numberOfRooms, isNew, timeToMetroByTransport, view, house);
+        return hash;
     }
     /**
      * Сравнивает текущую квартиру с другой квартирой для упорядочивания.
      * Сравнение производится по идентификатору, названию, координатам, дате создания,
      * площади, количеству комнат, статусу новизны, времени до метро, виду из окна и дому.
+     * Отсутствующие (null) значения считаются меньшими любых других.
+     * Поля сравниваются напрямую, без построения цепочки компараторов и упаковки значений,
+     * поэтому сравнение не создаёт объектов.
 
      * @param other Другая квартира для сравнения.
      * @return Отрицательное число, если текущая квартира меньше другой,
@@ -327,17 +283,128 @@ public class Flat implements Comparable<Flat>
     @Override
     public int compareTo(Flat other)
     {
+        int result = Long.compare(id, other.id);
+        if (result != 0) return result;
+        result = name.compareTo(other.name);
+        if (result != 0) return result;
+        result = compareNullsFirst(coordinates, other.coordinates);
+        if (result != 0) return result;
+        result = compareNullsFirst(creationDate, other.creationDate);
+        if (result != 0) return result;
+        result = Long.compare(area, other.area);
+        if (result != 0) return result;
+        result = Long.compare(numberOfRooms, other.numberOfRooms);
+        if (result != 0) return result;
+        result = compareNullsFirst(isNew, other.isNew);
+        if (result != 0) return result;
+        result = Double.compare(timeToMetroByTransport, other.timeToMetroByTransport);
+        if (result != 0) return result;
+        result = compareNullsFirst(view, other.view);
+        if (result != 0) return result;
+        return compareNullsFirst(house, other.house);
+    }
 
-        return Comparator.comparingLong(Flat::getId)
-                .thenComparing(Flat::getName)
-                .thenComparing(Flat::getCoordinates, Comparator.nullsFirst(Coordinates::compareTo))
-                .thenComparing(Flat::getCreationDate, Comparator.nullsFirst(ZonedDateTime::compareTo))
-                .thenComparingLong(Flat::getArea)
-                .thenComparingLong(Flat::getNumberOfRooms)
-                .thenComparing(Flat::isNew, Comparator.nullsFirst(Boolean::compareTo))
-                .thenComparingDouble(Flat::getTimeToMetroByTransport)
-                .thenComparing(Flat::getView, Comparator.nullsFirst(View::compareTo))
-                .thenComparing(Flat::getHouse, Comparator.nullsFirst(House::compareTo))
-                .compare(this, other);
+    /**
+     * Сравнивает значения, допускающие null; null считается меньше любого значения.
+     */
+    private static <T extends Comparable<? super T>> int compareNullsFirst(T a, T b) {
+        if (a == b) return 0;
+        if (a == null) return -1;
+        if (b == null) return 1;
+        return a.compareTo(b);
+    }
+
+    /**
+     * Построитель квартиры. Позволяет заполнять поля по одному (например, при разборе ввода)
+     * и получать изменённые версии существующих квартир.
+     */
+    public static final class Builder {
+        private long id;
+        private String name;
+        private Coordinates coordinates;
+        private ZonedDateTime creationDate = ZonedDateTime.now();
+        private long area;
+        private long numberOfRooms;
+        private Boolean isNew;
+        private double timeToMetroByTransport;
+        private View view;
+        private House house;
+
+        private Builder() {
+        }
+
+        public Builder setId(long id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder setCoordinates(Coordinates coordinates) {
+            this.coordinates = coordinates;
+            return this;
+        }
+
+        public Builder setCreationDate(ZonedDateTime creationDate) {
+            this.creationDate = creationDate;
+            return this;
+        }
+
+        public Builder setArea(long area) {
+            this.area = area;
+            return this;
+        }
+
+        public Builder setNumberOfRooms(long numberOfRooms) {
+            this.numberOfRooms = numberOfRooms;
+            return this;
+        }
+
+        public Builder setNew(Boolean isNew) {
+            this.isNew = isNew;
+            return this;
+        }
+
+        public Builder setTimeToMetroByTransport(double timeToMetroByTransport) {
+            this.timeToMetroByTransport = timeToMetroByTransport;
+            return this;
+        }
+
+        public Builder setView(View view) {
+            this.view = view;
+            return this;
+        }
+
+        public Builder setHouse(House house) {
+            this.house = house;
+            return this;
+        }
+
+        /**
+         * @return текущие координаты в построителе (для частичного обновления)
+         */
+        public Coordinates getCoordinates() {
+            return coordinates;
+        }
+
+        /**
+         * @return текущий дом в построителе (для частичного обновления)
+         */
+        public House getHouse() {
+            return house;
+        }
+
+        /**
+         * Создаёт неизменяемую квартиру из заполненных полей.
+
+         * @return Новая квартира.
+         */
+        public Flat build() {
+            return new Flat(id, name, coordinates, creationDate, area, numberOfRooms,
+                    isNew, timeToMetroByTransport, view, house);
+        }
     }
 }
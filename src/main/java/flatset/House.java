@@ -1,19 +1,23 @@
 package flatset;
 
 import java.util.Objects;
-import java.util.Comparator;
 /**
  * Класс House представляет дом с названием, годом постройки и количеством квартир на этаже.
  * Реализует интерфейс Comparable для сравнения объектов House по имени, году постройки и количеству квартир на этаже.
  * Переопределяет методы equals, hashCode и toString для корректной работы с коллекциями.
  */
 
-public class House implements Comparable<House> {
-    private String name;
-    private int year;
-    private int numberOfFlatsOnFloor;
+public final class House implements Comparable<House> {
+    private final String name;
+    private final int year;
+    private final int numberOfFlatsOnFloor;
+    /**
+     * Хэш-код, вычисленный один раз при создании объекта.
+     */
+    private final int hash;
     /**
      * Конструктор для создания объекта House с указанными параметрами.
+     * Дом неизменяем, поэтому один объект может безопасно разделяться несколькими квартирами.
      */
 
     public House(String name_p, int year_p, int numOfFlats_p)
@@ -21,43 +25,20 @@ public class House implements Comparable<House> {
         this.name = name_p;
         this.year = year_p;
         this.numberOfFlatsOnFloor = numOfFlats_p;
+        // То же значение, что и Objects.hash(name, year, numberOfFlatsOnFloor)
+        this.hash = 31 * (31 * (31 + Objects.hashCode(name)) + year) + numberOfFlatsOnFloor;
     }
-    /**
-     * Конструктор по умолчанию.
-     */
-    public House() {}
 
-    // геттеры и сеттеры
+    // геттеры
     public String getName() {return name;}
 
-
-    /**
-     * Устанавливает название дома.
-     */
-    public void setName(String name) {
-        this.name = name;
-    }
-
     public int getYear() {
         return year;
     }
 
-    /**
-     * Устанавливает год постройки дома.
-     */
-    public void setYear(int year) {
-        this.year = year;
-    }
-
     public int getNumberOfFlatsOnFloor() {
         return numberOfFlatsOnFloor;
     }
-    /**
-     * Устанавливает количество квартир на этаже.
-     */
-    public void setNumberOfFlatsOnFloor(int numberOfFlatsOnFloor) {
-        this.numberOfFlatsOnFloor = numberOfFlatsOnFloor;
-    }
     /**
      * Возвращает строковое представление объекта House.
      */
@@ -72,13 +53,18 @@ public class House implements Comparable<House> {
     /**
      * Сравнивает текущий объект House с другим объектом House.
      * Сравнение выполняется по названию, году постройки и количеству квартир на этаже.
+     * Числовые поля сравниваются как примитивы, без создания объектов.
+     * Дом без названия считается меньше дома с названием.
      */
     @Override
     public int compareTo(House other) {
-        return Comparator.comparing(House::getName)
-                .thenComparingInt(House::getYear)
-                .thenComparingInt(House::getNumberOfFlatsOnFloor)
-                .compare(this, other);
+        int result = name == null || other.name == null
+                ? Boolean.compare(name != null, other.name != null)
+                : name.compareTo(other.name);
+        if (result != 0) return result;
+        result = Integer.compare(year, other.year);
+        if (result != 0) return result;
+        return Integer.compare(numberOfFlatsOnFloor, other.numberOfFlatsOnFloor);
     }
     /**
      * Проверяет, равен ли текущий объект House другому объекту.
@@ -89,15 +75,16 @@ public class House implements Comparable<House> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         House house = (House) o;
-        return year == house.year &&
+        return hash == house.hash &&
+                year == house.year &&
                 numberOfFlatsOnFloor == house.numberOfFlatsOnFloor &&
                 Objects.equals(name, house.name);
     }
     /**
-     * Возвращает хэш-код объекта House.
+     * Возвращает хэш-код объекта House, вычисленный при создании.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(name, year, numberOfFlatsOnFloor);
+        return hash;
     }
 }
@@ -1,16 +1,45 @@
 package flatset;
 
+import flatset.batch.BatchProcessor;
 import flatset.commands.CommandManager;
+import flatset.server.CommandServer;
+import flatset.storage.FlatRepository;
+import flatset.storage.Journal;
 import flatset.utils.FlatLoader;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class Main {
+    /** Флаг запуска в режиме сервера: {@code --server [port]} */
+    private static final String SERVER_FLAG = "--server";
+    /** Флаг пакетной обработки: {@code --batch requests.jsonl results.jsonl} */
+    private static final String BATCH_FLAG = "--batch";
+
     public static void main(String[] args) {
-        HashSet<Flat> flatSet = FlatLoader.loadInitialData();
+        FlatRepository flats = FlatLoader.loadInitialData();
+        Journal journal = openJournal(flats);
+
+        CommandManager commandManager = new CommandManager(flats, journal);
+        if (args.length > 0 && args[0].equals(SERVER_FLAG)) {
+            runServer(commandManager, args.length > 1 ? Integer.parseInt(args[1]) : CommandServer.DEFAULT_PORT);
+            closeJournal(journal);
+            System.out.println("Program is terminated");
+            return;
+        }
+        if (args.length > 0 && args[0].equals(BATCH_FLAG)) {
+            if (args.length != 3) {
+                System.err.println("Usage: " + BATCH_FLAG + " requests.jsonl results.jsonl");
+            } else {
+                runBatch(commandManager, Paths.get(args[1]), Paths.get(args[2]));
+            }
+            closeJournal(journal);
+            return;
+        }
 
-        CommandManager commandManager = new CommandManager(flatSet);
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("\n=== Flat Collection Manager ===");
@@ -29,6 +58,85 @@ public class Main {
         }
 
         scanner.close();
+        closeJournal(journal);
         System.out.println("Program is terminated");
     }
+
+    /**
+     * Обслуживает команды по сети вместо консоли, пока процесс не будет остановлен (например, Ctrl+C).
+     * При остановке сервер дорабатывает текущую команду, после чего журнал закрывается штатно.
+     */
+    private static void runServer(CommandManager commandManager, int port) {
+        CommandServer server;
+        try {
+            server = new CommandServer(commandManager, port);
+        } catch (IOException e) {
+            System.err.println("Failed to start the server on port " + port + ": " + e.getMessage());
+            return;
+        }
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                main.join(5_000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        System.out.println("Server is listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort());
+        try {
+            server.run();
+        } catch (IOException e) {
+            System.err.println("Server failed: " + e.getMessage());
+        }
+        System.out.println("Server stopped after " + server.getCommandsExecuted() + " command(s)");
+    }
+
+    /**
+     * Выполняет запросы из JSONL-файла и записывает результаты в другой JSONL-файл.
+     */
+    private static void runBatch(CommandManager commandManager, Path requests, Path results) {
+        try {
+            BatchProcessor.Summary summary = new BatchProcessor(commandManager).process(requests, results);
+            System.out.printf("Processed %d request(s) in %.3f s, %d not ok; results are in %s%n",
+                    summary.requests, summary.seconds, summary.failed, results);
+        } catch (IOException e) {
+            System.err.println("Batch processing failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch processing was interrupted");
+        }
+    }
+
+    /**
+     * Открывает журнал изменений, применяет его хвост к загруженной коллекции
+     * и подписывает журнал на дальнейшие изменения.
+     * @return открытый журнал или null, если журнал недоступен
+     */
+    private static Journal openJournal(FlatRepository flats) {
+        try {
+            Journal journal = Journal.open(Journal.DEFAULT_JOURNAL_FILE);
+            int replayed = journal.replay(flats);
+            if (replayed > 0) {
+                System.out.println("Replayed " + replayed + " journal record(s), " + flats.size() + " apartments in total");
+            }
+            flats.addListener(journal);
+            return journal;
+        } catch (IOException e) {
+            System.err.println("Warning: Journal is disabled - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void closeJournal(Journal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to close the journal - " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
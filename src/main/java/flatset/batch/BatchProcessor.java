@@ -0,0 +1,307 @@
+package flatset.batch;
+
+import flatset.commands.CommandManager;
+import flatset.commands.CommandSession;
+import flatset.commands.CompiledCommand;
+import flatset.utils.OutputCapture;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Пакетная обработка запросов в формате JSONL.
+ * Каждая строка входного файла — JSON-объект запроса:
+ * {@code {"command": "add", "argument": "{...}", "id": ...}}; поле argument необязательно
+ * (тогда command может содержать всю строку команды), поле id необязательно и возвращается в результате.
+ * На каждый запрос в выходной файл пишется одна строка-объект результата:
+ * номер строки, id, имя команды, статус, время выполнения в микросекундах и вывод команды
+ * (output — System.out, error — System.err).
+ *
+ * Статусы: ok; error — команда писала в System.err или выбросила исключение; unknown — команда
+ * не зарегистрирована; invalid — строка не является корректным запросом; rejected — команда требует
+ * ввода с консоли; skipped — запрос идёт после exit, который завершает обработку.
+ *
+ * Чтение и разбор JSON, выполнение команд и запись результатов идут в трёх потоках, связанных
+ * ограниченными очередями, поэтому файл любого размера обрабатывается с постоянным объёмом памяти.
+ * Вывод команд перехватывается и не попадает в консоль.
+ */
+public class BatchProcessor {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final CommandManager manager;
+    /** Сессия запросов пакета: ввода с консоли нет */
+    private final CommandSession session = new CommandSession(false);
+
+    /**
+     * @param manager менеджер команд, через который выполняются запросы
+     */
+    public BatchProcessor(CommandManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Итоги пакетной обработки.
+     */
+    public static final class Summary {
+        /** Количество обработанных запросов */
+        public final long requests;
+        /** Количество запросов со статусом, отличным от ok */
+        public final long failed;
+        /** Время обработки в секундах */
+        public final double seconds;
+
+        Summary(long requests, long failed, double seconds) {
+            this.requests = requests;
+            this.failed = failed;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * Запрос, прочитанный из входного файла.
+     */
+    private static final class Request {
+        static final Request END = new Request(0, null, null, null);
+
+        final long line;
+        final JsonValue id;
+        /** Строка команды или null, если запрос некорректен */
+        final String command;
+        /** Описание ошибки разбора для некорректного запроса */
+        final String invalid;
+
+        Request(long line, JsonValue id, String command, String invalid) {
+            this.line = line;
+            this.id = id;
+            this.command = command;
+            this.invalid = invalid;
+        }
+    }
+
+    /**
+     * Обрабатывает файл запросов и записывает результаты.
+     *
+     * @param requests входной JSONL-файл
+     * @param results выходной JSONL-файл (перезаписывается)
+     * @return итоги обработки
+     * @throws IOException если не удалось прочитать запросы или записать результаты
+     * @throws InterruptedException если поток был прерван
+     */
+    public Summary process(Path requests, Path results) throws IOException, InterruptedException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(requests), StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(Files.newOutputStream(results), StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+            return process(reader, writer);
+        }
+    }
+
+    private Summary process(BufferedReader reader, Writer writer) throws IOException, InterruptedException {
+        BlockingQueue<Request> pendingRequests = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<JsonObject> pendingResults = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        IOException[] readFailure = new IOException[1];
+        IOException[] writeFailure = new IOException[1];
+        long start = System.nanoTime();
+
+        Thread readerThread = new Thread(() -> {
+            try {
+                readRequests(reader, pendingRequests);
+            } catch (IOException e) {
+                readFailure[0] = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                putQuietly(pendingRequests, Request.END);
+            }
+        }, "batch-reader");
+        Thread writerThread = new Thread(() -> {
+            try {
+                writeResults(writer, pendingResults);
+            } catch (IOException e) {
+                writeFailure[0] = e;
+                // Дочитываем очередь, чтобы исполнитель не заблокировался
+                drain(pendingResults);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "batch-writer");
+
+        readerThread.start();
+        writerThread.start();
+        long processed = 0;
+        long failed = 0;
+        try {
+            boolean exited = false;
+            Request request;
+            while ((request = pendingRequests.take()) != Request.END) {
+                JsonObject result = execute(request, exited);
+                exited |= "exit".equals(result.getString("command", null));
+                processed++;
+                if (!result.getString("status").equals("ok")) {
+                    failed++;
+                }
+                pendingResults.put(result);
+            }
+        } finally {
+            pendingResults.put(JsonValue.EMPTY_JSON_OBJECT);
+            readerThread.join();
+            writerThread.join();
+        }
+
+        if (readFailure[0] != null) {
+            throw readFailure[0];
+        }
+        if (writeFailure[0] != null) {
+            throw writeFailure[0];
+        }
+        return new Summary(processed, failed, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Поток чтения: разбирает строки входного файла в запросы.
+     */
+    private static void readRequests(BufferedReader reader, BlockingQueue<Request> queue)
+            throws IOException, InterruptedException {
+        String line;
+        long number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            queue.put(parseRequest(number, line));
+        }
+    }
+
+    private static Request parseRequest(long number, String line) {
+        JsonObject json;
+        try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+            json = jsonReader.readObject();
+        } catch (RuntimeException e) {
+            return new Request(number, null, null, "Invalid JSON: " + e.getMessage());
+        }
+        JsonValue id = json.get("id");
+        JsonValue command = json.get("command");
+        if (!(command instanceof JsonString)) {
+            return new Request(number, id, null, "Field 'command' must be a string");
+        }
+        JsonValue argument = json.get("argument");
+        String text = ((JsonString) command).getString().trim();
+        if (argument instanceof JsonString) {
+            text = text + " " + ((JsonString) argument).getString();
+        } else if (argument != null && argument != JsonValue.NULL) {
+            text = text + " " + argument;
+        }
+        return new Request(number, id, text, null);
+    }
+
+    /**
+     * Выполняет запрос в потоке исполнителя и формирует объект результата.
+     */
+    private JsonObject execute(Request request, boolean exited) {
+        JsonObjectBuilder result = Json.createObjectBuilder().add("line", request.line);
+        if (request.id != null) {
+            result.add("id", request.id);
+        }
+        if (request.command == null) {
+            return result.add("status", "invalid").add("error", request.invalid).build();
+        }
+
+        CompiledCommand command = manager.compile(request.command, session);
+        result.add("command", command.getName());
+        if (exited) {
+            return result.add("status", "skipped").build();
+        }
+        if (!command.isKnown()) {
+            return result.add("status", "unknown").add("error", "Unknown command: " + command.getName()).build();
+        }
+        if (command.getName().equals("exit")) {
+            return result.add("status", "ok").add("durationMicros", 0).build();
+        }
+        if (command.needsConsole()) {
+            return result.add("status", "rejected")
+                    .add("error", "Interactive input is not available in batch mode").build();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        long started = System.nanoTime();
+        OutputCapture.run(out, err, () -> {
+            try {
+                manager.execute(command);
+            } catch (RuntimeException e) {
+                System.err.println("Error executing the command: " + e.getMessage());
+            }
+        });
+        long micros = (System.nanoTime() - started) / 1_000;
+
+        String output = toText(out);
+        String error = toText(err);
+        result.add("status", error.isEmpty() ? "ok" : "error").add("durationMicros", micros);
+        if (!output.isEmpty()) {
+            result.add("output", output);
+        }
+        if (!error.isEmpty()) {
+            result.add("error", error);
+        }
+        return result.build();
+    }
+
+    /**
+     * Поток записи: по строке JSON на результат; пустой объект завершает запись.
+     */
+    private static void writeResults(Writer writer, BlockingQueue<JsonObject> queue)
+            throws IOException, InterruptedException {
+        JsonObject result;
+        while ((result = queue.take()) != JsonValue.EMPTY_JSON_OBJECT) {
+            writer.write(result.toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String toText(ByteArrayOutputStream bytes) {
+        try {
+            return bytes.toString(StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void drain(BlockingQueue<JsonObject> queue) {
+        try {
+            while (queue.take() != JsonValue.EMPTY_JSON_OBJECT) {
+                // результаты отбрасываются после ошибки записи
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void putQuietly(BlockingQueue<Request> queue, Request request) {
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
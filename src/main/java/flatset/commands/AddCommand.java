@@ -4,9 +4,10 @@ import flatset.Coordinates;
 import flatset.Flat;
 import flatset.View;
 import flatset.House;
+import flatset.storage.FlatRepository;
+import flatset.utils.FlatLiteralParser;
 
 import java.time.ZonedDateTime;
-import java.util.HashSet;
 import java.util.Scanner;
 import java.util.NoSuchElementException;
 
@@ -19,90 +20,58 @@ import java.util.NoSuchElementException;
  */
 public class AddCommand implements Command {
     private final Scanner scanner;
+    private final FlatLiteralParser literal = new FlatLiteralParser();
 
     public AddCommand() {
         this.scanner = new Scanner(System.in);
     }
 
+    /**
+     * Блокировка записи захватывается только на время добавления, а не на время ввода.
+     */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public Access access() {
+        return Access.NONE;
+    }
+
+    /**
+     * Без аргумента команда работает в интерактивном режиме.
+     */
+    @Override
+    public boolean needsConsole(String argument) {
+        return argument == null || argument.trim().isEmpty();
+    }
+
+    @Override
+    public void execute(FlatRepository flats, String argument) {
         try {
             if (argument == null || argument.trim().isEmpty()) {
-                addInteractive(flatSet);
+                addInteractive(flats);
             } else {
-                addFromArgument(flatSet, argument);
+                addFromArgument(flats, argument);
             }
         } catch (Exception e) {
             System.err.println("Error adding an element: " + e.getMessage());
         }
     }
 
-    private void addFromArgument(HashSet<Flat> flatSet, String argument) {
-        if (!argument.startsWith("{") || !argument.endsWith("}")) {
-            throw new IllegalArgumentException("Invalid format. Parameters must be in curly brackets");
+    private void addFromArgument(FlatRepository flats, String argument) {
+        if (!literal.parse(argument)) {
+            throw new IllegalArgumentException(literal.getError());
         }
-
-        String content = argument.substring(1, argument.length() - 1);
-        int houseStartIndex = content.lastIndexOf("{");
-        int houseEndIndex = content.lastIndexOf("}");
-
-        if (houseStartIndex == -1 || houseEndIndex == -1) {
+        if (!literal.hasHouse()) {
             throw new IllegalArgumentException("Invalid format. Should include house information.");
         }
 
-        String flatParams = content.substring(0, houseStartIndex).trim();
-        String houseParams = content.substring(houseStartIndex, houseEndIndex + 1).trim();
-
-        String[] flatArgs = flatParams.split(",");
-        if (flatArgs.length != 8) {
-            throw new IllegalArgumentException("Invalid flat format. Required: name,x,y,area,numberOfRooms,isNew,timeToMetroByTransport,view");
-        }
-
-        String name = flatArgs[0].trim();
-        int x = Integer.parseInt(flatArgs[1].trim());
-        int y = Integer.parseInt(flatArgs[2].trim());
-
-        long area = Long.parseLong(flatArgs[3].trim());
-        if (area <= 0) throw new IllegalArgumentException("Area must be a positive number");
-
-        long numberOfRooms = Long.parseLong(flatArgs[4].trim());
-        if (numberOfRooms <= 0) throw new IllegalArgumentException("Number of rooms must be a positive number");
-
-        String isNewStr = flatArgs[5].trim().toLowerCase();
-        if (!isNewStr.equals("true") && !isNewStr.equals("false")) {
-            throw new IllegalArgumentException("isNew must be true or false");
-        }
-        Boolean isNew = Boolean.parseBoolean(isNewStr);
-
-        double timeToMetroByTransport = Double.parseDouble(flatArgs[6].trim());
-        if (timeToMetroByTransport < 0) {
-            throw new IllegalArgumentException("Time to metro must be non-negative");
-        }
-
-        View view;
-        try {
-            view = View.valueOf(flatArgs[7].trim().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid view type");
-        }
-
-        String[] houseArgs = houseParams.substring(1, houseParams.length() - 1).split(",");
-        if (houseArgs.length != 3) {
-            throw new IllegalArgumentException("Invalid format for house. Required: houseName,houseYear,houseNumberOfFlats");
-        }
-
-        String houseName = houseArgs[0].trim();
-        int houseYear = Integer.parseInt(houseArgs[1].trim());
-        if (houseYear <= 0) throw new IllegalArgumentException("House year must be a positive integer");
-
-        int houseNumberOfFlats = Integer.parseInt(houseArgs[2].trim());
-        if (houseNumberOfFlats <= 0) throw new IllegalArgumentException("Number of flats in house must be positive");
-
-        House house = new House(houseName, houseYear, houseNumberOfFlats);
-        addFlat(flatSet, name, x, y, area, numberOfRooms, isNew, timeToMetroByTransport, view, house);
+        Flat flat = flats.write(() -> {
+            Flat built = literal.build(flats.nextId(), ZonedDateTime.now(), flats.getHousePool()::intern);
+            flats.add(built);
+            return built;
+        });
+        System.out.println("\nElement added successfully: " + flat);
     }
 
-    private void addInteractive(HashSet<Flat> flatSet) {
+    private void addInteractive(FlatRepository flats) {
         System.out.println("\nAdding new flat (interactive mode)");
         System.out.println("---------------------------------");
 
@@ -124,7 +93,7 @@ public class AddCommand implements Command {
         int houseNumberOfFlats = promptPositiveInt("Number of flats in house (positive integer): ");
 
         House house = new House(houseName, houseYear, houseNumberOfFlats);
-        addFlat(flatSet, name, x, y, area, numberOfRooms, isNew, timeToMetroByTransport, view, house);
+        addFlat(flats, name, x, y, area, numberOfRooms, isNew, timeToMetroByTransport, view, house);
     }
 
     private String prompt(String message, boolean allowEmpty) {
@@ -207,34 +176,18 @@ public class AddCommand implements Command {
         }
     }
 
-    private void addFlat(HashSet<Flat> flatSet, String name, int x, int y, long area,
+    private void addFlat(FlatRepository flats, String name, int x, int y, long area,
                          long numberOfRooms, Boolean isNew, double timeToMetroByTransport,
                          View view, House house) {
-        long id = generateAutoIncrementId(flatSet);
         ZonedDateTime creationDate = ZonedDateTime.now();
         Coordinates coordinates = new Coordinates(x, y);
 
-        Flat flat = new Flat();
-        flat.setId(id);
-        flat.setName(name);
-        flat.setCoordinates(coordinates);
-        flat.setCreationDate(creationDate);
-        flat.setArea(area);
-        flat.setNumberOfRooms(numberOfRooms);
-        flat.setNew(isNew);
-        flat.setTimeToMetroByTransport(timeToMetroByTransport);
-        flat.setView(view);
-        flat.setHouse(house);
-
-        flatSet.add(flat);
+        Flat flat = flats.write(() -> {
+            Flat created = new Flat(flats.nextId(), name, coordinates, creationDate, area, numberOfRooms,
+                    isNew, timeToMetroByTransport, view, flats.getHousePool().intern(house));
+            flats.add(created);
+            return created;
+        });
         System.out.println("\nElement added successfully: " + flat);
     }
-
-    private long generateAutoIncrementId(HashSet<Flat> flatSet) {
-        long maxId = flatSet.stream()
-                .mapToLong(Flat::getId)
-                .max()
-                .orElse(0);
-        return maxId + 1;
-    }
 }
@@ -1,9 +1,8 @@
 package flatset.commands;
 
 import flatset.Flat;
+import flatset.storage.FlatRepository;
 import flatset.utils.FlatParser;
-import java.util.HashSet;
-import java.util.Optional;
 
 /**
  * Команда добавления квартиры в коллекцию, если она меньше текущей минимальной.
@@ -13,18 +12,19 @@ public class AddIfMinCommand implements Command {
     /**
      * Выполняет команду добавления квартиры, если её значение меньше минимального в коллекции.
      *
-     * @param flatSet Коллекция квартир, в которую потенциально добавляется новый элемент.
+     * @param flats Коллекция квартир, в которую потенциально добавляется новый элемент.
      * @param argument Строка, содержащая параметры новой квартиры в ожидаемом формате для {@link FlatParser}.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         try {
             Flat newFlat = FlatParser.parseFlat(argument);
 
-            Optional<Flat> minFlat = flatSet.stream().min(Flat::compareTo);
+            Flat minFlat = flats.min();
 
-            if (!minFlat.isPresent() || newFlat.compareTo(minFlat.get()) < 0) {
-                flatSet.add(newFlat);
+            if (minFlat == null || newFlat.compareTo(minFlat) < 0) {
+                newFlat = newFlat.withId(flats.nextId());
+                flats.add(newFlat);
                 System.out.println("Added new flat: " + newFlat);
             } else {
                 System.out.println("Flat value is not lower than the minimal in the collection.");
@@ -1,7 +1,6 @@
 package flatset.commands;
 
-import flatset.Flat;
-import java.util.HashSet;
+import flatset.storage.FlatRepository;
 
 /**
  * Команда для очистки коллекции квартир.
@@ -11,14 +10,14 @@ public class ClearCommand implements Command {
     /**
      * Выполняет команду очистки коллекции, удаляя все элементы из неё.
      *
-     * @param flatSet Коллекция квартир, подлежащая очистке.
+     * @param flats Коллекция квартир, подлежащая очистке.
      * @param argument Не используется в данной команде.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         try {
-            int sizeBefore = flatSet.size();
-            flatSet.clear();
+            int sizeBefore = flats.size();
+            flats.clear();
 
             if (sizeBefore > 0) {
                 System.out.println("All " + sizeBefore + " flats have been succesfully removed.");
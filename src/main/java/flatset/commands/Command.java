@@ -1,20 +1,63 @@
 package flatset.commands;
 
-import flatset.Flat;
-import java.util.HashSet;
+import flatset.storage.FlatRepository;
 
 /**
  * Интерфейс, представляющий команду для работы с коллекцией квартир.
  * Все конкретные команды должны реализовывать этот интерфейс.
+ * Менеджер команд выполняет команду под блокировкой хранилища, которую задаёт {@link #access()}.
  */
 public interface Command {
+    /**
+     * Вид доступа команды к хранилищу.
+     */
+    enum Access {
+        /** Команда только читает коллекцию и выполняется под блокировкой чтения, параллельно с другими читателями */
+        READ,
+        /** Команда изменяет коллекцию и выполняется целиком под блокировкой записи */
+        WRITE,
+        /** Команда сама захватывает блокировки (например, не удерживает их во время ввода пользователя) */
+        NONE
+    }
+
     /**
      * Выполняет действие команды над указанной коллекцией квартир.
      *
-     * @param flatSet коллекция квартир, над которой выполняется команда
+     * @param flats коллекция квартир, над которой выполняется команда
      * @param argument аргумент команды (может быть пустой строкой, если команда не требует аргументов)
      * @throws IllegalArgumentException если аргумент команды некорректен
      * @throws IllegalStateException если состояние коллекции не позволяет выполнить команду
      */
-    void execute(HashSet<Flat> flatSet, String argument);
-}
\ No newline at end of file
+    void execute(FlatRepository flats, String argument);
+
+    /**
+     * Выполняет команду в сессии клиента. Команды, хранящие состояние между вызовами,
+     * переопределяют этот метод и держат состояние в сессии, а не в полях команды:
+     * один объект команды обслуживает всех клиентов.
+     *
+     * @param flats коллекция квартир, над которой выполняется команда
+     * @param argument аргумент команды
+     * @param session сессия клиента, отправившего команду
+     */
+    default void execute(FlatRepository flats, String argument, CommandSession session) {
+        execute(flats, argument);
+    }
+
+    /**
+     * @return вид доступа команды к хранилищу; по умолчанию команда считается изменяющей
+     */
+    default Access access() {
+        return Access.WRITE;
+    }
+
+    /**
+     * Сообщает, будет ли команда с таким аргументом запрашивать данные с консоли.
+     * Такие команды нельзя выполнять без консоли (например, в режиме сервера).
+     *
+     * @param argument аргумент команды
+     * @return true, если команда будет читать System.in
+     */
+    default boolean needsConsole(String argument) {
+        return false;
+    }
+}
@@ -1,8 +1,8 @@
 package flatset.commands;
 
-import flatset.Flat;
+import flatset.storage.FlatRepository;
+import flatset.storage.Journal;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 
 /**
@@ -11,15 +11,28 @@ import java.util.Map;
  */
 public class CommandManager {
     private final Map<String, Command> commands = new HashMap<>();
-    private final HashSet<Flat> flatSet;
+    private final FlatRepository flats;
+    private final Journal journal;
+    /** Сессия консоли и пакетного режима */
+    private final CommandSession session = new CommandSession();
     private boolean isRunning = true;
 
     /**
      * Создает менеджер команд для работы с указанной коллекцией квартир
-     * @param flatSet коллекция квартир для управления
+     * @param flats коллекция квартир для управления
      */
-    public CommandManager(HashSet<Flat> flatSet) {
-        this.flatSet = flatSet;
+    public CommandManager(FlatRepository flats) {
+        this(flats, null);
+    }
+
+    /**
+     * Создает менеджер команд для работы с указанной коллекцией квартир и её журналом изменений
+     * @param flats коллекция квартир для управления
+     * @param journal журнал изменений коллекции (может быть null, если журнал отключён)
+     */
+    public CommandManager(FlatRepository flats, Journal journal) {
+        this.flats = flats;
+        this.journal = journal;
         initializeCommands();
     }
 
@@ -29,11 +42,20 @@ public class CommandManager {
     private void initializeCommands() {
         registerCommand("help", new HelpCommand());
         registerCommand("info", new InfoCommand());
+        registerCommand("stats", new StatsCommand());
         registerCommand("show", new ShowCommand());
+        registerCommand("filter", new FilterCommand());
+        registerCommand("nearest", new NearestCommand());
+        registerCommand("within", new WithinCommand());
+        registerCommand("range", new RangeCommand());
+        registerCommand("top", new TopCommand());
         registerCommand("add", new AddCommand());
         registerCommand("remove_by_id", new RemoveByIdCommand());
         registerCommand("clear", new ClearCommand());
         registerCommand("save", new SaveCommand());
+        registerCommand("save_snapshot", new SaveSnapshotCommand());
+        registerCommand("load_snapshot", new LoadSnapshotCommand(journal));
+        registerCommand("compact", new CompactCommand(journal));
 
         // Условные операции
         registerCommand("add_if_min", new AddIfMinCommand());
@@ -50,7 +72,7 @@ public class CommandManager {
         registerCommand("print_field_descending_house", new PrintFieldDescendingHouseCommand());
 
         // Системные операции
-        registerCommand("execute_script", new ExecuteScriptCommand());
+        registerCommand("execute_script", new ExecuteScriptCommand(this));
         registerCommand("exit", (set, arg) -> isRunning = false);
     }
 
@@ -68,16 +90,37 @@ public class CommandManager {
      * @param input строка с командой и аргументами
      */
     public void executeCommand(String input) {
-        String[] parts = input.split(" ", 2);
-        String commandName = parts[0].toLowerCase();
-        String argument = parts.length > 1 ? parts[1] : "";
+        compile(input).execute(flats);
+    }
+
+    /**
+     * Выполняет ранее разобранную команду
+     * @param command разобранная команда
+     */
+    public void execute(CompiledCommand command) {
+        command.execute(flats);
+    }
 
-        Command command = commands.get(commandName);
-        if (command != null) {
-            command.execute(flatSet, argument);
-        } else {
-            System.out.println("Unknown command: " + commandName);
-        }
+    /**
+     * Разбирает строку ввода в команду и аргумент, не выполняя её; команда выполнится в сессии консоли
+     * @param input строка с командой и аргументами
+     * @return разобранная команда (для неизвестного имени {@link CompiledCommand#isKnown()} возвращает false)
+     */
+    public CompiledCommand compile(String input) {
+        return compile(input, session);
+    }
+
+    /**
+     * Разбирает строку ввода в команду, которая выполнится в указанной сессии клиента
+     * @param input строка с командой и аргументами
+     * @param session сессия клиента
+     * @return разобранная команда (для неизвестного имени {@link CompiledCommand#isKnown()} возвращает false)
+     */
+    public CompiledCommand compile(String input, CommandSession session) {
+        int space = input.indexOf(' ');
+        String commandName = (space < 0 ? input : input.substring(0, space)).toLowerCase();
+        String argument = space < 0 ? "" : input.substring(space + 1);
+        return new CompiledCommand(commandName, commands.get(commandName), argument, session);
     }
 
     /**
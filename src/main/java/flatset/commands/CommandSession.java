@@ -0,0 +1,56 @@
+package flatset.commands;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Состояние одного клиента между командами (например, позиция постраничного просмотра {@code show next}).
+ * Консоль и пакетный режим работают в сессии менеджера команд, каждое соединение сервера — в своей,
+ * поэтому команды с состоянием могут объявлять доступ {@link Command.Access#READ} и выполняться параллельно.
+ * Команды одной сессии выполняются последовательно, поэтому сессия не синхронизирована.
+ * Сессия сервера и пакетного режима не интерактивна: команды, которые читают аргументы с консоли
+ * ({@link CompiledCommand#needsConsole()}), в ней отклоняются, в том числе в строках скриптов.
+ */
+public final class CommandSession {
+    private final Map<Class<?>, Object> states = new HashMap<>();
+    private final boolean interactive;
+
+    /**
+     * Создаёт сессию консоли.
+     */
+    public CommandSession() {
+        this(true);
+    }
+
+    /**
+     * @param interactive может ли команда читать недостающие аргументы с консоли
+     */
+    public CommandSession(boolean interactive) {
+        this.interactive = interactive;
+    }
+
+    /**
+     * @return true, если команды сессии могут читать недостающие аргументы с консоли
+     */
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /**
+     * Возвращает состояние указанного типа, создавая его при первом обращении.
+     *
+     * @param type класс состояния (обычно закрытый класс команды)
+     * @param factory создаёт начальное состояние
+     * @param <T> тип состояния
+     * @return состояние сессии
+     */
+    public <T> T state(Class<T> type, Supplier<? extends T> factory) {
+        Object state = states.get(type);
+        if (state == null) {
+            state = factory.get();
+            states.put(type, state);
+        }
+        return type.cast(state);
+    }
+}
@@ -0,0 +1,49 @@
+package flatset.commands;
+
+import flatset.storage.FlatRepository;
+import flatset.storage.Journal;
+import flatset.utils.FlatSnapshot;
+
+import java.nio.file.Path;
+
+/**
+ * Команда уплотнения журнала: сохраняет коллекцию в базовый снимок журнала ({@link Journal#getBaseSnapshot()},
+ * файл {@value FlatSnapshot#DEFAULT_SNAPSHOT_FILE} в каталоге журнала) и очищает журнал изменений.
+ * После уплотнения старт выполняется из нового снимка без проигрывания журнала.
+ */
+public class CompactCommand implements Command {
+    private final Journal journal;
+
+    /**
+     * @param journal журнал изменений коллекции (может быть null, если журнал отключён)
+     */
+    public CompactCommand(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Выполняет уплотнение журнала.
+     * Журнал очищается только после того, как снимок успешно записан на диск.
+     *
+     * @param flats Коллекция квартир, сохраняемая в снимок.
+     * @param argument Не используется в данной команде.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        if (journal == null) {
+            System.out.println("Journal is disabled - nothing to compact.");
+            return;
+        }
+
+        try {
+            long journalSize = journal.size();
+            Path snapshot = journal.getBaseSnapshot();
+            int saved = FlatSnapshot.saveToFile(flats, snapshot.toString());
+            journal.truncate();
+            System.out.println("Compacted " + journalSize + " byte(s) of journal into a snapshot of "
+                    + saved + " apartment(s) (" + snapshot + ")");
+        } catch (Exception e) {
+            System.err.println("Error compacting the journal: " + e.getMessage());
+        }
+    }
+}
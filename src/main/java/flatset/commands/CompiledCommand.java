@@ -0,0 +1,78 @@
+package flatset.commands;
+
+import flatset.storage.FlatRepository;
+
+/**
+ * Разобранная строка ввода: имя команды, найденный объект команды, аргумент и сессия клиента.
+ * Строка разбирается один раз в {@link CommandManager#compile(String)},
+ * после чего команду можно выполнять без повторного разбора и поиска.
+ */
+public final class CompiledCommand {
+    private final String name;
+    private final Command command;
+    private final String argument;
+    private final CommandSession session;
+
+    CompiledCommand(String name, Command command, String argument, CommandSession session) {
+        this.name = name;
+        this.command = command;
+        this.argument = argument;
+        this.session = session;
+    }
+
+    /**
+     * @return имя команды в нижнем регистре
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return аргумент команды (пустая строка, если аргумента нет)
+     */
+    public String getArgument() {
+        return argument;
+    }
+
+    /**
+     * @return true, если команда с таким именем зарегистрирована
+     */
+    public boolean isKnown() {
+        return command != null;
+    }
+
+    /**
+     * @return true, если команда будет запрашивать данные с консоли
+     */
+    public boolean needsConsole() {
+        return command != null && command.needsConsole(argument);
+    }
+
+    /**
+     * Выполняет команду над коллекцией в сессии, для которой она разобрана, под блокировкой, которую требует команда;
+     * для незарегистрированной команды выводит сообщение об ошибке.
+     *
+     * @param flats коллекция квартир
+     */
+    public void execute(FlatRepository flats) {
+        if (command == null) {
+            System.out.println("Unknown command: " + name);
+            return;
+        }
+        switch (command.access()) {
+            case READ:
+                flats.read(() -> run(flats));
+                break;
+            case WRITE:
+                flats.write(() -> run(flats));
+                break;
+            default:
+                run(flats);
+        }
+    }
+
+    private Void run(FlatRepository flats) {
+        command.execute(flats, argument, session);
+        return null;
+    }
+}
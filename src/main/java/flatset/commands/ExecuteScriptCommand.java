@@ -1,45 +1,125 @@
 package flatset.commands;
 
-import java.util.HashSet;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
-import flatset.Flat;
+import java.util.HashSet;
+import java.util.Set;
+import flatset.storage.FlatRepository;
 
 /**
  * Команда для выполнения скрипта из файла.
  * Скрипт представляет собой последовательность команд, записанных построчно.
+ * Файл читается потоково, без загрузки целиком в память; каждая строка один раз разбирается
+ * в {@link CompiledCommand} тем же менеджером команд, что обслуживает консоль,
+ * поэтому команды не создаются заново на каждый вызов скрипта.
+ * Повторный вход в скрипт, который уже выполняется (в том числе через цепочку скриптов), пропускается.
+ * Команда exit внутри скрипта завершает только сам скрипт.
+ * Строки, которым нужен ввод с консоли, в неинтерактивной сессии (сервер, пакетный режим) пропускаются
+ * с ошибкой: иначе они заблокировали бы поток, ожидая ввода, которого не будет.
  */
 public class ExecuteScriptCommand implements Command {
+    /** Флаг тихого режима: команды не выводятся перед выполнением */
+    public static final String QUIET_FLAG = "-q";
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final CommandManager manager;
+    /** Скрипты, выполняющиеся в данный момент (канонические пути) */
+    private final Set<Path> running = new HashSet<>();
+
+    /**
+     * @param manager менеджер команд, через который выполняются строки скрипта
+     */
+    public ExecuteScriptCommand(CommandManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Строки скрипта блокируют хранилище по отдельности.
+     */
+    @Override
+    public Access access() {
+        return Access.NONE;
+    }
 
     /**
      * Выполняет команды из указанного скрипта (текстового файла).
      *
-     * @param flatSet Коллекция квартир, к которой применяются команды из скрипта.
-     * @param argument Путь к файлу скрипта. Ожидается, что каждая строка файла — отдельная команда.
+     * @param flats Коллекция квартир, к которой применяются команды из скрипта.
+     * @param argument Путь к файлу скрипта, перед которым может стоять флаг -q (тихий режим).
+     *                 Ожидается, что каждая строка файла — отдельная команда.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        execute(flats, argument, new CommandSession());
+    }
+
+    /**
+     * Выполняет команды скрипта в сессии клиента, запустившего скрипт.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument, CommandSession session) {
+        String fileName = argument.trim();
+        boolean quiet = false;
+        if (fileName.startsWith(QUIET_FLAG + " ")) {
+            quiet = true;
+            fileName = fileName.substring(QUIET_FLAG.length()).trim();
+        }
+        if (fileName.isEmpty()) {
+            System.err.println("Usage: execute_script [-q] filename");
+            return;
+        }
+
+        Path script;
         try {
-            List<String> lines = Files.readAllLines(Paths.get(argument));
+            script = Paths.get(fileName).toRealPath();
+        } catch (Exception e) {
+            System.err.println("Script execution failed: " + e.getMessage());
+            return;
+        }
+        if (!running.add(script)) {
+            System.err.println("Recursive call of script " + script + " skipped.");
+            return;
+        }
 
-            CommandManager tempManager = new CommandManager(flatSet);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(script), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            run(flats, reader, quiet, session);
+        } catch (IOException e) {
+            System.err.println("Script execution failed: " + e.getMessage());
+        } finally {
+            running.remove(script);
+        }
+    }
 
-            for (String line : lines) {
-                if (line.trim().isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
+    private void run(FlatRepository flats, BufferedReader reader, boolean quiet, CommandSession session) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#") || line.trim().isEmpty()) {
+                continue;
+            }
 
-                try {
+            CompiledCommand command = manager.compile(line, session);
+            if (command.getName().equals("exit")) {
+                return;
+            }
+            if (command.needsConsole() && !session.isInteractive()) {
+                System.err.println("Interactive input is not available here, line skipped: " + line);
+                continue;
+            }
+            try {
+                if (!quiet) {
                     System.out.println("Executing: " + line);
-                    tempManager.executeCommand(line);
-                } catch (Exception e) {
-                    System.err.println("Error executing the command: " + line);
-                    System.err.println("Error: " + e.getMessage());
                 }
+                command.execute(flats);
+            } catch (Exception e) {
+                System.err.println("Error executing the command: " + line);
+                System.err.println("Error: " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.err.println("Script execution failed: " + e.getMessage());
         }
     }
 }
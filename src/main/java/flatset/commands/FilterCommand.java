@@ -0,0 +1,52 @@
+package flatset.commands;
+
+import flatset.query.FlatQuery;
+import flatset.storage.FlatRepository;
+import flatset.utils.ConsoleWriter;
+import flatset.utils.FlatFormatter;
+
+import java.io.PrintWriter;
+
+/**
+ * Команда для вывода квартир, удовлетворяющих условию.
+ * Условие записывается на языке {@link FlatQuery}, например
+ * {@code filter rooms = 3 and view = PARK and metro < 20}. Квартиры выводятся в порядке возрастания ID,
+ * после них — количество подходящих и проверенных квартир и использованный индекс.
+ */
+public class FilterCommand implements Command {
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду фильтрации.
+     *
+     * @param flats Коллекция квартир.
+     * @param argument Условие фильтра.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        if (argument == null || argument.trim().isEmpty()) {
+            System.err.println("Usage: filter <condition>, e.g. filter rooms = 3 and view = PARK and metro < 20");
+            return;
+        }
+        FlatQuery query;
+        try {
+            query = FlatQuery.parse(argument);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid filter: " + e.getMessage());
+            return;
+        }
+
+        PrintWriter out = ConsoleWriter.open();
+        FlatQuery.Result result = query.execute(flats, flat -> {
+            FlatFormatter.write(out, flat);
+            out.println();
+        });
+        out.println("Matched " + result.matched + " of " + result.scanned + " scanned (" + result.plan
+                + ", collection size: " + flats.size() + ").");
+        out.flush();
+    }
+}
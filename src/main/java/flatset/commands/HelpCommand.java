@@ -1,30 +1,43 @@
 package flatset.commands;
 
-import java.util.HashSet;
-import flatset.Flat;
+import flatset.storage.FlatRepository;
 
 /**
  * Команда для вывода справки по доступным командам.
  */
 public class HelpCommand implements Command {
 
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
     /**
      * Выполняет команду вывода справочной информации о доступных командах программы.
      *
-     * @param flatSet Коллекция квартир (не используется в данной команде, но требуется по интерфейсу).
+     * @param flats Коллекция квартир (не используется в данной команде, но требуется по интерфейсу).
      * @param argument Не используется.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         System.out.println("\n=== Available Commands ===");
         System.out.println("  help                              - Output the list of commands");
         System.out.println("  info                              - Output the collection info");
-        System.out.println("  show                              - Display the list of flats in the collection");
+        System.out.println("  stats                             - Output area, rooms and metro statistics overall and by view");
+        System.out.println("  show [offset [limit]] | show next - Display the flats in ID order, whole or page by page");
+        System.out.println("  filter condition                  - Display the flats that match a condition");
+        System.out.println("  nearest x y k                     - Display the k flats closest to the point (x, y)");
+        System.out.println("  within x1 y1 x2 y2                - Display the flats inside a rectangle");
+        System.out.println("  range area|metro lo hi            - Display the flats whose area or metro time is in [lo, hi]");
+        System.out.println("  top area|metro k [asc|desc]       - Display the k flats with the largest (or smallest) value");
         System.out.println("  add {name,x,y,area,rooms,new,transport,view} - Add a flat");
         System.out.println("  remove_by_id id                   - Remove a flat by ID");
         System.out.println("  clear                             - Clear the collection");
         System.out.println("  save [filename]                   - Save the collection to a file (default: flats.json)");
-        System.out.println("  execute_script filename           - Execute a list of commands from a file");
+        System.out.println("  save_snapshot [filename]          - Save a binary snapshot for fast startup (default: flats.snapshot)");
+        System.out.println("  load_snapshot [filename]          - Replace the collection with a binary snapshot (default: flats.snapshot)");
+        System.out.println("  compact                           - Fold the change journal into a new snapshot");
+        System.out.println("  execute_script [-q] filename      - Execute a list of commands from a file (-q: do not echo them)");
 
         System.out.println("\n=== Conditional Commands ===");
         System.out.println("  add_if_min {flat_data}            - Add a flat if its value is less than all others in the collection");
@@ -47,5 +60,7 @@ public class HelpCommand implements Command {
         System.out.println("* {flat_data} format: {name,x,y,area,numberOfRooms,isNew,timeToMetroByTransport,view}");
         System.out.println("* {json_data} format: {\"field\":value} pairs (e.g., {\"name\":\"New Name\",\"area\":100})");
         System.out.println("* View options: STREET, PARK, BAD, GOOD, TERRIBLE");
+        System.out.println("* filter condition: field op value joined with and/or/not and parentheses; op is = != < <= > >=");
+        System.out.println("  fields: id, name, x, y, area, rooms, new, metro, view, house, house.name, house.year, house.flats");
     }
 }
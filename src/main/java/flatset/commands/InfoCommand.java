@@ -1,29 +1,94 @@
 package flatset.commands;
 
-import flatset.Flat;
-import java.time.LocalDateTime;
+import flatset.storage.CollectionStatistics;
+import flatset.storage.FlatRepository;
+import flatset.storage.MemoryReport;
+import flatset.utils.MemoryLayout;
+
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.HashSet;
 
 /**
  * Команда для вывода информации о коллекции квартир.
  */
 public class InfoCommand implements Command {
 
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
     /**
      * Выполняет команду отображения общей информации о коллекции:
-     * тип, время запроса, количество элементов и примерный объём в памяти.
+     * тип, время и длительность загрузки, количество элементов, объём в памяти с разбивкой по составляющим
+     * (см. {@link MemoryReport}) и основные показатели из статистики коллекции. Коллекция не обходится:
+     * память квартир измеряется по выборке.
      *
-     * @param flatSet Коллекция квартир, о которой выводится информация.
+     * @param flats Коллекция квартир, о которой выводится информация.
      * @param argument Не используется в данной команде.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        CollectionStatistics statistics = flats.getStatistics();
+        CollectionStatistics.Group total = statistics.getTotal();
+        String loadedAt = statistics.getLoadedAt().atZone(ZoneId.systemDefault()).format(formatter);
+        String source = statistics.getLoadSource() == null
+                ? "started with an empty collection"
+                : String.format("loaded from %s in %.1f ms", statistics.getLoadSource(), statistics.getLoadNanos() / 1e6);
+
         System.out.println("=== Collection Information ===");
-        System.out.println("Type: " + flatSet.getClass().getSimpleName());
-        System.out.println("Initialization time: " + LocalDateTime.now().format(formatter));
-        System.out.println("Number of elements: " + flatSet.size());
-        System.out.println("Memory size: ~" + (flatSet.size() * 128) + " bytes");
+        System.out.println("Type: " + flats.getClass().getSimpleName());
+        System.out.println("Initialization time: " + loadedAt + " (" + source + ")");
+        System.out.println("Number of elements: " + flats.size());
+        printMemory(flats.measureMemory());
+        System.out.println("New flats: " + StatsCommand.newShare(total));
+        System.out.println("Area min/avg/max: " + StatsCommand.summary(total.getArea(), total.getCount(), true));
+        System.out.println("Rooms min/avg/max: " + StatsCommand.summary(total.getRooms(), total.getCount(), true));
+        System.out.println("Metro min/avg/max: " + StatsCommand.summary(total.getMetro(), total.getCount(), false));
+        System.out.println("Type 'stats' to see the statistics by view.");
+    }
+
+    private static void printMemory(MemoryReport report) {
+        MemoryLayout layout = report.getLayout();
+        String sample = report.isSampled()
+                ? String.format("flats sampled: %d of %d", report.getSampledFlats(), report.getFlats())
+                : "all flats measured";
+        System.out.printf("Memory size: %s (%s; %d-byte headers, %d-byte references)%n", formatBytes(report.getTotal()),
+                sample, layout.getObjectHeader(), layout.getReferenceSize());
+        for (MemoryReport.Component component : MemoryReport.Component.values()) {
+            if (!component.isIndex()) {
+                printComponent("  ", component.getLabel(), report.get(component), report.getFlats());
+            }
+        }
+        printComponent("  ", "indexes", report.getIndexTotal(), report.getFlats());
+        for (MemoryReport.Component component : MemoryReport.Component.values()) {
+            if (component.isIndex()) {
+                printComponent("    ", component.getLabel(), report.get(component), report.getFlats());
+            }
+        }
+    }
+
+    private static void printComponent(String indent, String label, long bytes, int flats) {
+        String perFlat = flats == 0 ? "" : String.format("  (%.1f bytes/flat)", (double) bytes / flats);
+        System.out.printf("%s%-" + (18 - indent.length()) + "s %10s%s%n", indent, label + ":", formatBytes(bytes), perFlat);
+    }
+
+    /**
+     * @param bytes размер в байтах
+     * @return размер в удобных единицах (B, KiB, MiB, GiB)
+     */
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = {"KiB", "MiB", "GiB"};
+        double value = bytes / 1024.0;
+        int unit = 0;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
     }
 }
@@ -0,0 +1,94 @@
+package flatset.commands;
+
+import flatset.Flat;
+import flatset.storage.FlatRepository;
+import flatset.storage.Journal;
+import flatset.utils.FlatSnapshot;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+/**
+ * Команда для загрузки коллекции из двоичного снимка.
+ * Текущее содержимое коллекции заменяется содержимым снимка прямо в рабочем хранилище
+ * ({@link FlatSnapshot#loadInto}), без второй копии коллекции с индексами.
+ * Загрузка не записывается в журнал по квартире: как и при уплотнении ({@link CompactCommand}),
+ * снимок становится новой базой журнала, а журнал очищается, поэтому следующий старт снова
+ * занимает время чтения снимка, а не проигрывания миллионов записей.
+ */
+public class LoadSnapshotCommand implements Command {
+    private final Journal journal;
+
+    /**
+     * @param journal журнал изменений коллекции (может быть null, если журнал отключён)
+     */
+    public LoadSnapshotCommand(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Выполняет команду загрузки коллекции из двоичного снимка.
+     * Если снимок не удалось прочитать, коллекция не изменяется.
+     *
+     * @param flats Коллекция квартир, содержимое которой заменяется.
+     * @param argument Имя файла снимка. Если пустое, используется значение по умолчанию.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        String filename = argument.trim().isEmpty() ? FlatSnapshot.DEFAULT_SNAPSHOT_FILE : argument.trim();
+
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
+        int loaded;
+        // Журнал, подключённый к коллекции, отключается на время загрузки и затем получает новую базу
+        boolean journaled = journal != null && flats.removeListener(journal);
+        try {
+            loaded = FlatSnapshot.loadInto(flats, filename);
+        } catch (FileNotFoundException e) {
+            System.err.println("Snapshot file not found: " + filename);
+            return;
+        } catch (Exception e) {
+            System.err.println("Error loading snapshot: " + e.getMessage());
+            return;
+        } finally {
+            if (journaled) {
+                flats.addListener(journal);
+            }
+        }
+        flats.getStatistics().recordLoad(filename, startedAt, System.nanoTime() - started);
+        if (journaled) {
+            rebaseJournal(flats, filename);
+        }
+        System.out.println("Successfully loaded " + loaded + " apartment(s) from " + filename);
+    }
+
+    /**
+     * Делает загруженное состояние базой журнала: базовый снимок ({@link Journal#getBaseSnapshot()}),
+     * из которого выполняется старт, и пустой журнал. Если загружен сам базовый снимок, он уже содержит это состояние.
+     * Если сменить базу не удалось, загруженная коллекция записывается в журнал целиком.
+     */
+    private void rebaseJournal(FlatRepository flats, String filename) {
+        try {
+            Path base = journal.getBaseSnapshot().toAbsolutePath().normalize();
+            if (Paths.get(filename).toAbsolutePath().normalize().equals(base)) {
+                // При старте снимок берётся, только если он не старше JSON-файла
+                Files.setLastModifiedTime(base, FileTime.from(Instant.now()));
+            } else {
+                FlatSnapshot.saveToFile(flats, base.toString());
+            }
+            journal.truncate();
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to make the snapshot the journal base, journaling the collection instead - "
+                    + e.getMessage());
+            journal.onClear();
+            for (Flat flat : flats) {
+                journal.onAdd(flat);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package flatset.commands;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.storage.FlatRepository;
+import flatset.utils.ConsoleWriter;
+import flatset.utils.FlatFormatter;
+
+import java.io.PrintWriter;
+
+/**
+ * Команда для вывода квартир, ближайших к точке.
+ * Использует пространственный индекс хранилища, поэтому не обходит всю коллекцию.
+ */
+public class NearestCommand implements Command {
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду поиска ближайших квартир.
+     * Квартиры выводятся в порядке возрастания расстояния до точки, при равном расстоянии — по ID.
+     *
+     * @param flats Коллекция квартир.
+     * @param argument Строка "x y k": координаты точки и количество квартир.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        String[] args = argument == null ? new String[0] : argument.trim().split("\\s+");
+        if (args.length != 3) {
+            System.err.println("Usage: nearest x y k");
+            return;
+        }
+        int x;
+        int y;
+        int k;
+        try {
+            x = Integer.parseInt(args[0]);
+            y = Integer.parseInt(args[1]);
+            k = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            System.err.println("Coordinates and k must be integers: " + argument.trim());
+            return;
+        }
+        if (k <= 0) {
+            System.err.println("k must be a positive integer: " + k);
+            return;
+        }
+
+        long[] ids = flats.getSpatialIndex().nearest(x, y, k);
+        if (ids.length == 0) {
+            System.out.println("Collection is empty.");
+            return;
+        }
+        PrintWriter out = ConsoleWriter.open();
+        for (long id : ids) {
+            Flat flat = flats.get(id);
+            Coordinates coordinates = flat.getCoordinates();
+            double distance = Math.hypot((double) coordinates.getX() - x, (double) coordinates.getY() - y);
+            out.printf("%.2f  ", distance);
+            FlatFormatter.write(out, flat);
+            out.println();
+        }
+        out.println("Found " + ids.length + " nearest flat(s) to (" + x + ", " + y + ").");
+        out.flush();
+    }
+}
@@ -1,10 +1,10 @@
 package flatset.commands;
 
-import flatset.Flat;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import flatset.storage.FlatRepository;
+import flatset.storage.RoomsIndex;
+import flatset.utils.ConsoleWriter;
+
+import java.io.PrintWriter;
 
 /**
  * Команда для вывода количества комнат во всех квартирах в порядке возрастания.
@@ -12,43 +12,52 @@ import java.util.stream.Collectors;
  */
 public class PrintFieldAscendingNumberOfRoomsCommand implements Command {
 
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
     /**
      * Выполняет команду, которая отображает количество комнат в каждой квартире
      * в порядке возрастания, а также выводит ID квартир с соответствующим количеством комнат.
      * Значения форматируются с правильными окончаниями слов.
+     * Группы берутся из индекса по количеству комнат, который хранилище поддерживает при изменениях,
+     * а ID каждой группы записываются в вывод прямо из индекса в порядке возрастания, без копирования и сортировки,
+     * поэтому время работы определяется объёмом вывода.
      *
-     * @param flatSet Коллекция квартир, из которой извлекаются значения количества комнат.
+     * @param flats Коллекция квартир, из которой извлекаются значения количества комнат.
      * @param argument Не используется в данной команде.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
-        Map<Long, List<Flat>> flatsByRooms = flatSet.stream()
-                .collect(Collectors.groupingBy(Flat::getNumberOfRooms));
+    public void execute(FlatRepository flats, String argument) {
+        RoomsIndex index = flats.getRoomsIndex();
 
-        if (flatsByRooms.isEmpty()) {
+        if (index.roomCounts().isEmpty()) {
             System.out.println("The collection contains no flats.");
             return;
         }
 
-        System.out.println("=== Number of Rooms (In Ascending Order) ===");
-
-        flatsByRooms.keySet().stream()
-                .sorted()
-                .forEach(rooms -> {
-                    System.out.print("- " + rooms + " room" +
-                            (rooms % 10 == 1 && rooms % 100 != 11 ? "s" :
-                                    (rooms % 10 >= 2 && rooms % 10 <= 4 && (rooms % 100 < 10 || rooms % 100 >= 20) ? "s" : "")));
-
-                    List<Flat> flats = flatsByRooms.get(rooms);
-                    System.out.print(": ");
-                    for (int i = 0; i < flats.size(); i++) {
-                        System.out.print(flats.get(i).getId());
-                        if (i < flats.size() - 1) {
-                            System.out.print(", ");
-                        }
-                    }
-
-                    System.out.println();
-                });
+        PrintWriter out = ConsoleWriter.open();
+        out.println("=== Number of Rooms (In Ascending Order) ===");
+
+        for (long rooms : index.roomCounts()) {
+            out.print("- " + rooms + " room" +
+                    (rooms % 10 == 1 && rooms % 100 != 11 ? "s" :
+                            (rooms % 10 >= 2 && rooms % 10 <= 4 && (rooms % 100 < 10 || rooms % 100 >= 20) ? "s" : "")));
+
+            out.print(": ");
+            boolean[] first = {true};
+            index.forEachWithRooms(rooms, id -> {
+                if (!first[0]) {
+                    out.print(", ");
+                }
+                out.print(id);
+                first[0] = false;
+                return true;
+            });
+
+            out.println();
+        }
+        out.flush();
     }
 }
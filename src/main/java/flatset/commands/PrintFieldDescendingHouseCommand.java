@@ -1,11 +1,10 @@
 package flatset.commands;
 
-import flatset.Flat;
-import flatset.House;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.List;
-import java.util.stream.Collectors;
+import flatset.storage.FlatRepository;
+import flatset.storage.HousePool;
+import flatset.utils.ConsoleWriter;
+
+import java.io.PrintWriter;
 
 /**
  * Команда для вывода информации о домах, связанных с квартирами,
@@ -13,32 +12,40 @@ import java.util.stream.Collectors;
  */
 public class PrintFieldDescendingHouseCommand implements Command {
 
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
     /**
      * Выполняет команду, которая отображает список домов, связанных с квартирами,
      * отсортированных в порядке убывания. Пропускает квартиры без указанных домов.
+     * Дом выводится столько раз, сколько квартир на него ссылается. Различные дома обходятся
+     * по упорядоченному пулу домов хранилища, поэтому сортировка квартир не требуется.
      *
-     * @param flatSet Коллекция квартир, содержащих дома.
+     * @param flats Коллекция квартир, содержащих дома.
      * @param argument Не используется в данной команде.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
-        List<House> houses = flatSet.stream()
-                .map(Flat::getHouse)
-                .filter(house -> house != null)
-                .sorted(Comparator.reverseOrder())
-                .collect(Collectors.toList());
+    public void execute(FlatRepository flats, String argument) {
+        HousePool houses = flats.getHousePool();
 
-        if (houses.isEmpty()) {
+        if (houses.size() == 0) {
             System.out.println("There are no houses in the collection.");
             return;
         }
 
-        System.out.println("=== Houses (in descending order) ===");
-        houses.forEach(house ->
-                System.out.printf("- %s (Year: %d, Flats/Floors: %d)%n",
-                        house.getName(),
-                        house.getYear(),
-                        house.getNumberOfFlatsOnFloor())
-        );
+        PrintWriter out = ConsoleWriter.open();
+        out.println("=== Houses (in descending order) ===");
+        houses.forEachDescending((house, count) -> {
+            String line = String.format("- %s (Year: %d, Flats/Floors: %d)",
+                    house.getName(),
+                    house.getYear(),
+                    house.getNumberOfFlatsOnFloor());
+            for (int i = 0; i < count; i++) {
+                out.println(line);
+            }
+        });
+        out.flush();
     }
 }
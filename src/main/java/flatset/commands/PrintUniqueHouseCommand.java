@@ -1,29 +1,31 @@
 package flatset.commands;
 
-import flatset.Flat;
 import flatset.House;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import flatset.storage.FlatRepository;
+import java.util.Collection;
 
 /**
  * Команда для вывода уникальных домов, указанных в квартиках коллекции.
  */
 public class PrintUniqueHouseCommand implements Command {
 
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
     /**
      * Выполняет команду, которая отображает уникальные дома,
      * связанные с квартирами в коллекции. Повторяющиеся дома исключаются.
+     * Дома берутся из пула домов хранилища, поэтому время работы зависит
+     * только от количества различных домов, а не от количества квартир.
      *
-     * @param flatSet Коллекция квартир, из которой извлекаются дома.
+     * @param flats Коллекция квартир, из которой извлекаются дома.
      * @param argument Не используется в данной команде.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
-        Set<House> uniqueHouses = flatSet.stream()
-                .map(Flat::getHouse)
-                .filter(house -> house != null)
-                .collect(Collectors.toSet());
+    public void execute(FlatRepository flats, String argument) {
+        Collection<House> uniqueHouses = flats.getHousePool().houses();
 
         if (uniqueHouses.isEmpty()) {
             System.out.println("There are no houses in the collection.");
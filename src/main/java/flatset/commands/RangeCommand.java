@@ -0,0 +1,91 @@
+package flatset.commands;
+
+import flatset.storage.FlatRepository;
+import flatset.storage.RangeIndex;
+import flatset.utils.ConsoleWriter;
+import flatset.utils.FlatFormatter;
+
+import java.io.PrintWriter;
+
+/**
+ * Команда для вывода квартир, у которых площадь или время до метро попадает в диапазон.
+ * Отвечает по упорядоченному индексу хранилища за O(log n + k), квартиры выводятся по возрастанию поля.
+ */
+public class RangeCommand implements Command {
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду поиска по диапазону. Границы включаются.
+     *
+     * @param flats Коллекция квартир.
+     * @param argument Строка "field lo hi", где field — area или metro.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        String[] args = argument == null ? new String[0] : argument.trim().split("\\s+");
+        if (args.length != 3) {
+            System.err.println("Usage: range area|metro lo hi");
+            return;
+        }
+        RangeIndex index = indexFor(flats, args[0]);
+        if (index == null) {
+            return;
+        }
+        double lo;
+        double hi;
+        try {
+            lo = Double.parseDouble(args[1]);
+            hi = Double.parseDouble(args[2]);
+        } catch (NumberFormatException e) {
+            lo = hi = Double.NaN;
+        }
+        if (Double.isNaN(lo) || Double.isNaN(hi)) {
+            System.err.println("Bounds must be numbers: " + args[1] + " " + args[2]);
+            return;
+        }
+
+        long low;
+        long high;
+        if (index == flats.getAreaIndex()) {
+            low = (long) Math.ceil(lo);
+            high = (long) Math.floor(hi);
+        } else {
+            low = RangeIndex.sortableKey(lo);
+            high = RangeIndex.sortableKey(hi);
+        }
+        PrintWriter out = ConsoleWriter.open();
+        long[] found = new long[1];
+        index.forEachInRange(low, high, id -> {
+            FlatFormatter.write(out, flats.get(id));
+            out.println();
+            found[0]++;
+            return true;
+        });
+        out.println("Found " + found[0] + " flat(s) with " + index.getField() + " in [" + args[1] + ", " + args[2] + "].");
+        out.flush();
+    }
+
+    /**
+     * Возвращает упорядоченный индекс по имени поля или выводит ошибку.
+     *
+     * @param flats хранилище
+     * @param field имя поля: area или metro (timeToMetroByTransport)
+     * @return индекс или null, если поле не индексируется
+     */
+    static RangeIndex indexFor(FlatRepository flats, String field) {
+        switch (field.toLowerCase()) {
+            case "area":
+                return flats.getAreaIndex();
+            case "metro":
+            case "timetometrobytransport":
+                return flats.getMetroIndex();
+            default:
+                System.err.println("Unknown field '" + field + "'. Indexed fields: area, metro");
+                return null;
+        }
+    }
+}
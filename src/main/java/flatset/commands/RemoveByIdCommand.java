@@ -1,7 +1,6 @@
 package flatset.commands;
 
-import flatset.Flat;
-import java.util.HashSet;
+import flatset.storage.FlatRepository;
 
 /**
  * Команда для удаления квартиры по её ID.
@@ -12,11 +11,11 @@ public class RemoveByIdCommand implements Command {
      * Выполняет команду удаления квартиры из коллекции по её ID.
      * Если квартира с таким ID не найдена, выводится соответствующее сообщение.
      *
-     * @param flatSet Коллекция квартир, из которой удаляется квартира.
+     * @param flats Коллекция квартир, из которой удаляется квартира.
      * @param argument Строка, содержащая ID квартиры для удаления.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         try {
             if (argument == null || argument.trim().isEmpty()) {
                 System.out.println("Error: ID is not defined. Usage: remove_by_id <id>");
@@ -24,9 +23,7 @@ public class RemoveByIdCommand implements Command {
             }
 
             long id = Long.parseLong(argument.trim());
-            boolean removed = flatSet.removeIf(flat -> flat.getId() == id);
-
-            if (removed) {
+            if (flats.removeById(id) != null) {
                 System.out.println("Apartment with ID " + id + " has been successfully removed.");
             } else {
                 System.out.println("No apartment found with ID " + id + ".");
@@ -1,63 +1,36 @@
 package flatset.commands;
 
-import flatset.Flat;
-import javax.json.Json;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObjectBuilder;
-import javax.json.JsonWriter;
-import java.io.FileOutputStream;
-import java.util.HashSet;
+import flatset.storage.FlatRepository;
+import flatset.utils.FlatSaver;
 
 /**
  * Команда для сохранения данных о квартирах в файл в формате JSON.
+ * Вместе с квартирами сохраняется наибольший выданный ID, чтобы ID удалённых квартир
+ * не переиспользовались после перезапуска.
  */
 public class SaveCommand implements Command {
     private static final String DEFAULT_FILENAME = "flats.json";
 
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
     /**
      * Выполняет команду сохранения коллекции квартир в файл в формате JSON.
      * Если имя файла не задано, используется имя файла по умолчанию.
+     * Файл заменяется атомарно, поэтому при сбое во время сохранения остаётся предыдущая версия.
      *
-     * @param flatSet Коллекция квартир, которые необходимо сохранить.
+     * @param flats Коллекция квартир, которые необходимо сохранить.
      * @param argument Имя файла для сохранения данных. Если пустое, используется значение по умолчанию.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         String filename = argument.isEmpty() ? DEFAULT_FILENAME : argument.trim();
 
-        try (FileOutputStream fos = new FileOutputStream(filename);
-             JsonWriter jsonWriter = Json.createWriter(fos)) {
-
-            JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-
-            for (Flat flat : flatSet) {
-                JsonObjectBuilder objectBuilder = Json.createObjectBuilder()
-                        .add("id", flat.getId())
-                        .add("name", flat.getName())
-                        .add("area", flat.getArea())
-                        .add("numberOfRooms", flat.getNumberOfRooms())
-                        .add("new", flat.isNew())
-                        .add("timeToMetroByTransport", flat.getTimeToMetroByTransport())
-                        .add("view", flat.getView().toString())
-                        .add("creationDate", flat.getCreationDate().toString());
-
-                objectBuilder.add("coordinates", Json.createObjectBuilder()
-                        .add("x", flat.getCoordinates().getX())
-                        .add("y", flat.getCoordinates().getY()));
-
-                if (flat.getHouse() != null) {
-                    objectBuilder.add("house", Json.createObjectBuilder()
-                            .add("name", flat.getHouse().getName())
-                            .add("year", flat.getHouse().getYear())
-                            .add("numberOfFlatsOnFloor", flat.getHouse().getNumberOfFlatsOnFloor()));
-                }
-
-                arrayBuilder.add(objectBuilder);
-            }
-
-            jsonWriter.writeArray(arrayBuilder.build());
-            System.out.println("Successfully saved " + flatSet.size() + " apartment(s) to " + filename);
-
+        try {
+            int saved = FlatSaver.saveToFile(flats, filename);
+            System.out.println("Successfully saved " + saved + " apartment(s) to " + filename);
         } catch (Exception e) {
             System.err.println("Error saving data: " + e.getMessage());
         }
@@ -0,0 +1,34 @@
+package flatset.commands;
+
+import flatset.storage.FlatRepository;
+import flatset.utils.FlatSnapshot;
+
+/**
+ * Команда для сохранения коллекции в компактный двоичный снимок.
+ * Снимок загружается значительно быстрее JSON и используется при старте, если он новее JSON-файла.
+ */
+public class SaveSnapshotCommand implements Command {
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду сохранения коллекции в двоичный снимок.
+     *
+     * @param flats Коллекция квартир, которые необходимо сохранить.
+     * @param argument Имя файла снимка. Если пустое, используется значение по умолчанию.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        String filename = argument.trim().isEmpty() ? FlatSnapshot.DEFAULT_SNAPSHOT_FILE : argument.trim();
+
+        try {
+            int saved = FlatSnapshot.saveToFile(flats, filename);
+            System.out.println("Successfully saved a snapshot of " + saved + " apartment(s) to " + filename);
+        } catch (Exception e) {
+            System.err.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+}
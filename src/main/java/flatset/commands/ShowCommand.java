@@ -1,29 +1,164 @@
 package flatset.commands;
 
 import flatset.Flat;
-import java.util.HashSet;
+import flatset.storage.FlatRepository;
+import flatset.utils.ConsoleWriter;
+import flatset.utils.FlatFormatter;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
 
 /**
- * Команда для отображения всех квартир в коллекции.
+ * Команда для отображения квартир коллекции.
+ * Квартиры выводятся в порядке возрастания ID. Поддерживается постраничный просмотр:
+ * {@code show offset [limit]} выводит страницу, начиная с позиции offset, а {@code show next}
+ * продолжает вывод после последней показанной квартиры (по ID, поэтому удаление или добавление
+ * квартир между страницами не приводит к пропускам и повторам). Позиция просмотра хранится в сессии клиента
+ * ({@link CommandSession}), поэтому клиенты сервера листают коллекцию независимо, а команда выполняется
+ * под блокировкой чтения.
+ * Вывод идёт через один большой буфер, квартиры форматируются сразу в него.
  */
 public class ShowCommand implements Command {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Позиция постраничного просмотра в сессии клиента.
+     */
+    private static final class Cursor {
+        boolean active;
+        long nextId;
+        long position;
+        int pageSize = DEFAULT_PAGE_SIZE;
+    }
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду отображения элементов коллекции.
+     * Без аргументов выводятся все элементы. Если коллекция пуста, выводится сообщение об этом.
+     * Без сессии клиента {@code show next} продолжать нечего.
+     *
+     * @param flats Коллекция квартир, элементы которой необходимо отобразить.
+     * @param argument Пусто, "offset [limit]" или "next".
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        execute(flats, argument, new CommandSession());
+    }
 
     /**
-     * Выполняет команду отображения всех элементов коллекции.
-     * Если коллекция пуста, выводится сообщение об этом.
+     * Выполняет команду, продолжая постраничный просмотр клиента.
      *
-     * @param flatSet Коллекция квартир, элементы которой необходимо отобразить.
-     * @param argument Аргумент команды (не используется в данном случае).
+     * @param flats Коллекция квартир, элементы которой необходимо отобразить.
+     * @param argument Пусто, "offset [limit]" или "next".
+     * @param session Сессия клиента, в которой хранится позиция просмотра.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
-        if (flatSet.isEmpty()) {
+    public void execute(FlatRepository flats, String argument, CommandSession session) {
+        Cursor cursor = session.state(Cursor.class, Cursor::new);
+        String[] args = argument == null || argument.trim().isEmpty() ? new String[0] : argument.trim().split("\\s+");
+        if (args.length > 2) {
+            System.err.println("Usage: show [offset [limit]] or show next");
+            return;
+        }
+        if (flats.isEmpty()) {
+            cursor.active = false;
             System.out.println("Collection is empty.");
+            return;
+        }
+
+        if (args.length == 0) {
+            cursor.active = false;
+            PrintWriter out = ConsoleWriter.open(OUTPUT_BUFFER_SIZE);
+            out.println("Elements of the collection:");
+            for (Flat flat : flats.ordered()) {
+                FlatFormatter.write(out, flat);
+                out.println();
+            }
+            out.flush();
+            return;
+        }
+
+        if (args[0].equalsIgnoreCase("next")) {
+            if (args.length > 1) {
+                int limit = parseLimit(args[1]);
+                if (limit <= 0) return;
+                cursor.pageSize = limit;
+            }
+            if (!cursor.active) {
+                System.out.println("No more elements. Use 'show offset [limit]' to start browsing.");
+                return;
+            }
+            showPage(flats, cursor, flats.fromId(cursor.nextId).iterator(), cursor.position);
+            return;
+        }
+
+        long offset;
+        try {
+            offset = Long.parseLong(args[0]);
+        } catch (NumberFormatException e) {
+            offset = -1;
+        }
+        if (offset < 0) {
+            System.err.println("Offset must be a non-negative integer: " + args[0]);
+            return;
+        }
+        if (args.length > 1) {
+            int limit = parseLimit(args[1]);
+            if (limit <= 0) return;
+            cursor.pageSize = limit;
+        }
+
+        Iterator<Flat> iterator = flats.ordered().iterator();
+        for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        showPage(flats, cursor, iterator, offset);
+    }
+
+    /**
+     * Выводит не более pageSize квартир из итератора и запоминает в курсоре, с какого ID продолжить.
+     */
+    private static void showPage(FlatRepository flats, Cursor cursor, Iterator<Flat> iterator, long position) {
+        PrintWriter out = ConsoleWriter.open(OUTPUT_BUFFER_SIZE);
+        int shown = 0;
+        long lastId = 0;
+        while (shown < cursor.pageSize && iterator.hasNext()) {
+            Flat flat = iterator.next();
+            FlatFormatter.write(out, flat);
+            out.println();
+            lastId = flat.getId();
+            shown++;
+        }
+
+        if (shown == 0) {
+            out.println("No elements at position " + position + " (collection size: " + flats.size() + ").");
         } else {
-            System.out.println("Elements of the collection:");
-            for (Flat flat : flatSet) {
-                System.out.println(flat);
+            out.println("Shown elements " + (position + 1) + "-" + (position + shown) + " of " + flats.size() + ".");
+        }
+        cursor.active = shown > 0 && iterator.hasNext();
+        if (cursor.active) {
+            cursor.nextId = lastId + 1;
+            cursor.position = position + shown;
+            out.println("Type 'show next' to see the next " + cursor.pageSize + ".");
+        }
+        out.flush();
+    }
+
+    private static int parseLimit(String value) {
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit > 0) {
+                return limit;
             }
+        } catch (NumberFormatException e) {
+            // сообщение ниже
         }
+        System.err.println("Limit must be a positive integer: " + value);
+        return -1;
     }
 }
@@ -0,0 +1,67 @@
+package flatset.commands;
+
+import flatset.View;
+import flatset.storage.CollectionStatistics;
+import flatset.storage.FlatRepository;
+
+/**
+ * Команда для вывода статистики коллекции по всем квартирам и по видам из окна.
+ * Значения берутся из {@link CollectionStatistics}, которая обновляется при каждом изменении,
+ * поэтому команда не обходит коллекцию.
+ */
+public class StatsCommand implements Command {
+    private static final String ROW_FORMAT = "%-8s %10s %7s  %-22s %-18s %s%n";
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду вывода статистики: для каждой группы количество квартир, доля новых
+     * и минимум / среднее / максимум площади, количества комнат и времени до метро.
+     *
+     * @param flats Коллекция квартир.
+     * @param argument Не используется.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        CollectionStatistics statistics = flats.getStatistics();
+        System.out.println("=== Collection Statistics ===");
+        System.out.printf(ROW_FORMAT, "Group", "Count", "New", "Area min/avg/max", "Rooms min/avg/max", "Metro min/avg/max");
+        printRow("All", statistics.getTotal());
+        for (View view : View.values()) {
+            printRow(view.name(), statistics.getByView(view));
+        }
+    }
+
+    private static void printRow(String name, CollectionStatistics.Group group) {
+        System.out.printf(ROW_FORMAT, name, group.getCount(), newShare(group),
+                summary(group.getArea(), group.getCount(), true),
+                summary(group.getRooms(), group.getCount(), true),
+                summary(group.getMetro(), group.getCount(), false));
+    }
+
+    /**
+     * @return доля новых квартир в процентах или "-" для пустой группы
+     */
+    static String newShare(CollectionStatistics.Group group) {
+        return group.getCount() == 0 ? "-" : String.format("%.1f%%", group.getNewShare() * 100);
+    }
+
+    /**
+     * Форматирует сводку поля как "минимум / среднее / максимум".
+     *
+     * @param field сводка поля
+     * @param count количество квартир в группе
+     * @param integral true, если значения поля целые
+     * @return строка сводки или "-" для пустой группы
+     */
+    static String summary(CollectionStatistics.FieldSummary field, int count, boolean integral) {
+        if (count == 0) {
+            return "-";
+        }
+        String format = integral ? "%.0f / %.2f / %.0f" : "%.2f / %.2f / %.2f";
+        return String.format(format, field.getMin(), field.getSum() / count, field.getMax());
+    }
+}
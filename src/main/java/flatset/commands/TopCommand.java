@@ -0,0 +1,74 @@
+package flatset.commands;
+
+import flatset.storage.FlatRepository;
+import flatset.storage.RangeIndex;
+import flatset.utils.ConsoleWriter;
+import flatset.utils.FlatFormatter;
+
+import java.io.PrintWriter;
+import java.util.function.LongPredicate;
+
+/**
+ * Команда для вывода k квартир с наибольшей или наименьшей площадью либо временем до метро.
+ * Квартиры берутся с нужного конца упорядоченного индекса, поэтому коллекция не копируется и не сортируется.
+ */
+public class TopCommand implements Command {
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду. По умолчанию квартиры выводятся по убыванию поля.
+     *
+     * @param flats Коллекция квартир.
+     * @param argument Строка "field k [asc|desc]", где field — area или metro.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        String[] args = argument == null ? new String[0] : argument.trim().split("\\s+");
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: top area|metro k [asc|desc]");
+            return;
+        }
+        RangeIndex index = RangeCommand.indexFor(flats, args[0]);
+        if (index == null) {
+            return;
+        }
+        int k;
+        try {
+            k = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            k = -1;
+        }
+        if (k <= 0) {
+            System.err.println("k must be a positive integer: " + args[1]);
+            return;
+        }
+        boolean ascending = args.length == 3 && args[2].equalsIgnoreCase("asc");
+        if (args.length == 3 && !ascending && !args[2].equalsIgnoreCase("desc")) {
+            System.err.println("Order must be asc or desc: " + args[2]);
+            return;
+        }
+
+        PrintWriter out = ConsoleWriter.open();
+        int limit = k;
+        int[] shown = new int[1];
+        LongPredicate print = id -> {
+            FlatFormatter.write(out, flats.get(id));
+            out.println();
+            return ++shown[0] < limit;
+        };
+        if (ascending) {
+            index.forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, print);
+        } else {
+            index.forEachDescending(print);
+        }
+        if (shown[0] == 0) {
+            out.println("Collection is empty.");
+        } else {
+            out.println("Top " + shown[0] + " flat(s) by " + index.getField() + (ascending ? ", ascending." : ", descending."));
+        }
+        out.flush();
+    }
+}
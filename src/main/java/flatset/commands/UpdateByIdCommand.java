@@ -1,9 +1,8 @@
 package flatset.commands;
 
 import flatset.Flat;
+import flatset.storage.FlatRepository;
 import flatset.utils.FlatUpdater;
-import java.util.HashSet;
-import java.util.Optional;
 
 /**
  * Команда для обновления данных квартиры по ID.
@@ -16,11 +15,11 @@ public class UpdateByIdCommand implements Command {
      * Если квартира с заданным ID найдена, ее поля обновляются.
      * В случае ошибки или некорректного ввода выводится соответствующее сообщение.
      *
-     * @param flatSet Коллекция квартир, в которой необходимо обновить данные.
+     * @param flats Коллекция квартир, в которой необходимо обновить данные.
      * @param argument Аргумент команды, содержащий ID квартиры и строку с полями для обновления в формате {field:value}.
      */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public void execute(FlatRepository flats, String argument) {
         try {
             String[] parts = argument.split(" ", 2);
             if (parts.length != 2) {
@@ -30,12 +29,10 @@ public class UpdateByIdCommand implements Command {
             long id = Long.parseLong(parts[0]);
             String jsonData = parts[1];
 
-            Optional<Flat> toUpdate = flatSet.stream()
-                    .filter(f -> f.getId() == id)
-                    .findFirst();
+            Flat existing = flats.get(id);
 
-            if (toUpdate.isPresent()) {
-                FlatUpdater.updateFields(toUpdate.get(), jsonData);
+            if (existing != null) {
+                flats.replace(FlatUpdater.updateFields(existing, jsonData));
                 System.out.println("Updated fields of apartment with ID " + id);
             } else {
                 System.out.println("Apartment with ID " + id + " not found.");
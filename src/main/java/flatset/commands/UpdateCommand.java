@@ -4,11 +4,10 @@ import flatset.Coordinates;
 import flatset.Flat;
 import flatset.House;
 import flatset.View;
+import flatset.storage.FlatRepository;
 
 import java.util.NoSuchElementException;
 import java.time.ZonedDateTime;
-import java.util.HashSet;
-import java.util.Optional;
 import java.util.Scanner;
 
 /**
@@ -26,8 +25,24 @@ public class UpdateCommand implements Command {
         this.scanner = new Scanner(System.in);
     }
 
+    /**
+     * Хранилище блокируется только на время замены, а не на время ввода.
+     */
     @Override
-    public void execute(HashSet<Flat> flatSet, String argument) {
+    public Access access() {
+        return Access.NONE;
+    }
+
+    /**
+     * Без аргумента команда работает в интерактивном режиме.
+     */
+    @Override
+    public boolean needsConsole(String argument) {
+        return argument == null || argument.trim().isEmpty();
+    }
+
+    @Override
+    public void execute(FlatRepository flats, String argument) {
         try {
             long id;
             Flat updatedFlat;
@@ -46,14 +61,9 @@ public class UpdateCommand implements Command {
                 updatedFlat = flatset.utils.FlatParser.parseFlat(parts[1]);
             }
 
-            Optional<Flat> existing = flatSet.stream()
-                    .filter(f -> f.getId() == id)
-                    .findFirst();
+            updatedFlat = updatedFlat.withId(id);
 
-            if (existing.isPresent()) {
-                updatedFlat.setId(id);
-                flatSet.remove(existing.get());
-                flatSet.add(updatedFlat);
+            if (flats.replace(updatedFlat) != null) {
                 System.out.println("Updated apartment with ID " + id);
             } else {
                 System.out.println("Apartment with ID " + id + " not found.");
@@ -86,18 +96,17 @@ public class UpdateCommand implements Command {
         Coordinates coordinates = new Coordinates(x, y);
         House house = new House(houseName, houseYear, houseNumberOfFlats);
 
-        Flat flat = new Flat();
-        flat.setName(name);
-        flat.setCoordinates(coordinates);
-        flat.setCreationDate(ZonedDateTime.now());
-        flat.setArea(area);
-        flat.setNumberOfRooms(numberOfRooms);
-        flat.setNew(isNew);
-        flat.setTimeToMetroByTransport(timeToMetroByTransport);
-        flat.setView(view);
-        flat.setHouse(house);
-
-        return flat;
+        return Flat.builder()
+                .setName(name)
+                .setCoordinates(coordinates)
+                .setCreationDate(ZonedDateTime.now())
+                .setArea(area)
+                .setNumberOfRooms(numberOfRooms)
+                .setNew(isNew)
+                .setTimeToMetroByTransport(timeToMetroByTransport)
+                .setView(view)
+                .setHouse(house)
+                .build();
     }
 
     private String prompt(String message, boolean allowEmpty) {
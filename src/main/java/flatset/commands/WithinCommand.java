@@ -0,0 +1,54 @@
+package flatset.commands;
+
+import flatset.storage.FlatRepository;
+import flatset.utils.ConsoleWriter;
+import flatset.utils.FlatFormatter;
+
+import java.io.PrintWriter;
+
+/**
+ * Команда для вывода квартир, координаты которых попадают в прямоугольник.
+ * Использует пространственный индекс хранилища, поэтому просматривает только ячейки внутри прямоугольника.
+ */
+public class WithinCommand implements Command {
+
+    @Override
+    public Access access() {
+        return Access.READ;
+    }
+
+    /**
+     * Выполняет команду поиска квартир в прямоугольнике.
+     * Границы включаются, порядок углов не важен; квартиры выводятся в порядке возрастания ID.
+     *
+     * @param flats Коллекция квартир.
+     * @param argument Строка "x1 y1 x2 y2": противоположные углы прямоугольника.
+     */
+    @Override
+    public void execute(FlatRepository flats, String argument) {
+        String[] args = argument == null ? new String[0] : argument.trim().split("\\s+");
+        if (args.length != 4) {
+            System.err.println("Usage: within x1 y1 x2 y2");
+            return;
+        }
+        int[] corners = new int[4];
+        try {
+            for (int i = 0; i < corners.length; i++) {
+                corners[i] = Integer.parseInt(args[i]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Coordinates must be integers: " + argument.trim());
+            return;
+        }
+
+        long[] ids = flats.getSpatialIndex().within(corners[0], corners[1], corners[2], corners[3]);
+        PrintWriter out = ConsoleWriter.open();
+        for (long id : ids) {
+            FlatFormatter.write(out, flats.get(id));
+            out.println();
+        }
+        out.println("Found " + ids.length + " flat(s) within (" + corners[0] + ", " + corners[1] + ") - ("
+                + corners[2] + ", " + corners[3] + ").");
+        out.flush();
+    }
+}
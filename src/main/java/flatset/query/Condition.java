@@ -0,0 +1,217 @@
+package flatset.query;
+
+import flatset.Flat;
+import flatset.View;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Элементарное условие фильтра: сравнение поля квартиры с константой.
+ * Условие компилируется в предикат, который читает поле напрямую через функцию доступа
+ * и сравнивает его с заранее разобранной константой, без отражения и разбора строк при проверке.
+ */
+public final class Condition implements Expression {
+
+    /**
+     * Оператор сравнения.
+     */
+    public enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /**
+         * @param comparison результат сравнения значения поля с константой
+         * @return true, если результат удовлетворяет оператору
+         */
+        boolean test(int comparison) {
+            switch (this) {
+                case EQ: return comparison == 0;
+                case NE: return comparison != 0;
+                case LT: return comparison < 0;
+                case LE: return comparison <= 0;
+                case GT: return comparison > 0;
+                default: return comparison >= 0;
+            }
+        }
+
+        /**
+         * @return true для операторов порядка (<, <=, >, >=)
+         */
+        boolean isOrdering() {
+            return this != EQ && this != NE;
+        }
+    }
+
+    private final FlatField field;
+    private final Operator operator;
+    /** Константа: Long, Double, String, Boolean, View или null */
+    private final Object value;
+
+    Condition(FlatField field, Operator operator, Object value) {
+        this.field = field;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    /**
+     * Создаёт условие, разбирая константу по типу поля.
+     *
+     * @param field поле
+     * @param operator оператор
+     * @param literal текст константы
+     * @param quoted true, если константа была записана в кавычках (тогда это всегда строка)
+     * @return условие
+     * @throws IllegalArgumentException если константа или оператор не подходят для поля
+     */
+    static Condition of(FlatField field, Operator operator, String literal, boolean quoted) {
+        FlatField.Kind kind = field.getKind();
+        if (operator.isOrdering() && kind != FlatField.Kind.INTEGER && kind != FlatField.Kind.REAL
+                && kind != FlatField.Kind.STRING) {
+            throw new IllegalArgumentException("Field " + field.getName() + " can only be compared with = or !=");
+        }
+        if (kind == FlatField.Kind.STRING) {
+            return new Condition(field, operator, literal);
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Field " + field.getName() + " is not a string: '" + literal + "'");
+        }
+        switch (kind) {
+            case INTEGER:
+            case REAL:
+                return new Condition(field, operator, parseNumber(field, literal));
+            case BOOLEAN:
+                if (literal.equalsIgnoreCase("null")) {
+                    return new Condition(field, operator, null);
+                }
+                if (literal.equalsIgnoreCase("true") || literal.equalsIgnoreCase("false")) {
+                    return new Condition(field, operator, Boolean.valueOf(literal));
+                }
+                throw new IllegalArgumentException("Field " + field.getName() + " must be true, false or null: " + literal);
+            case VIEW:
+                try {
+                    return new Condition(field, operator, View.valueOf(literal.toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " must be one of "
+                            + Arrays.toString(View.values()) + ": " + literal);
+                }
+            default:
+                if (literal.equalsIgnoreCase("null")) {
+                    return new Condition(field, operator, null);
+                }
+                throw new IllegalArgumentException("Field " + field.getName() + " can only be compared with null");
+        }
+    }
+
+    private static Number parseNumber(FlatField field, String literal) {
+        try {
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            // не целое число
+        }
+        try {
+            double value = Double.parseDouble(literal);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // сообщение ниже
+        }
+        throw new IllegalArgumentException("Field " + field.getName() + " must be compared with a number: " + literal);
+    }
+
+    public FlatField getField() {
+        return field;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return константа условия: Long, Double, String, Boolean, View или null
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Компилирует условие в предикат.
+     */
+    @Override
+    public Predicate<Flat> compile() {
+        Predicate<Flat> predicate = compileValue();
+        if (!field.isHouseField()) {
+            return predicate;
+        }
+        return flat -> flat.getHouse() != null && predicate.test(flat);
+    }
+
+    @Override
+    public void collectConjuncts(List<Condition> conjuncts) {
+        conjuncts.add(this);
+    }
+
+    private Predicate<Flat> compileValue() {
+        if (value instanceof Long && field.getKind() == FlatField.Kind.INTEGER) {
+            return compareLong(field.longValue(), operator, (Long) value);
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return compareDouble(field.doubleValue(), operator, ((Number) value).doubleValue());
+        }
+        Function<Flat, ?> accessor = field.objectValue();
+        if (value instanceof String) {
+            String expected = (String) value;
+            @SuppressWarnings("unchecked")
+            Function<Flat, String> text = (Function<Flat, String>) accessor;
+            return flat -> operator.test(text.apply(flat).compareTo(expected));
+        }
+        // Логическое значение, вид или null: только равенство и неравенство
+        Object expected = value;
+        boolean equal = operator == Operator.EQ;
+        return flat -> Objects.equals(accessor.apply(flat), expected) == equal;
+    }
+
+    private static Predicate<Flat> compareLong(ToLongFunction<Flat> field, Operator operator, long value) {
+        switch (operator) {
+            case EQ: return flat -> field.applyAsLong(flat) == value;
+            case NE: return flat -> field.applyAsLong(flat) != value;
+            case LT: return flat -> field.applyAsLong(flat) < value;
+            case LE: return flat -> field.applyAsLong(flat) <= value;
+            case GT: return flat -> field.applyAsLong(flat) > value;
+            default: return flat -> field.applyAsLong(flat) >= value;
+        }
+    }
+
+    private static Predicate<Flat> compareDouble(ToDoubleFunction<Flat> field, Operator operator, double value) {
+        switch (operator) {
+            case EQ: return flat -> field.applyAsDouble(flat) == value;
+            case NE: return flat -> field.applyAsDouble(flat) != value;
+            case LT: return flat -> field.applyAsDouble(flat) < value;
+            case LE: return flat -> field.applyAsDouble(flat) <= value;
+            case GT: return flat -> field.applyAsDouble(flat) > value;
+            default: return flat -> field.applyAsDouble(flat) >= value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        String literal = value instanceof String ? "'" + value + "'" : String.valueOf(value);
+        return field.getName() + " " + operator.getSymbol() + " " + literal;
+    }
+}
@@ -0,0 +1,24 @@
+package flatset.query;
+
+import flatset.Flat;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Узел разобранного выражения фильтра.
+ */
+interface Expression {
+    /**
+     * @return предикат, проверяющий выражение на квартире
+     */
+    Predicate<Flat> compile();
+
+    /**
+     * Добавляет в список условия, которые должны выполняться для любой подходящей квартиры
+     * (элементы конъюнкции верхнего уровня). По ним планировщик выбирает индекс.
+     *
+     * @param conjuncts список условий
+     */
+    void collectConjuncts(List<Condition> conjuncts);
+}
@@ -0,0 +1,124 @@
+package flatset.query;
+
+import flatset.Flat;
+
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Поля квартиры, доступные в условиях фильтра, и прямые функции доступа к ним.
+ * Поля дома (house.*) определены только для квартир с домом: для квартиры без дома
+ * любое сравнение такого поля ложно.
+ */
+public enum FlatField {
+    ID("id", Kind.INTEGER, false, Flat::getId, null, null),
+    NAME("name", Kind.STRING, false, null, null, Flat::getName),
+    X("x", Kind.INTEGER, false, flat -> flat.getCoordinates().getX(), null, null),
+    Y("y", Kind.INTEGER, false, flat -> flat.getCoordinates().getY(), null, null),
+    AREA("area", Kind.INTEGER, false, Flat::getArea, null, null),
+    ROOMS("rooms", Kind.INTEGER, false, Flat::getNumberOfRooms, null, null),
+    IS_NEW("new", Kind.BOOLEAN, false, null, null, Flat::isNew),
+    METRO("metro", Kind.REAL, false, null, Flat::getTimeToMetroByTransport, null),
+    VIEW("view", Kind.VIEW, false, null, null, Flat::getView),
+    HOUSE("house", Kind.PRESENCE, false, null, null, Flat::getHouse),
+    HOUSE_NAME("house.name", Kind.STRING, true, null, null, flat -> flat.getHouse().getName()),
+    HOUSE_YEAR("house.year", Kind.INTEGER, true, flat -> flat.getHouse().getYear(), null, null),
+    HOUSE_FLATS("house.flats", Kind.INTEGER, true, flat -> flat.getHouse().getNumberOfFlatsOnFloor(), null, null);
+
+    /**
+     * Тип значения поля; определяет допустимые литералы и операторы.
+     */
+    public enum Kind {
+        INTEGER, REAL, STRING, BOOLEAN, VIEW, PRESENCE
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final boolean houseField;
+    private final ToLongFunction<Flat> longValue;
+    private final ToDoubleFunction<Flat> doubleValue;
+    private final Function<Flat, ?> objectValue;
+
+    FlatField(String name, Kind kind, boolean houseField, ToLongFunction<Flat> longValue,
+              ToDoubleFunction<Flat> doubleValue, Function<Flat, ?> objectValue) {
+        this.name = name;
+        this.kind = kind;
+        this.houseField = houseField;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.objectValue = objectValue;
+    }
+
+    /**
+     * Находит поле по имени без учёта регистра. Кроме основных имён принимаются
+     * имена полей класса Flat: numberOfRooms, isNew, timeToMetroByTransport, house.numberOfFlatsOnFloor.
+     *
+     * @param name имя поля
+     * @return поле или null, если такого поля нет
+     */
+    public static FlatField of(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        switch (key) {
+            case "numberofrooms":
+                return ROOMS;
+            case "isnew":
+                return IS_NEW;
+            case "timetometrobytransport":
+                return METRO;
+            case "house.numberofflatsonfloor":
+                return HOUSE_FLATS;
+            default:
+                for (FlatField field : values()) {
+                    if (field.name.equals(key)) {
+                        return field;
+                    }
+                }
+                return null;
+        }
+    }
+
+    /**
+     * @return имя поля в языке фильтра
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return true, если поле принадлежит дому и определено только для квартир с домом
+     */
+    public boolean isHouseField() {
+        return houseField;
+    }
+
+    /**
+     * @return функция доступа к целочисленному полю (для полей типа INTEGER)
+     */
+    ToLongFunction<Flat> longValue() {
+        return longValue;
+    }
+
+    /**
+     * @return функция доступа к вещественному полю; для целочисленных полей значение приводится к double
+     */
+    ToDoubleFunction<Flat> doubleValue() {
+        if (doubleValue != null) {
+            return doubleValue;
+        }
+        ToLongFunction<Flat> value = longValue;
+        return flat -> value.applyAsLong(flat);
+    }
+
+    /**
+     * @return функция доступа к полю-объекту (строке, логическому значению, виду или дому)
+     */
+    Function<Flat, ?> objectValue() {
+        return objectValue;
+    }
+}
@@ -0,0 +1,499 @@
+package flatset.query;
+
+import flatset.Flat;
+import flatset.storage.FlatRepository;
+import flatset.storage.RangeIndex;
+import flatset.storage.RoomsIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Запрос к коллекции квартир на небольшом языке условий.
+ * <pre>
+ *   выражение := дизъюнкция
+ *   дизъюнкция := конъюнкция { (or | ||) конъюнкция }
+ *   конъюнкция := отрицание { (and | &amp;&amp;) отрицание }
+ *   отрицание := (not | !) отрицание | ( выражение ) | поле оператор константа
+ *   оператор := = | == | != | &lt;&gt; | &lt; | &lt;= | &gt; | &gt;=
+ * </pre>
+ * Поля перечислены в {@link FlatField}; строковые константы можно заключать в одинарные или двойные кавычки.
+ * Пример: {@code rooms = 3 and view = PARK and metro < 20 and house.year >= 2000}.
+ *
+ * Текст разбирается и компилируется в предикат один раз. При выполнении планировщик оценивает,
+ * сколько квартир вернёт индекс (по ID, комнатам, площади или времени до метро) для каждого условия
+ * конъюнкции верхнего уровня, и проверяет полный предикат только на квартирах из самого избирательного
+ * индекса; если подходящего индекса нет или он не лучше полного обхода, проверяются все квартиры.
+ */
+public final class FlatQuery {
+    private final String text;
+    private final Predicate<Flat> predicate;
+    private final List<Condition> conjuncts;
+
+    private FlatQuery(String text, Expression expression) {
+        this.text = text;
+        this.predicate = expression.compile();
+        List<Condition> collected = new ArrayList<>();
+        expression.collectConjuncts(collected);
+        this.conjuncts = Collections.unmodifiableList(collected);
+    }
+
+    /**
+     * Разбирает и компилирует запрос.
+     *
+     * @param text текст запроса
+     * @return скомпилированный запрос
+     * @throws IllegalArgumentException если текст содержит ошибку
+     */
+    public static FlatQuery parse(String text) {
+        Parser parser = new Parser(text);
+        Expression expression = parser.parseOr();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' at position " + (parser.tokenStart + 1));
+        }
+        return new FlatQuery(text.trim(), expression);
+    }
+
+    /**
+     * @param flat квартира
+     * @return true, если квартира удовлетворяет запросу
+     */
+    public boolean test(Flat flat) {
+        return predicate.test(flat);
+    }
+
+    /**
+     * @return условия, которые должны выполняться для каждой подходящей квартиры
+     */
+    public List<Condition> getConjuncts() {
+        return conjuncts;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Результат выполнения запроса.
+     */
+    public static final class Result {
+        /** Количество подходящих квартир */
+        public final long matched;
+        /** Количество проверенных квартир */
+        public final long scanned;
+        /** Описание способа доступа: использованный индекс или полный обход */
+        public final String plan;
+
+        Result(long matched, long scanned, String plan) {
+            this.matched = matched;
+            this.scanned = scanned;
+            this.plan = plan;
+        }
+    }
+
+    /**
+     * Выполняет запрос и передаёт подходящие квартиры в порядке возрастания ID.
+     * Должен вызываться под блокировкой чтения хранилища ({@link FlatRepository#read}).
+     *
+     * @param flats хранилище
+     * @param action получатель подходящих квартир
+     * @return количество подходящих и проверенных квартир и описание плана
+     */
+    public Result execute(FlatRepository flats, Consumer<? super Flat> action) {
+        IndexScan best = null;
+        for (Condition condition : conjuncts) {
+            IndexScan scan = indexScan(flats, condition);
+            if (scan != null && (best == null || scan.estimate < best.estimate)) {
+                best = scan;
+            }
+        }
+
+        long matched = 0;
+        long scanned = 0;
+        if (best != null && best.estimate < flats.size()) {
+            for (long id : best.ids.get()) {
+                Flat flat = flats.get(id);
+                if (flat == null) {
+                    continue;
+                }
+                scanned++;
+                if (predicate.test(flat)) {
+                    matched++;
+                    action.accept(flat);
+                }
+            }
+            return new Result(matched, scanned, "index on " + best.condition);
+        }
+        for (Flat flat : flats.ordered()) {
+            scanned++;
+            if (predicate.test(flat)) {
+                matched++;
+                action.accept(flat);
+            }
+        }
+        return new Result(matched, scanned, "full scan");
+    }
+
+    /**
+     * Кандидаты, которые индекс возвращает для условия: их количество и ID в порядке возрастания.
+     */
+    private static final class IndexScan {
+        final Condition condition;
+        final long estimate;
+        final Supplier<long[]> ids;
+
+        IndexScan(Condition condition, long estimate, Supplier<long[]> ids) {
+            this.condition = condition;
+            this.estimate = estimate;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Подбирает индекс для условия.
+     *
+     * @return кандидаты или null, если индекс к условию не применим
+     */
+    private static IndexScan indexScan(FlatRepository flats, Condition condition) {
+        if (condition.getField() == FlatField.METRO) {
+            long[] bounds = realBounds(condition);
+            return bounds == null ? null : rangeScan(flats.getMetroIndex(), condition, bounds[0], bounds[1]);
+        }
+        long[] bounds = integerBounds(condition);
+        if (bounds == null) {
+            return null;
+        }
+        long low = bounds[0];
+        long high = bounds[1];
+        switch (condition.getField()) {
+            case ID:
+                if (low != high) {
+                    return null;
+                }
+                return new IndexScan(condition, flats.contains(low) ? 1 : 0, () -> new long[]{low});
+            case ROOMS: {
+                RoomsIndex index = flats.getRoomsIndex();
+                return new IndexScan(condition, index.count(low, high), () -> index.idsWithRooms(low, high));
+            }
+            case AREA:
+                return rangeScan(flats.getAreaIndex(), condition, low, high);
+            default:
+                return null;
+        }
+    }
+
+    private static IndexScan rangeScan(RangeIndex index, Condition condition, long low, long high) {
+        return new IndexScan(condition, index.count(low, high), () -> index.idsInRange(low, high));
+    }
+
+    /**
+     * Переводит условие на целочисленное поле в замкнутый диапазон [low, high];
+     * пустому диапазону соответствует low &gt; high.
+     *
+     * @return диапазон или null, если условие не задаёт диапазон (!= или нечисловая константа)
+     */
+    private static long[] integerBounds(Condition condition) {
+        if (condition.getField().getKind() != FlatField.Kind.INTEGER || !(condition.getValue() instanceof Number)) {
+            return null;
+        }
+        double value = ((Number) condition.getValue()).doubleValue();
+        boolean integral = condition.getValue() instanceof Long;
+        long exact = integral ? (Long) condition.getValue() : 0;
+        long floor = integral ? exact : (long) Math.floor(value);
+        long ceil = integral ? exact : (long) Math.ceil(value);
+        switch (condition.getOperator()) {
+            case EQ:
+                return integral || floor == ceil ? new long[]{floor, floor} : new long[]{1, 0};
+            case LT:
+                return new long[]{Long.MIN_VALUE, ceil == Long.MIN_VALUE ? ceil : ceil - 1};
+            case LE:
+                return new long[]{Long.MIN_VALUE, floor};
+            case GT:
+                return new long[]{floor == Long.MAX_VALUE ? floor : floor + 1, Long.MAX_VALUE};
+            case GE:
+                return new long[]{ceil, Long.MAX_VALUE};
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Переводит условие на вещественное поле в диапазон ключей {@link RangeIndex#sortableKey(double)};
+     * соседние ключи соответствуют соседним числам double, поэтому строгие границы сдвигаются на единицу.
+     *
+     * @return диапазон или null, если условие не задаёт диапазон
+     */
+    private static long[] realBounds(Condition condition) {
+        if (!(condition.getValue() instanceof Number)) {
+            return null;
+        }
+        long key = RangeIndex.sortableKey(((Number) condition.getValue()).doubleValue());
+        switch (condition.getOperator()) {
+            case EQ:
+                return new long[]{key, key};
+            case LT:
+                return new long[]{Long.MIN_VALUE, key - 1};
+            case LE:
+                return new long[]{Long.MIN_VALUE, key};
+            case GT:
+                return new long[]{key + 1, Long.MAX_VALUE};
+            case GE:
+                return new long[]{key, Long.MAX_VALUE};
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Конъюнкция: все части должны выполняться.
+     */
+    private static final class And implements Expression {
+        private final List<Expression> parts;
+
+        And(List<Expression> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Predicate<Flat> compile() {
+            Predicate<Flat> result = parts.get(0).compile();
+            for (int i = 1; i < parts.size(); i++) {
+                result = result.and(parts.get(i).compile());
+            }
+            return result;
+        }
+
+        @Override
+        public void collectConjuncts(List<Condition> conjuncts) {
+            for (Expression part : parts) {
+                part.collectConjuncts(conjuncts);
+            }
+        }
+    }
+
+    /**
+     * Дизъюнкция: достаточно одной части; индекс по отдельной части не применим.
+     */
+    private static final class Or implements Expression {
+        private final List<Expression> parts;
+
+        Or(List<Expression> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Predicate<Flat> compile() {
+            Predicate<Flat> result = parts.get(0).compile();
+            for (int i = 1; i < parts.size(); i++) {
+                result = result.or(parts.get(i).compile());
+            }
+            return result;
+        }
+
+        @Override
+        public void collectConjuncts(List<Condition> conjuncts) {
+            // ни одно условие дизъюнкции не обязано выполняться
+        }
+    }
+
+    /**
+     * Отрицание.
+     */
+    private static final class Not implements Expression {
+        private final Expression operand;
+
+        Not(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public Predicate<Flat> compile() {
+            return operand.compile().negate();
+        }
+
+        @Override
+        public void collectConjuncts(List<Condition> conjuncts) {
+            // условие под отрицанием не задаёт диапазон
+        }
+    }
+
+    /**
+     * Рекурсивный нисходящий разбор с однотокенным просмотром вперёд.
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+        /** Текущий токен (null в конце текста) и признак строки в кавычках */
+        private String token;
+        private boolean quoted;
+        private int tokenStart;
+
+        Parser(String text) {
+            this.text = text;
+            advance();
+        }
+
+        String peek() {
+            return token;
+        }
+
+        Expression parseOr() {
+            List<Expression> parts = new ArrayList<>();
+            parts.add(parseAnd());
+            while (isKeyword("or") || isSymbol("||")) {
+                advance();
+                parts.add(parseAnd());
+            }
+            return parts.size() == 1 ? parts.get(0) : new Or(parts);
+        }
+
+        private Expression parseAnd() {
+            List<Expression> parts = new ArrayList<>();
+            parts.add(parseNot());
+            while (isKeyword("and") || isSymbol("&&")) {
+                advance();
+                parts.add(parseNot());
+            }
+            return parts.size() == 1 ? parts.get(0) : new And(parts);
+        }
+
+        private Expression parseNot() {
+            if (isKeyword("not") || isSymbol("!")) {
+                advance();
+                return new Not(parseNot());
+            }
+            if (isSymbol("(")) {
+                advance();
+                Expression inner = parseOr();
+                if (!isSymbol(")")) {
+                    throw error("Expected ')'");
+                }
+                advance();
+                return inner;
+            }
+            return parseCondition();
+        }
+
+        private Condition parseCondition() {
+            if (token == null || quoted) {
+                throw error("Expected a field name");
+            }
+            FlatField field = FlatField.of(token);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field '" + token + "'. Fields: " + fieldNames());
+            }
+            advance();
+            Condition.Operator operator = operator();
+            if (operator == null) {
+                throw error("Expected a comparison operator after " + field.getName());
+            }
+            advance();
+            if (token == null || (!quoted && isOperatorChar(token.charAt(0)))) {
+                throw error("Expected a value for " + field.getName());
+            }
+            Condition condition = Condition.of(field, operator, token, quoted);
+            advance();
+            return condition;
+        }
+
+        private Condition.Operator operator() {
+            if (token == null || quoted) {
+                return null;
+            }
+            switch (token) {
+                case "=":
+                case "==":
+                    return Condition.Operator.EQ;
+                case "!=":
+                case "<>":
+                    return Condition.Operator.NE;
+                case "<":
+                    return Condition.Operator.LT;
+                case "<=":
+                    return Condition.Operator.LE;
+                case ">":
+                    return Condition.Operator.GT;
+                case ">=":
+                    return Condition.Operator.GE;
+                default:
+                    return null;
+            }
+        }
+
+        private boolean isKeyword(String keyword) {
+            return token != null && !quoted && token.equalsIgnoreCase(keyword);
+        }
+
+        private boolean isSymbol(String symbol) {
+            return token != null && !quoted && token.equals(symbol);
+        }
+
+        private IllegalArgumentException error(String message) {
+            String found = token == null ? "end of filter" : "'" + token + "'";
+            return new IllegalArgumentException(message + ", found " + found + " at position " + (tokenStart + 1));
+        }
+
+        /**
+         * Читает следующий токен: слово или число, строку в кавычках, скобку или оператор.
+         */
+        private void advance() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            tokenStart = position;
+            quoted = false;
+            if (position >= text.length()) {
+                token = null;
+                return;
+            }
+            char c = text.charAt(position);
+            if (c == '\'' || c == '"') {
+                int end = text.indexOf(c, position + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated string at position " + (position + 1));
+                }
+                token = text.substring(position + 1, end);
+                quoted = true;
+                position = end + 1;
+            } else if (c == '(' || c == ')') {
+                token = String.valueOf(c);
+                position++;
+            } else if (isOperatorChar(c)) {
+                int end = position + 1;
+                if (end < text.length() && isOperatorChar(text.charAt(end))) {
+                    end++;
+                }
+                token = text.substring(position, end);
+                position = end;
+            } else {
+                int end = position;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                        && !isOperatorChar(text.charAt(end)) && text.charAt(end) != '(' && text.charAt(end) != ')') {
+                    end++;
+                }
+                token = text.substring(position, end);
+                position = end;
+            }
+        }
+
+        private static boolean isOperatorChar(char c) {
+            return c == '=' || c == '!' || c == '<' || c == '>' || c == '&' || c == '|';
+        }
+
+        private static String fieldNames() {
+            StringBuilder names = new StringBuilder();
+            for (FlatField field : FlatField.values()) {
+                if (names.length() > 0) {
+                    names.append(", ");
+                }
+                names.append(field.getName());
+            }
+            return names.toString();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package flatset.server;
+
+import flatset.commands.CommandManager;
+import flatset.commands.CommandSession;
+import flatset.commands.CompiledCommand;
+import flatset.utils.OutputCapture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Сервер команд на неблокирующем java.nio {@link Selector}.
+ * Слушает только loopback-интерфейс и принимает любое количество соединений.
+ * Клиент присылает команды в том же виде, что и в консоли, по одной в строке (UTF-8),
+ * и может отправлять следующие команды, не дожидаясь ответов (конвейерная обработка):
+ * все полные строки из прочитанного блока выполняются по порядку, а ответы накапливаются
+ * в буфере соединения и отправляются, когда канал готов к записи.
+ *
+ * Ответ на каждую команду — её вывод (System.out и System.err), за которым следует строка
+ * из одной точки. Строки вывода, начинающиеся с точки, дополняются ещё одной точкой.
+ * Каждое соединение выполняет команды в своей {@link CommandSession}, поэтому, например,
+ * {@code show next} продолжает просмотр этого клиента, а не последнего вызвавшего show.
+ * Команда exit закрывает соединение после отправки накопленных ответов; интерактивные команды
+ * (add и update без аргументов) отклоняются.
+ * Если клиент не читает ответы и буфер соединения переполняется, чтение команд от него
+ * приостанавливается до отправки ответов.
+ */
+public class CommandServer implements Closeable {
+    /** Порт по умолчанию */
+    public static final int DEFAULT_PORT = 7878;
+    /** Максимальная длина строки команды в байтах */
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    /** Объём неотправленных ответов, при котором чтение от клиента приостанавливается */
+    private static final int MAX_PENDING_REPLY = 4 << 20;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final byte[] END_OF_REPLY = ".\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final CommandManager manager;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    /** Вывод текущей команды; переиспользуется для всех команд */
+    private final ReplyBuffer commandOutput = new ReplyBuffer();
+    private volatile boolean running = true;
+    private long commandsExecuted;
+
+    /**
+     * Открывает сервер на loopback-интерфейсе.
+     *
+     * @param manager менеджер команд, через который выполняются запросы
+     * @param port порт (0 — выбрать свободный)
+     * @throws IOException если порт не удалось занять
+     */
+    public CommandServer(CommandManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return порт, на котором слушает сервер
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return количество выполненных команд
+     */
+    public long getCommandsExecuted() {
+        return commandsExecuted;
+    }
+
+    /**
+     * Обрабатывает соединения, пока сервер не будет остановлен через {@link #stop()}.
+     *
+     * @throws IOException при ошибке селектора
+     */
+    public void run() throws IOException {
+        OutputCapture.install();
+        while (running) {
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        read(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(key);
+                    }
+                } catch (IOException e) {
+                    close(key);
+                }
+            }
+        }
+        close();
+    }
+
+    /**
+     * Останавливает сервер; может вызываться из любого потока.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    /**
+     * Читает доступные данные и выполняет все полученные полные строки.
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        readBuffer.clear();
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            connection.closing = true;
+        } else {
+            byte[] data = readBuffer.array();
+            int start = 0;
+            for (int i = 0; i < read && !connection.closing; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                if (connection.partial.size() == 0) {
+                    executeLine(connection, data, start, i - start);
+                } else {
+                    connection.partial.write(data, start, i - start);
+                    executeLine(connection, connection.partial.array(), 0, connection.partial.size());
+                    connection.partial.reset();
+                }
+                start = i + 1;
+            }
+            if (!connection.closing && start < read) {
+                connection.partial.write(data, start, read - start);
+                if (connection.partial.size() > MAX_LINE_LENGTH) {
+                    reply(connection, "Command line is too long (limit " + MAX_LINE_LENGTH + " bytes).\n");
+                    connection.closing = true;
+                }
+            }
+        }
+        write(key);
+    }
+
+    private void executeLine(Connection connection, byte[] data, int offset, int length) {
+        int end = offset + length;
+        if (end > offset && data[end - 1] == '\r') {
+            end--;
+        }
+        String line = new String(data, offset, end - offset, StandardCharsets.UTF_8).trim();
+        if (line.isEmpty()) {
+            return;
+        }
+
+        CompiledCommand command = manager.compile(line, connection.session);
+        if (command.getName().equals("exit")) {
+            reply(connection, "Bye.\n");
+            connection.closing = true;
+            return;
+        }
+        if (command.needsConsole()) {
+            reply(connection, "Interactive input is not available over the network. Pass the arguments in the command.\n");
+            return;
+        }
+
+        commandOutput.reset();
+        OutputCapture.run(commandOutput, () -> {
+            try {
+                manager.execute(command);
+            } catch (RuntimeException e) {
+                System.err.println("Error executing the command: " + e.getMessage());
+            }
+        });
+        commandsExecuted++;
+        appendReply(connection.pending, commandOutput.array(), commandOutput.size());
+    }
+
+    private void reply(Connection connection, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        appendReply(connection.pending, bytes, bytes.length);
+    }
+
+    /**
+     * Добавляет ответ в буфер соединения: строки, начинающиеся с точки, экранируются второй точкой,
+     * в конце добавляется строка-терминатор.
+     */
+    private static void appendReply(ReplyBuffer pending, byte[] output, int length) {
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (output[i] == '\n') {
+                appendLine(pending, output, lineStart, i + 1);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < length) {
+            appendLine(pending, output, lineStart, length);
+            pending.write('\n');
+        }
+        pending.write(END_OF_REPLY, 0, END_OF_REPLY.length);
+    }
+
+    private static void appendLine(ReplyBuffer pending, byte[] output, int from, int to) {
+        if (output[from] == '.') {
+            pending.write('.');
+        }
+        pending.write(output, from, to - from);
+    }
+
+    /**
+     * Отправляет накопленные ответы, сколько примет канал, и переключает интерес селектора:
+     * запись — пока есть неотправленные данные, чтение — пока буфер ответов не переполнен.
+     */
+    private void write(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        ReplyBuffer pending = connection.pending;
+        if (connection.written < pending.size()) {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.array(), connection.written, pending.size() - connection.written);
+            connection.written += channel.write(buffer);
+        }
+        boolean drained = connection.written == pending.size();
+        if (drained) {
+            pending.reset();
+            connection.written = 0;
+            if (connection.closing) {
+                close(key);
+                return;
+            }
+        }
+        int interest = drained ? 0 : SelectionKey.OP_WRITE;
+        if (!connection.closing && pending.size() - connection.written < MAX_PENDING_REPLY) {
+            interest |= SelectionKey.OP_READ;
+        }
+        key.interestOps(interest);
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // соединение уже закрыто
+        }
+    }
+
+    /**
+     * Состояние соединения: незавершённая строка команды, неотправленные ответы и сессия команд клиента.
+     */
+    private static final class Connection {
+        final CommandSession session = new CommandSession(false);
+        final ReplyBuffer partial = new ReplyBuffer();
+        final ReplyBuffer pending = new ReplyBuffer();
+        int written;
+        boolean closing;
+    }
+
+    /**
+     * Буфер байтов с доступом к внутреннему массиву, чтобы отправлять данные без копирования.
+     */
+    private static final class ReplyBuffer extends ByteArrayOutputStream {
+        ReplyBuffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        @Override
+        public void write(int b) {
+            count = ensure(1);
+            buf[count - 1] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            int start = count;
+            count = ensure(len);
+            System.arraycopy(b, off, buf, start, len);
+        }
+
+        /**
+         * Расширяет массив под len дополнительных байтов и возвращает новый размер.
+         */
+        private int ensure(int len) {
+            int required = count + len;
+            if (required > buf.length) {
+                byte[] grown = new byte[Math.max(required, buf.length << 1)];
+                System.arraycopy(buf, 0, grown, 0, count);
+                buf = grown;
+            }
+            return required;
+        }
+    }
+}
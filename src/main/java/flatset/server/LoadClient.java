@@ -0,0 +1,136 @@
+package flatset.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор нагрузки для {@link CommandServer}.
+ * Открывает несколько соединений; в каждом отдельный поток отправляет заданное количество команд подряд,
+ * не дожидаясь ответов, а другой поток читает ответы (до строки-терминатора).
+ * По завершении выводит количество команд, время и пропускную способность.
+ *
+ * Запуск: {@code java -cp ... flatset.server.LoadClient [port] [connections] [commands] [command...]},
+ * по умолчанию: порт 7878, 4 соединения, 10000 команд на соединение, команда info.
+ */
+public class LoadClient {
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : CommandServer.DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int commands = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        String command = args.length > 3 ? String.join(" ", Arrays.copyOfRange(args, 3, args.length)) : "info";
+
+        Result result = run(port, connections, commands, command);
+        System.out.printf("%d commands over %d connection(s) in %.3f s: %.0f commands/s, %d reply characters%n",
+                result.replies, connections, result.seconds, result.replies / result.seconds, result.replyChars);
+    }
+
+    /**
+     * Результат прогона нагрузки.
+     */
+    public static final class Result {
+        /** Количество полученных ответов */
+        public final long replies;
+        /** Объём ответов в символах */
+        public final long replyChars;
+        /** Время прогона в секундах */
+        public final double seconds;
+
+        Result(long replies, long replyChars, double seconds) {
+            this.replies = replies;
+            this.replyChars = replyChars;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * Отправляет команды на сервер по нескольким соединениям и дожидается всех ответов.
+     *
+     * @param port порт сервера на loopback-интерфейсе
+     * @param connections количество соединений
+     * @param commands количество команд на соединение
+     * @param command текст команды
+     * @return результат прогона
+     * @throws Exception если соединение не удалось или прервалось
+     */
+    public static Result run(int port, int connections, int commands, String command) throws Exception {
+        AtomicLong replies = new AtomicLong();
+        AtomicLong replyChars = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            sockets.add(socket);
+            threads.add(new Thread(() -> {
+                try {
+                    send(socket, command, commands);
+                } catch (IOException e) {
+                    failures.add(e);
+                }
+            }, "load-writer-" + c));
+            threads.add(new Thread(() -> {
+                try {
+                    receive(socket, commands, replies, replyChars);
+                } catch (IOException e) {
+                    failures.add(e);
+                }
+            }, "load-reader-" + c));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        if (!failures.isEmpty()) {
+            throw new IOException("Load run failed: " + failures.get(0).getMessage(), failures.get(0));
+        }
+        return new Result(replies.get(), replyChars.get(), seconds);
+    }
+
+    private static void send(Socket socket, String command, int commands) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16);
+        for (int i = 0; i < commands; i++) {
+            out.write(command);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private static void receive(Socket socket, int commands, AtomicLong replies, AtomicLong replyChars) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+        long chars = 0;
+        for (int received = 0; received < commands; ) {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("Connection closed after " + received + " of " + commands + " replies");
+            }
+            chars += line.length() + 1;
+            if (line.equals(".")) {
+                received++;
+                replies.incrementAndGet();
+            }
+        }
+        replyChars.addAndGet(chars);
+    }
+}
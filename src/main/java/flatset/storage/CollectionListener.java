@@ -0,0 +1,40 @@
+package flatset.storage;
+
+import flatset.Flat;
+
+/**
+ * Слушатель изменений хранилища квартир.
+ * Вызывается хранилищем после каждого успешного изменения коллекции.
+ */
+public interface CollectionListener {
+    /**
+     * Вызывается после добавления квартиры.
+     *
+     * @param flat добавленная квартира
+     */
+    void onAdd(Flat flat);
+
+    /**
+     * Вызывается после удаления квартиры.
+     *
+     * @param flat удалённая квартира
+     */
+    void onRemove(Flat flat);
+
+    /**
+     * Вызывается после замены квартиры новой версией с тем же ID.
+     * По умолчанию рассматривается как удаление старой версии и добавление новой.
+     *
+     * @param previous предыдущая версия квартиры
+     * @param updated новая версия квартиры
+     */
+    default void onReplace(Flat previous, Flat updated) {
+        onRemove(previous);
+        onAdd(updated);
+    }
+
+    /**
+     * Вызывается после удаления всех квартир.
+     */
+    void onClear();
+}
@@ -0,0 +1,299 @@
+package flatset.storage;
+
+import flatset.Flat;
+import flatset.View;
+import flatset.utils.MemoryLayout;
+
+import java.time.Instant;
+
+/**
+ * Статистика коллекции, поддерживаемая при каждом изменении.
+ * Для всей коллекции и для каждого вида из окна хранятся количество квартир, количество новых квартир
+ * и сводки по площади, количеству комнат и времени до метро (сумма, минимум, максимум), поэтому
+ * их вывод не требует обхода коллекции. Минимум и максимум остаются точными и после удалений.
+ * Для всей коллекции они берутся с концов упорядоченных индексов хранилища (площади, комнат и метро)
+ * за O(1) без дополнительной памяти. Для видов из окна сводка хранит количество квартир для каждого
+ * различного значения поля в {@link SortedLongCounts} — примитивных массивах без упаковки, около 12 байт
+ * на различное значение. Время до метро вещественное и почти у каждой квартиры своё, поэтому для него
+ * объём растёт с количеством квартир; площадь и количество комнат обычно принимают немного значений.
+ *
+ * Кроме того, хранятся сведения о первоначальной загрузке коллекции (источник, время и длительность),
+ * которые записывают {@link flatset.utils.FlatLoader} и команда load_snapshot.
+ */
+public class CollectionStatistics implements CollectionListener {
+    private final Group total;
+    private final Group[] byView = new Group[View.values().length];
+
+    private volatile String loadSource;
+    private volatile Instant loadedAt = Instant.now();
+    private volatile long loadNanos;
+
+    /**
+     * @param areaIndex индекс хранилища по площади
+     * @param roomsIndex индекс хранилища по количеству комнат
+     * @param metroIndex индекс хранилища по времени до метро (ключ {@link RangeIndex#sortableKey(double)})
+     */
+    CollectionStatistics(RangeIndex areaIndex, RangeIndex roomsIndex, RangeIndex metroIndex) {
+        total = new Group(new FieldSummary(areaIndex, true), new FieldSummary(roomsIndex, true),
+                new FieldSummary(metroIndex, false));
+        for (int i = 0; i < byView.length; i++) {
+            byView[i] = new Group(new FieldSummary(null, true), new FieldSummary(null, true),
+                    new FieldSummary(null, false));
+        }
+    }
+
+    /**
+     * Сводка по одному числовому полю: сумма, минимум и максимум.
+     */
+    public static final class FieldSummary {
+        /** Индекс хранилища, с концов которого берутся минимум и максимум; null — значения хранятся в сводке */
+        private final RangeIndex index;
+        private final SortedLongCounts values;
+        /** Целое поле хранится как есть, вещественное — через {@link RangeIndex#sortableKey(double)} */
+        private final boolean integral;
+        private double sum;
+
+        FieldSummary(RangeIndex index, boolean integral) {
+            this.index = index;
+            this.values = index == null ? new SortedLongCounts() : null;
+            this.integral = integral;
+        }
+
+        void add(double value) {
+            if (values != null) {
+                values.add(toKey(value));
+            }
+            sum += value;
+        }
+
+        void remove(double value) {
+            if (values != null) {
+                values.remove(toKey(value));
+            }
+            sum -= value;
+        }
+
+        void clear() {
+            if (values != null) {
+                values.clear();
+            }
+            sum = 0;
+        }
+
+        /**
+         * @return сумма значений
+         */
+        public double getSum() {
+            return sum;
+        }
+
+        /**
+         * @return наименьшее значение или NaN, если квартир нет
+         */
+        public double getMin() {
+            if (index != null) {
+                return index.size() == 0 ? Double.NaN : fromKey(index.firstKey());
+            }
+            return values.isEmpty() ? Double.NaN : fromKey(values.first());
+        }
+
+        /**
+         * @return наибольшее значение или NaN, если квартир нет
+         */
+        public double getMax() {
+            if (index != null) {
+                return index.size() == 0 ? Double.NaN : fromKey(index.lastKey());
+            }
+            return values.isEmpty() ? Double.NaN : fromKey(values.last());
+        }
+
+        private long toKey(double value) {
+            return integral ? (long) value : RangeIndex.sortableKey(value);
+        }
+
+        private double fromKey(long key) {
+            return integral ? key : RangeIndex.fromSortableKey(key);
+        }
+
+        long retainedSize(MemoryLayout layout) {
+            // Индекс хранилища учитывается отдельно
+            return layout.shallowSize(FieldSummary.class) + (values == null ? 0 : values.retainedSize(layout));
+        }
+    }
+
+    /**
+     * Агрегаты по группе квартир.
+     */
+    public static final class Group {
+        private int count;
+        private int newCount;
+        private final FieldSummary area;
+        private final FieldSummary rooms;
+        private final FieldSummary metro;
+
+        Group(FieldSummary area, FieldSummary rooms, FieldSummary metro) {
+            this.area = area;
+            this.rooms = rooms;
+            this.metro = metro;
+        }
+
+        void add(Flat flat) {
+            count++;
+            if (Boolean.TRUE.equals(flat.isNew())) {
+                newCount++;
+            }
+            area.add(flat.getArea());
+            rooms.add(flat.getNumberOfRooms());
+            metro.add(flat.getTimeToMetroByTransport());
+        }
+
+        void remove(Flat flat) {
+            count--;
+            if (Boolean.TRUE.equals(flat.isNew())) {
+                newCount--;
+            }
+            area.remove(flat.getArea());
+            rooms.remove(flat.getNumberOfRooms());
+            metro.remove(flat.getTimeToMetroByTransport());
+            if (count == 0) {
+                // Сбрасываем накопленную погрешность суммы вещественных значений
+                metro.clear();
+            }
+        }
+
+        void clear() {
+            count = 0;
+            newCount = 0;
+            area.clear();
+            rooms.clear();
+            metro.clear();
+        }
+
+        /**
+         * @return количество квартир в группе
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return количество квартир с признаком новизны true
+         */
+        public int getNewCount() {
+            return newCount;
+        }
+
+        /**
+         * @return доля новых квартир от 0 до 1 или NaN для пустой группы
+         */
+        public double getNewShare() {
+            return count == 0 ? Double.NaN : (double) newCount / count;
+        }
+
+        public FieldSummary getArea() {
+            return area;
+        }
+
+        public FieldSummary getRooms() {
+            return rooms;
+        }
+
+        public FieldSummary getMetro() {
+            return metro;
+        }
+
+        long retainedSize(MemoryLayout layout) {
+            return layout.shallowSize(Group.class)
+                    + area.retainedSize(layout) + rooms.retainedSize(layout) + metro.retainedSize(layout);
+        }
+    }
+
+    @Override
+    public void onAdd(Flat flat) {
+        total.add(flat);
+        if (flat.getView() != null) {
+            byView[flat.getView().ordinal()].add(flat);
+        }
+    }
+
+    @Override
+    public void onRemove(Flat flat) {
+        total.remove(flat);
+        if (flat.getView() != null) {
+            byView[flat.getView().ordinal()].remove(flat);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        total.clear();
+        for (Group group : byView) {
+            group.clear();
+        }
+    }
+
+    /**
+     * @return агрегаты по всей коллекции
+     */
+    public Group getTotal() {
+        return total;
+    }
+
+    /**
+     * @param view вид из окна
+     * @return агрегаты по квартирам с этим видом
+     */
+    public Group getByView(View view) {
+        return byView[view.ordinal()];
+    }
+
+    /**
+     * Оценивает память, занимаемую статистикой (без индексов хранилища, с которых берутся минимум и максимум
+     * по всей коллекции): объём зависит от количества различных значений полей в группах видов.
+     *
+     * @param layout модель размещения объектов
+     * @return размер в байтах
+     */
+    long retainedSize(MemoryLayout layout) {
+        long size = layout.shallowSize(getClass()) + layout.arraySize(Group.class, byView.length)
+                + total.retainedSize(layout);
+        for (Group group : byView) {
+            size += group.retainedSize(layout);
+        }
+        return size;
+    }
+
+    /**
+     * Запоминает сведения о загрузке коллекции.
+     *
+     * @param source откуда загружены данные (null — коллекция создана пустой)
+     * @param startedAt момент начала загрузки
+     * @param nanos длительность загрузки в наносекундах
+     */
+    public void recordLoad(String source, Instant startedAt, long nanos) {
+        this.loadSource = source;
+        this.loadedAt = startedAt;
+        this.loadNanos = nanos;
+    }
+
+    /**
+     * @return источник загрузки или null, если коллекция создана пустой
+     */
+    public String getLoadSource() {
+        return loadSource;
+    }
+
+    /**
+     * @return момент начала загрузки (или создания хранилища, если загрузки не было)
+     */
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return длительность загрузки в наносекундах
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+}
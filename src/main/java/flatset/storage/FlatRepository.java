@@ -0,0 +1,589 @@
+package flatset.storage;
+
+import flatset.Flat;
+import flatset.House;
+import flatset.utils.LongHashMap;
+import flatset.utils.MemoryLayout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Хранилище квартир с первичным ключом по идентификатору.
+ * Поиск, удаление и замена квартиры по ID выполняются за O(1),
+ * идентификаторы хранятся без упаковки в Long.
+ * Все команды работают с коллекцией только через этот класс.
+ * Дополнительно поддерживается упорядоченный индекс по естественному порядку квартир (Flat.compareTo),
+ * поэтому минимум и максимум находятся за O(log n), а удаление всех квартир больше заданной
+ * выполняется как удаление хвостового диапазона за O(log n + k).
+ * Квартиры неизменяемы, поэтому обновление - это замена квартиры новой версией через {@link #replace(Flat)}.
+ * Вторичные индексы ({@link RoomsIndex}, {@link SpatialIndex}, {@link RangeIndex} по площади и времени до метро)
+ * обновляются при каждом изменении коллекции.
+ * Дома квартир канонизируются через {@link HousePool}: все квартиры одного дома ссылаются на один объект House.
+ * О каждом изменении коллекции уведомляются зарегистрированные слушатели {@link CollectionListener}.
+ *
+ * Хранилище потокобезопасно и защищено одной блокировкой {@link StampedLock}:
+ * <ul>
+ *     <li>точечные чтения ({@link #get}, {@link #contains}, {@link #size}, {@link #min}, {@link #max})
+ *     выполняются оптимистично, без захвата блокировки, и повторяются под блокировкой чтения
+ *     только если в это время шла запись;</li>
+ *     <li>изменения захватывают блокировку записи; вложенные изменения в том же потоке
+ *     (например, внутри {@link #write(Supplier)}) повторно её не захватывают;</li>
+ *     <li>обходы (итератор, {@link #ordered()}, {@link #fromId(long)}, {@link #stream()},
+ *     представления пула домов и индекса комнат, запросы к пространственному и упорядоченным индексам)
+ *     допустимы только внутри {@link #read(Supplier)} или {@link #write(Supplier)},
+ *     если с хранилищем одновременно работают другие потоки.</li>
+ * </ul>
+ * Изменения внутри {@link #read(Supplier)} запрещены: блокировка не повышается до записи.
+ * Слушатели уведомляются под блокировкой записи.
+ */
+public class FlatRepository implements Iterable<Flat> {
+    private final LongHashMap<Flat> flatsById;
+    private final TreeSet<Flat> orderedFlats = new TreeSet<>();
+    private final IdSequence idSequence = new IdSequence();
+    private final HousePool housePool = new HousePool();
+    private final RoomsIndex roomsIndex = new RoomsIndex();
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+    private final RangeIndex areaIndex = new RangeIndex("area", Flat::getArea);
+    private final RangeIndex metroIndex = new RangeIndex("metro",
+            flat -> RangeIndex.sortableKey(flat.getTimeToMetroByTransport()));
+    private final CollectionStatistics statistics =
+            new CollectionStatistics(areaIndex, roomsIndex.getRangeIndex(), metroIndex);
+    /** Вторичные индексы; обновляются до уведомления внешних слушателей */
+    private final List<CollectionListener> indexes = new ArrayList<>();
+    private final List<CollectionListener> listeners = new ArrayList<>();
+    private final StampedLock lock = new StampedLock();
+    /** Поток, удерживающий блокировку записи; нужен для повторного входа */
+    private volatile Thread writer;
+
+    /**
+     * Создает пустое хранилище.
+     */
+    public FlatRepository() {
+        this.flatsById = new LongHashMap<>();
+        registerIndexes();
+    }
+
+    /**
+     * Создает пустое хранилище, рассчитанное на указанное количество квартир.
+     *
+     * @param expectedSize ожидаемое количество квартир
+     */
+    public FlatRepository(int expectedSize) {
+        this.flatsById = new LongHashMap<>(expectedSize);
+        registerIndexes();
+    }
+
+    private void registerIndexes() {
+        indexes.add(roomsIndex);
+        indexes.add(spatialIndex);
+        indexes.add(areaIndex);
+        indexes.add(metroIndex);
+        indexes.add(statistics);
+    }
+
+    /**
+     * Добавляет квартиру, если квартиры с таким ID ещё нет.
+     * Если дом квартиры уже есть в пуле домов, сохраняется версия квартиры с каноническим экземпляром дома.
+     *
+     * @param flat квартира для добавления
+     * @return true, если квартира добавлена, false, если ID уже занят
+     */
+    public boolean add(Flat flat) {
+        long stamp = lockWrite();
+        try {
+            if (flatsById.containsKey(flat.getId())) {
+                return false;
+            }
+            flat = withCanonicalHouse(flat);
+            flatsById.put(flat.getId(), flat);
+            orderedFlats.add(flat);
+            idSequence.advanceTo(flat.getId());
+            notifyAdd(flat);
+            return true;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Выдаёт идентификатор для новой квартиры.
+     * ID никогда не повторяется, даже если квартира с максимальным ID была удалена.
+     *
+     * @return идентификатор для новой квартиры
+     */
+    public long nextId() {
+        long stamp = lockWrite();
+        try {
+            return idSequence.next();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Возвращает версию квартиры, ссылающуюся на канонический экземпляр её дома,
+     * и регистрирует ссылку на дом в пуле.
+     */
+    private Flat withCanonicalHouse(Flat flat) {
+        House house = flat.getHouse();
+        House canonical = housePool.acquire(house);
+        return canonical == house ? flat : flat.toBuilder().setHouse(canonical).build();
+    }
+
+    /**
+     * @return пул домов, на которые ссылаются квартиры хранилища
+     */
+    public HousePool getHousePool() {
+        return housePool;
+    }
+
+    /**
+     * @return индекс квартир по количеству комнат
+     */
+    public RoomsIndex getRoomsIndex() {
+        return roomsIndex;
+    }
+
+    /**
+     * @return пространственный индекс квартир по координатам
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * @return упорядоченный индекс квартир по площади
+     */
+    public RangeIndex getAreaIndex() {
+        return areaIndex;
+    }
+
+    /**
+     * @return упорядоченный индекс квартир по времени до метро (ключи — {@link RangeIndex#sortableKey(double)})
+     */
+    public RangeIndex getMetroIndex() {
+        return metroIndex;
+    }
+
+    /**
+     * @return статистика коллекции, обновляемая при каждом изменении
+     */
+    public CollectionStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return генератор идентификаторов хранилища
+     */
+    public IdSequence getIdSequence() {
+        return idSequence;
+    }
+
+    /**
+     * Возвращает квартиру по ID.
+     *
+     * @param id идентификатор квартиры
+     * @return квартира или null, если она не найдена
+     */
+    public Flat get(long id) {
+        if (writer != Thread.currentThread()) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Flat flat = flatsById.get(id);
+                    if (lock.validate(stamp)) {
+                        return flat;
+                    }
+                } catch (RuntimeException e) {
+                    // Таблица менялась во время чтения; повтор под блокировкой ниже
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return flatsById.get(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return flatsById.get(id);
+    }
+
+    /**
+     * Проверяет наличие квартиры с указанным ID.
+     *
+     * @param id идентификатор квартиры
+     * @return true, если квартира есть в хранилище
+     */
+    public boolean contains(long id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Удаляет квартиру по ID.
+     *
+     * @param id идентификатор квартиры
+     * @return удалённая квартира или null, если она не найдена
+     */
+    public Flat removeById(long id) {
+        long stamp = lockWrite();
+        try {
+            Flat removed = flatsById.remove(id);
+            if (removed != null) {
+                orderedFlats.remove(removed);
+                housePool.release(removed.getHouse());
+                notifyRemove(removed);
+            }
+            return removed;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Заменяет квартиру с тем же ID на переданную (с каноническим экземпляром дома).
+     *
+     * @param flat новая версия квартиры
+     * @return предыдущая версия или null, если квартиры с таким ID не было (тогда замена не выполняется)
+     */
+    public Flat replace(Flat flat) {
+        long stamp = lockWrite();
+        try {
+            Flat existing = flatsById.get(flat.getId());
+            if (existing != null) {
+                flat = withCanonicalHouse(flat);
+                housePool.release(existing.getHouse());
+                flatsById.put(flat.getId(), flat);
+                orderedFlats.remove(existing);
+                orderedFlats.add(flat);
+                notifyReplace(existing, flat);
+            }
+            return existing;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Возвращает наименьшую квартиру в естественном порядке.
+     *
+     * @return наименьшая квартира или null, если хранилище пусто
+     */
+    public Flat min() {
+        return readOptimistically(() -> orderedFlats.isEmpty() ? null : orderedFlats.first());
+    }
+
+    /**
+     * Возвращает наибольшую квартиру в естественном порядке.
+     *
+     * @return наибольшая квартира или null, если хранилище пусто
+     */
+    public Flat max() {
+        return readOptimistically(() -> orderedFlats.isEmpty() ? null : orderedFlats.last());
+    }
+
+    /**
+     * Удаляет все квартиры, которые больше заданной в естественном порядке.
+     * Выполняется как удаление хвостового диапазона упорядоченного индекса.
+     *
+     * @param bound квартира для сравнения (сама в хранилище может отсутствовать)
+     * @return количество удалённых квартир
+     */
+    public int removeGreaterThan(Flat bound) {
+        long stamp = lockWrite();
+        try {
+            List<Flat> greater = new ArrayList<>(orderedFlats.tailSet(bound, false));
+            for (Flat flat : greater) {
+                removeById(flat.getId());
+            }
+            return greater.size();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Возвращает квартиры в естественном порядке (только для чтения).
+     *
+     * @return упорядоченное представление квартир
+     */
+    public NavigableSet<Flat> ordered() {
+        return Collections.unmodifiableNavigableSet(orderedFlats);
+    }
+
+    /**
+     * Возвращает квартиры с ID не меньше заданного в естественном порядке (только для чтения).
+     * Естественный порядок начинается с ID, поэтому это хвост упорядоченного индекса,
+     * начинающийся с наименьшей возможной квартиры с таким ID.
+     *
+     * @param id наименьший ID
+     * @return упорядоченное представление квартир с ID, большим или равным id
+     */
+    public NavigableSet<Flat> fromId(long id) {
+        Flat lowest = new Flat(id, "", null, null, Long.MIN_VALUE, Long.MIN_VALUE, null,
+                Double.NEGATIVE_INFINITY, null, null);
+        return Collections.unmodifiableNavigableSet(orderedFlats.tailSet(lowest, true));
+    }
+
+    /**
+     * Удаляет все квартиры, удовлетворяющие условию.
+     *
+     * @param filter условие удаления
+     * @return количество удалённых квартир
+     */
+    public int removeIf(Predicate<? super Flat> filter) {
+        long stamp = lockWrite();
+        try {
+            List<Flat> matched = new ArrayList<>();
+            flatsById.forEach(flat -> {
+                if (filter.test(flat)) {
+                    matched.add(flat);
+                }
+            });
+            for (Flat flat : matched) {
+                removeById(flat.getId());
+            }
+            return matched.size();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет все квартиры из хранилища.
+     */
+    public void clear() {
+        long stamp = lockWrite();
+        try {
+            flatsById.clear();
+            orderedFlats.clear();
+            housePool.clear();
+            notifyClear();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Регистрирует слушателя изменений коллекции.
+     *
+     * @param listener слушатель
+     */
+    public void addListener(CollectionListener listener) {
+        long stamp = lockWrite();
+        try {
+            listeners.add(listener);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Отменяет регистрацию слушателя изменений коллекции.
+     *
+     * @param listener слушатель
+     * @return true, если слушатель был зарегистрирован
+     */
+    public boolean removeListener(CollectionListener listener) {
+        long stamp = lockWrite();
+        try {
+            return listeners.remove(listener);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return количество квартир в хранилище
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = flatsById.size();
+        if (writer == Thread.currentThread() || lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return flatsById.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return true, если хранилище пусто
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Выполняет действие под блокировкой чтения: хранилище не меняется, пока действие выполняется,
+     * а другие читатели работают параллельно. Используется для обходов коллекции и её индексов.
+     * Если текущий поток уже удерживает блокировку записи, действие выполняется сразу.
+     *
+     * @param action действие, которое только читает хранилище
+     * @param <T> тип результата
+     * @return результат действия
+     */
+    public <T> T read(Supplier<T> action) {
+        if (writer == Thread.currentThread()) {
+            return action.get();
+        }
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Выполняет действие под блокировкой записи, то есть атомарно относительно других потоков.
+     * Изменения хранилища внутри действия повторно блокировку не захватывают.
+     *
+     * @param action действие над хранилищем
+     * @param <T> тип результата
+     * @return результат действия
+     */
+    public <T> T write(Supplier<T> action) {
+        long stamp = lockWrite();
+        try {
+            return action.get();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Измеряет память, занимаемую коллекцией, по модели размещения объектов текущей JVM.
+     * Выполняется под блокировкой чтения.
+     *
+     * @return объём памяти с разбивкой по составляющим
+     */
+    public MemoryReport measureMemory() {
+        return measureMemory(MemoryLayout.current());
+    }
+
+    /**
+     * Измеряет память, занимаемую коллекцией, по указанной модели размещения объектов.
+     * Выполняется под блокировкой чтения.
+     *
+     * @param layout модель размещения объектов
+     * @return объём памяти с разбивкой по составляющим
+     */
+    public MemoryReport measureMemory(MemoryLayout layout) {
+        return read(() -> MemoryReport.measure(this, layout));
+    }
+
+    /**
+     * Память первичного ключа и упорядоченного индекса (без самих квартир).
+     */
+    long primaryIndexSize(MemoryLayout layout) {
+        int capacity = flatsById.capacity();
+        return layout.shallowSize(LongHashMap.class)
+                + layout.arraySize(long.class, capacity) + layout.arraySize(Object.class, capacity)
+                + layout.shallowSize(TreeSet.class) + layout.shallowSize(TreeMap.class)
+                + layout.treeSize(orderedFlats.size());
+    }
+
+    /**
+     * @return последовательный поток квартир хранилища
+     */
+    public Stream<Flat> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    @Override
+    public Iterator<Flat> iterator() {
+        return flatsById.iterator();
+    }
+
+    /**
+     * Захватывает блокировку записи, если текущий поток её ещё не удерживает.
+     *
+     * @return штамп блокировки или 0, если блокировка уже удерживалась этим потоком
+     */
+    private long lockWrite() {
+        if (writer == Thread.currentThread()) {
+            return 0;
+        }
+        long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        return stamp;
+    }
+
+    private void unlockWrite(long stamp) {
+        if (stamp != 0) {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Выполняет короткое чтение без блокировки и повторяет его под блокировкой чтения,
+     * если за это время хранилище изменилось.
+     */
+    private <T> T readOptimistically(Supplier<T> reader) {
+        if (writer != Thread.currentThread()) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    T result = reader.get();
+                    if (lock.validate(stamp)) {
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    // Индекс менялся во время чтения; повтор под блокировкой ниже
+                }
+            }
+        }
+        return read(reader);
+    }
+
+    private void notifyAdd(Flat flat) {
+        for (CollectionListener index : indexes) {
+            index.onAdd(flat);
+        }
+        for (CollectionListener listener : listeners) {
+            listener.onAdd(flat);
+        }
+    }
+
+    private void notifyRemove(Flat flat) {
+        for (CollectionListener index : indexes) {
+            index.onRemove(flat);
+        }
+        for (CollectionListener listener : listeners) {
+            listener.onRemove(flat);
+        }
+    }
+
+    private void notifyReplace(Flat previous, Flat updated) {
+        for (CollectionListener index : indexes) {
+            index.onReplace(previous, updated);
+        }
+        for (CollectionListener listener : listeners) {
+            listener.onReplace(previous, updated);
+        }
+    }
+
+    private void notifyClear() {
+        for (CollectionListener index : indexes) {
+            index.onClear();
+        }
+        for (CollectionListener listener : listeners) {
+            listener.onClear();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package flatset.storage;
+
+import flatset.House;
+import flatset.utils.MemoryLayout;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Пул канонических экземпляров домов (flyweight).
+ * Каждый различный дом хранится один раз вместе с количеством квартир, которые на него ссылаются,
+ * поэтому квартиры одного дома разделяют один объект House, а перечисление различных домов
+ * выполняется за O(количество различных домов), а не за O(количество квартир).
+ * Дом удаляется из пула, когда на него не остаётся ссылок.
+ * Пул также является упорядоченным мультимножеством домов: различные дома дополнительно хранятся
+ * в естественном порядке, поэтому дома можно обойти по порядку вместе с количеством их вхождений
+ * без сортировки всех квартир. Упорядоченная часть меняется только при появлении или исчезновении
+ * различного дома, а поиск по-прежнему выполняется через хэш-таблицу.
+ */
+public class HousePool {
+    private final Map<House, Entry> entries = new HashMap<>();
+    private final NavigableMap<House, Entry> sorted = new TreeMap<>();
+
+    /**
+     * Счётчик ссылок на канонический экземпляр дома.
+     */
+    private static final class Entry {
+        final House house;
+        int references;
+
+        Entry(House house) {
+            this.house = house;
+        }
+    }
+
+    /**
+     * Возвращает канонический экземпляр дома, не изменяя счётчик ссылок.
+     * Если такого дома в пуле нет, возвращается сам переданный дом.
+     *
+     * @param house дом (может быть null)
+     * @return канонический экземпляр или null, если house равен null
+     */
+    public House intern(House house) {
+        if (house == null) {
+            return null;
+        }
+        Entry entry = entries.get(house);
+        return entry == null ? house : entry.house;
+    }
+
+    /**
+     * Регистрирует ещё одну ссылку на дом и возвращает его канонический экземпляр.
+     *
+     * @param house дом (может быть null)
+     * @return канонический экземпляр или null, если house равен null
+     */
+    public House acquire(House house) {
+        if (house == null) {
+            return null;
+        }
+        Entry entry = entries.get(house);
+        if (entry == null) {
+            entry = new Entry(house);
+            entries.put(house, entry);
+            sorted.put(house, entry);
+        }
+        entry.references++;
+        return entry.house;
+    }
+
+    /**
+     * Снимает одну ссылку на дом; дом без ссылок удаляется из пула.
+     *
+     * @param house дом (может быть null)
+     */
+    public void release(House house) {
+        if (house == null) {
+            return;
+        }
+        Entry entry = entries.get(house);
+        if (entry != null && --entry.references == 0) {
+            entries.remove(house);
+            sorted.remove(house);
+        }
+    }
+
+    /**
+     * @param house дом
+     * @return количество квартир, ссылающихся на дом
+     */
+    public int referenceCount(House house) {
+        Entry entry = house == null ? null : entries.get(house);
+        return entry == null ? 0 : entry.references;
+    }
+
+    /**
+     * @return различные дома, на которые ссылается хотя бы одна квартира, в порядке возрастания (только для чтения)
+     */
+    public Collection<House> houses() {
+        return Collections.unmodifiableSet(sorted.navigableKeySet());
+    }
+
+    /**
+     * Обходит различные дома в порядке убывания вместе с количеством ссылающихся на них квартир.
+     *
+     * @param action действие, получающее дом и количество его вхождений
+     */
+    public void forEachDescending(ObjIntConsumer<House> action) {
+        for (Entry entry : sorted.descendingMap().values()) {
+            action.accept(entry.house, entry.references);
+        }
+    }
+
+    /**
+     * @return количество различных домов
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Оценивает память, занимаемую пулом вместе с самими домами и их названиями.
+     *
+     * @param layout модель размещения объектов
+     * @return размер в байтах
+     */
+    long retainedSize(MemoryLayout layout) {
+        long size = layout.shallowSize(getClass()) + layout.shallowSize(HashMap.class) + layout.shallowSize(TreeMap.class)
+                + layout.hashTableSize(entries.size()) + layout.treeSize(sorted.size());
+        for (Entry entry : entries.values()) {
+            size += layout.shallowSize(Entry.class) + layout.shallowSize(House.class)
+                    + layout.stringSize(entry.house.getName());
+        }
+        return size;
+    }
+
+    /**
+     * Удаляет все дома из пула.
+     */
+    public void clear() {
+        entries.clear();
+        sorted.clear();
+    }
+}
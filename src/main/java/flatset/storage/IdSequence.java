@@ -0,0 +1,44 @@
+package flatset.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор идентификаторов квартир с автоинкрементом.
+ * Хранит "верхнюю отметку" — наибольший когда-либо выданный или встреченный ID.
+ * Выдача нового ID выполняется за O(1) и безопасна при вызове из нескольких потоков.
+ * Отметка сохраняется вместе с данными, поэтому ID удалённых квартир не переиспользуются после перезапуска.
+ */
+public class IdSequence {
+    private final AtomicLong highWaterMark = new AtomicLong();
+
+    /**
+     * Выдаёт следующий идентификатор.
+     *
+     * @return новый уникальный идентификатор (больше всех выданных ранее)
+     */
+    public long next() {
+        return highWaterMark.incrementAndGet();
+    }
+
+    /**
+     * Сдвигает отметку вперёд, если переданный ID больше текущей отметки.
+     * Используется при загрузке данных и при добавлении квартир с уже назначенным ID.
+     *
+     * @param id встреченный идентификатор
+     */
+    public void advanceTo(long id) {
+        long current;
+        while (id > (current = highWaterMark.get())) {
+            if (highWaterMark.compareAndSet(current, id)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return наибольший выданный или встреченный идентификатор
+     */
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+}
@@ -0,0 +1,359 @@
+package flatset.storage;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+import flatset.View;
+import flatset.utils.FlatSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи (write-ahead journal) для инкрементального сохранения коллекции.
+ * Каждое изменение хранилища дописывается в конец журнала компактной двоичной записью,
+ * поэтому стоимость записи пропорциональна изменению, а не размеру коллекции.
+ * При старте состояние восстанавливается из последнего снимка (или JSON-файла) и хвоста журнала,
+ * а уплотнение переносит журнал в новый снимок и очищает его.
+ *
+ * Формат файла: int MAGIC ("FLTJ"), short версия, затем записи вида
+ * int длина, int CRC32 содержимого, содержимое (byte тип записи и данные).
+ * Повторное применение записей идемпотентно: для каждого ID побеждает последняя запись,
+ * поэтому журнал можно проигрывать поверх любого снимка, сделанного во время его ведения.
+ * Оборванная или повреждённая запись в конце журнала (например, после сбоя) отбрасывается.
+ */
+public class Journal implements CollectionListener, Closeable {
+    /** Имя файла журнала по умолчанию */
+    public static final String DEFAULT_JOURNAL_FILE = "flats.journal";
+    private static final int MAGIC = 0x464C544A;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 1 << 24;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+
+    private static final byte NEW_FALSE = 0;
+    private static final byte NEW_TRUE = 1;
+    private static final byte NEW_NULL = 2;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private Journal(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Открывает журнал, создавая файл при необходимости.
+     *
+     * @param filePath путь к файлу журнала
+     * @return открытый журнал
+     * @throws IOException при ошибке открытия или если файл не является журналом
+     */
+    public static Journal open(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION);
+                header.flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Not a journal file: " + filePath);
+                }
+                short version = header.getShort();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported journal version: " + version);
+                }
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Journal(path, channel);
+    }
+
+    /**
+     * Применяет записи журнала к хранилищу.
+     * Должно вызываться до регистрации журнала слушателем хранилища, чтобы записи не дублировались.
+     * Если в конце журнала найдена оборванная или нечитаемая запись, журнал обрезается до последней целой записи.
+     *
+     * @param flats хранилище, к которому применяются изменения
+     * @return количество применённых записей
+     * @throws IOException при ошибке чтения журнала
+     */
+    public synchronized int replay(FlatRepository flats) throws IOException {
+        long size = channel.size();
+        long position = HEADER_SIZE;
+        int applied = 0;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        ByteBuffer payload = ByteBuffer.allocate(256);
+
+        while (position + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(recordHeader, position);
+            recordHeader.flip();
+            int length = recordHeader.getInt();
+            int checksum = recordHeader.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+            }
+            payload.clear().limit(length);
+            readFully(payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            try {
+                apply(flats, payload);
+            } catch (IOException | RuntimeException e) {
+                // Запись с верной контрольной суммой, но нечитаемым содержимым: дальше журналу доверять нельзя
+                System.err.println("Warning: Corrupt journal record at offset " + position + " - " + e);
+                break;
+            }
+            applied++;
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        if (position < size) {
+            System.err.println("Warning: Discarding " + (size - position) + " byte(s) of incomplete journal tail");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+        return applied;
+    }
+
+    /**
+     * Очищает журнал после того, как его содержимое сохранено в снимок.
+     *
+     * @throws IOException при ошибке записи
+     */
+    public synchronized void truncate() throws IOException {
+        channel.truncate(HEADER_SIZE);
+        channel.position(HEADER_SIZE);
+        channel.force(true);
+    }
+
+    /**
+     * @return текущий размер файла журнала в байтах
+     * @throws IOException при ошибке доступа к файлу
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * @return путь к файлу журнала
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Снимок, поверх которого проигрывается журнал: {@value FlatSnapshot#DEFAULT_SNAPSHOT_FILE}
+     * в каталоге журнала. Уплотнение и загрузка снимка записывают в него новую базу перед очисткой журнала.
+     *
+     * @return путь к базовому снимку
+     */
+    public Path getBaseSnapshot() {
+        return path.resolveSibling(FlatSnapshot.DEFAULT_SNAPSHOT_FILE);
+    }
+
+    @Override
+    public synchronized void onAdd(Flat flat) {
+        writePut(flat);
+    }
+
+    @Override
+    public synchronized void onReplace(Flat previous, Flat updated) {
+        writePut(updated);
+    }
+
+    @Override
+    public synchronized void onRemove(Flat flat) {
+        try {
+            startRecord(REMOVE);
+            record.writeLong(flat.getId());
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write journal record", e);
+        }
+    }
+
+    @Override
+    public synchronized void onClear() {
+        try {
+            startRecord(CLEAR);
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write journal record", e);
+        }
+    }
+
+    /**
+     * Сбрасывает журнал на диск и закрывает файл.
+     *
+     * @throws IOException при ошибке записи
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void writePut(Flat flat) {
+        try {
+            ZonedDateTime date = flat.getCreationDate();
+            startRecord(PUT);
+            record.writeLong(flat.getId());
+            record.writeInt(flat.getCoordinates().getX());
+            record.writeInt(flat.getCoordinates().getY());
+            record.writeLong(date.toEpochSecond());
+            record.writeInt(date.getNano());
+            writeString(date.getZone().getId());
+            record.writeLong(flat.getArea());
+            record.writeLong(flat.getNumberOfRooms());
+            record.writeDouble(flat.getTimeToMetroByTransport());
+            record.writeByte(flat.getView().ordinal());
+            record.writeByte(flat.isNew() == null ? NEW_NULL : (flat.isNew() ? NEW_TRUE : NEW_FALSE));
+            House house = flat.getHouse();
+            record.writeBoolean(house != null);
+            if (house != null) {
+                writeString(house.getName());
+                record.writeInt(house.getYear());
+                record.writeInt(house.getNumberOfFlatsOnFloor());
+            }
+            writeString(flat.getName());
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write journal record", e);
+        }
+    }
+
+    /**
+     * Начинает новую запись. Буфер сбрасывается здесь, а не только после записи в файл:
+     * если формирование предыдущей записи прервалось исключением, её остаток не попадёт в следующую.
+     */
+    private void startRecord(byte type) throws IOException {
+        recordBytes.reset();
+        record.writeByte(type);
+    }
+
+    /**
+     * Дописывает подготовленную запись в конец журнала одним вызовом записи.
+     */
+    private void append() throws IOException {
+        byte[] bytes = recordBytes.toByteArray();
+        recordBytes.reset();
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+        buffer.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.writeInt(bytes.length);
+        record.write(bytes);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Применяет одну запись журнала к хранилищу.
+     */
+    private static void apply(FlatRepository flats, ByteBuffer payload) throws IOException {
+        byte type = payload.get();
+        switch (type) {
+            case PUT:
+                Flat flat = readFlat(payload);
+                if (flats.replace(flat) == null) {
+                    flats.add(flat);
+                }
+                break;
+            case REMOVE:
+                flats.removeById(payload.getLong());
+                break;
+            case CLEAR:
+                flats.clear();
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static Flat readFlat(ByteBuffer in) {
+        Flat.Builder flat = Flat.builder();
+        flat.setId(in.getLong());
+        flat.setCoordinates(new Coordinates(in.getInt(), in.getInt()));
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        flat.setCreationDate(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), ZoneId.of(readString(in))));
+        flat.setArea(in.getLong());
+        flat.setNumberOfRooms(in.getLong());
+        flat.setTimeToMetroByTransport(in.getDouble());
+        flat.setView(View.values()[in.get()]);
+        byte isNew = in.get();
+        flat.setNew(isNew == NEW_NULL ? null : isNew == NEW_TRUE);
+        if (in.get() != 0) {
+            flat.setHouse(new House(readString(in), in.getInt(), in.getInt()));
+        }
+        flat.setName(readString(in));
+        return flat.build();
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,188 @@
+package flatset.storage;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.utils.MemoryLayout;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+
+/**
+ * Объём памяти, занимаемый коллекцией, с разбивкой по составляющим.
+ * Размеры считаются по модели размещения объектов {@link MemoryLayout} обходом структур хранилища,
+ * то есть это удерживаемый коллекцией объём, а не оценка по количеству элементов.
+ * Объекты, общие для всей JVM (зоны и смещения часового пояса, кэшированные Boolean, Long и LocalTime),
+ * не учитываются; дом учитывается один раз, сколько бы квартир на него ни ссылалось.
+ *
+ * Квартиры, их названия и даты для больших коллекций измеряются по выборке из {@value #SAMPLE_SIZE}
+ * квартир (первых в порядке хэш-таблицы ID, то есть практически случайных), результат масштабируется
+ * на всю коллекцию. Поэтому измерение стоит O(размер выборки + количество домов + количество блоков индексов)
+ * независимо от количества квартир. Индексы, пул домов и статистика измеряются точно.
+ */
+public class MemoryReport {
+    /** Количество квартир, начиная с которого измеряется выборка */
+    public static final int SAMPLE_SIZE = 4096;
+
+    /**
+     * Составляющая занимаемой памяти.
+     */
+    public enum Component {
+        FLATS("flats", false),
+        NAMES("names", false),
+        DATES("dates", false),
+        HOUSES("houses", false),
+        ID_INDEX("id index", true),
+        ROOMS_INDEX("rooms index", true),
+        SPATIAL_INDEX("spatial index", true),
+        AREA_INDEX("area index", true),
+        METRO_INDEX("metro index", true),
+        STATISTICS("statistics", true);
+
+        private final String label;
+        private final boolean index;
+
+        Component(String label, boolean index) {
+            this.label = label;
+            this.index = index;
+        }
+
+        /**
+         * @return название составляющей для вывода
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return true, если составляющая — индекс или статистика коллекции
+         */
+        public boolean isIndex() {
+            return index;
+        }
+    }
+
+    private final MemoryLayout layout;
+    private final long[] bytes = new long[Component.values().length];
+    private final int flats;
+    private final int sampledFlats;
+
+    private MemoryReport(MemoryLayout layout, int flats, int sampledFlats) {
+        this.layout = layout;
+        this.flats = flats;
+        this.sampledFlats = sampledFlats;
+    }
+
+    /**
+     * Измеряет хранилище. Вызывается под блокировкой хранилища ({@link FlatRepository#measureMemory}).
+     */
+    static MemoryReport measure(FlatRepository repository, MemoryLayout layout) {
+        int size = repository.size();
+        int sample = Math.min(size, SAMPLE_SIZE);
+        MemoryReport report = new MemoryReport(layout, size, sample);
+
+        long flatBytes = 0;
+        long nameBytes = 0;
+        long dateBytes = 0;
+        Iterator<Flat> iterator = repository.iterator();
+        for (int i = 0; i < sample; i++) {
+            Flat flat = iterator.next();
+            flatBytes += layout.shallowSize(Flat.class) + layout.shallowSize(Coordinates.class);
+            Boolean isNew = flat.isNew();
+            if (isNew != null && isNew != Boolean.TRUE && isNew != Boolean.FALSE) {
+                flatBytes += layout.shallowSize(Boolean.class);
+            }
+            nameBytes += layout.stringSize(flat.getName());
+            dateBytes += dateSize(layout, flat.getCreationDate());
+        }
+        report.bytes[Component.FLATS.ordinal()] = report.scale(flatBytes);
+        report.bytes[Component.NAMES.ordinal()] = report.scale(nameBytes);
+        report.bytes[Component.DATES.ordinal()] = report.scale(dateBytes);
+
+        report.bytes[Component.HOUSES.ordinal()] = repository.getHousePool().retainedSize(layout);
+        report.bytes[Component.ID_INDEX.ordinal()] = repository.primaryIndexSize(layout);
+        report.bytes[Component.ROOMS_INDEX.ordinal()] = repository.getRoomsIndex().retainedSize(layout);
+        report.bytes[Component.SPATIAL_INDEX.ordinal()] = repository.getSpatialIndex().retainedSize(layout);
+        report.bytes[Component.AREA_INDEX.ordinal()] = repository.getAreaIndex().retainedSize(layout);
+        report.bytes[Component.METRO_INDEX.ordinal()] = repository.getMetroIndex().retainedSize(layout);
+        report.bytes[Component.STATISTICS.ordinal()] = repository.getStatistics().retainedSize(layout);
+        return report;
+    }
+
+    private static long dateSize(MemoryLayout layout, ZonedDateTime date) {
+        long size = layout.shallowSize(ZonedDateTime.class) + layout.shallowSize(LocalDateTime.class)
+                + layout.shallowSize(LocalDate.class);
+        LocalTime time = date.toLocalTime();
+        if (time.getMinute() != 0 || time.getSecond() != 0 || time.getNano() != 0) {
+            // Время ровно в час берётся из кэша LocalTime
+            size += layout.shallowSize(LocalTime.class);
+        }
+        return size;
+    }
+
+    private long scale(long sampleBytes) {
+        return sampledFlats == 0 ? 0 : Math.round((double) sampleBytes * flats / sampledFlats);
+    }
+
+    /**
+     * @param component составляющая
+     * @return занимаемая ею память в байтах
+     */
+    public long get(Component component) {
+        return bytes[component.ordinal()];
+    }
+
+    /**
+     * @return память, занимаемая индексами и статистикой, в байтах
+     */
+    public long getIndexTotal() {
+        long total = 0;
+        for (Component component : Component.values()) {
+            if (component.isIndex()) {
+                total += get(component);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return память, занимаемая коллекцией, в байтах
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long value : bytes) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * @return количество квартир в коллекции
+     */
+    public int getFlats() {
+        return flats;
+    }
+
+    /**
+     * @return количество измеренных квартир (равно количеству квартир, если выборка не понадобилась)
+     */
+    public int getSampledFlats() {
+        return sampledFlats;
+    }
+
+    /**
+     * @return true, если квартиры измерены по выборке
+     */
+    public boolean isSampled() {
+        return sampledFlats < flats;
+    }
+
+    /**
+     * @return модель размещения объектов, по которой выполнено измерение
+     */
+    public MemoryLayout getLayout() {
+        return layout;
+    }
+}
@@ -0,0 +1,324 @@
+package flatset.storage;
+
+import flatset.Flat;
+import flatset.utils.MemoryLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Упорядоченный индекс квартир по числовому полю для запросов по диапазону и top-k.
+ * Пары (ключ, ID) хранятся отсортированными в блоках по {@value #BLOCK_SIZE} элементов
+ * в параллельных массивах long без упаковки; блоки упорядочены, переполненный блок делится пополам,
+ * пустой удаляется. Поэтому добавление и удаление стоят O(log n + BLOCK_SIZE), а обход диапазона —
+ * O(log n + k) без копирования и сортировки коллекции. Квартиры с равным ключом идут по возрастанию ID.
+ *
+ * Ключ — значение поля, приведённое к long с сохранением порядка: целые поля берутся как есть,
+ * вещественные кодируются через {@link #sortableKey(double)}.
+ */
+public class RangeIndex implements CollectionListener {
+    private static final int BLOCK_SIZE = 512;
+
+    private final String field;
+    private final ToLongFunction<Flat> key;
+    private final List<Block> blocks = new ArrayList<>();
+    private int size;
+
+    /**
+     * Блок отсортированных пар (ключ, ID).
+     */
+    private static final class Block {
+        final long[] keys = new long[BLOCK_SIZE];
+        final long[] ids = new long[BLOCK_SIZE];
+        int count;
+    }
+
+    /**
+     * @param field имя поля для сообщений
+     * @param key функция, возвращающая ключ квартиры
+     */
+    public RangeIndex(String field, ToLongFunction<Flat> key) {
+        this.field = field;
+        this.key = key;
+    }
+
+    /**
+     * Кодирует число double в long так, что порядок long совпадает с числовым порядком double;
+     * соседние значения double получают соседние ключи. -0.0 кодируется как 0.0.
+     *
+     * @param value число (не NaN)
+     * @return ключ
+     */
+    public static long sortableKey(double value) {
+        long bits = Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Восстанавливает число по ключу, полученному из {@link #sortableKey(double)}.
+     *
+     * @param key ключ
+     * @return число
+     */
+    public static double fromSortableKey(long key) {
+        return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    }
+
+    /**
+     * @return имя поля
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return количество квартир в индексе
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return наименьший ключ
+     * @throws NoSuchElementException если индекс пуст
+     */
+    public long firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return blocks.get(0).keys[0];
+    }
+
+    /**
+     * @return наибольший ключ
+     * @throws NoSuchElementException если индекс пуст
+     */
+    public long lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        Block block = blocks.get(blocks.size() - 1);
+        return block.keys[block.count - 1];
+    }
+
+    /**
+     * Оценивает память, занимаемую индексом (без самих квартир).
+     *
+     * @param layout модель размещения объектов
+     * @return размер в байтах
+     */
+    long retainedSize(MemoryLayout layout) {
+        return layout.shallowSize(getClass()) + layout.shallowSize(ArrayList.class)
+                + layout.arraySize(Object.class, blocks.size())
+                + blocks.size() * (layout.shallowSize(Block.class) + 2 * layout.arraySize(long.class, BLOCK_SIZE));
+    }
+
+    @Override
+    public void onAdd(Flat flat) {
+        insert(key.applyAsLong(flat), flat.getId());
+    }
+
+    @Override
+    public void onRemove(Flat flat) {
+        remove(key.applyAsLong(flat), flat.getId());
+    }
+
+    @Override
+    public void onReplace(Flat previous, Flat updated) {
+        long before = key.applyAsLong(previous);
+        long after = key.applyAsLong(updated);
+        if (before != after) {
+            remove(before, previous.getId());
+            insert(after, updated.getId());
+        }
+    }
+
+    @Override
+    public void onClear() {
+        blocks.clear();
+        size = 0;
+    }
+
+    /**
+     * Передаёт ID квартир с ключом в диапазоне [low, high] по возрастанию ключа, пока действие возвращает true.
+     *
+     * @param low нижняя граница ключа (включительно)
+     * @param high верхняя граница ключа (включительно)
+     * @param action действие; false прекращает обход
+     */
+    public void forEachInRange(long low, long high, LongPredicate action) {
+        if (low > high) {
+            return;
+        }
+        int b = firstBlock(low, Long.MIN_VALUE);
+        if (b == blocks.size()) {
+            return;
+        }
+        int i = position(blocks.get(b), low, Long.MIN_VALUE);
+        for (; b < blocks.size(); b++, i = 0) {
+            Block block = blocks.get(b);
+            for (; i < block.count; i++) {
+                if (block.keys[i] > high || !action.test(block.ids[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Передаёт ID квартир по убыванию ключа (при равном ключе — по убыванию ID), пока действие возвращает true.
+     *
+     * @param action действие; false прекращает обход
+     */
+    public void forEachDescending(LongPredicate action) {
+        for (int b = blocks.size() - 1; b >= 0; b--) {
+            Block block = blocks.get(b);
+            for (int i = block.count - 1; i >= 0; i--) {
+                if (!action.test(block.ids[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Считает квартиры с ключом в диапазоне [low, high], не обходя их по одной:
+     * полностью попавшие в диапазон блоки учитываются целиком.
+     *
+     * @return количество квартир
+     */
+    public int count(long low, long high) {
+        if (low > high || size == 0) {
+            return 0;
+        }
+        int first = firstBlock(low, Long.MIN_VALUE);
+        if (first == blocks.size()) {
+            return 0;
+        }
+        int last = firstBlock(high, Long.MAX_VALUE);
+        int start = position(blocks.get(first), low, Long.MIN_VALUE);
+        if (last == blocks.size()) {
+            last = blocks.size() - 1;
+        }
+        int end = position(blocks.get(last), high, Long.MAX_VALUE);
+        if (first == last) {
+            return Math.max(0, end - start);
+        }
+        int count = blocks.get(first).count - start + end;
+        for (int b = first + 1; b < last; b++) {
+            count += blocks.get(b).count;
+        }
+        return count;
+    }
+
+    /**
+     * ID квартир с ключом в диапазоне [low, high] в порядке возрастания ID.
+     *
+     * @return массив ID
+     */
+    public long[] idsInRange(long low, long high) {
+        long[] ids = new long[count(low, high)];
+        if (ids.length == 0) {
+            return ids;
+        }
+        int[] filled = new int[1];
+        forEachInRange(low, high, id -> {
+            ids[filled[0]++] = id;
+            return filled[0] < ids.length;
+        });
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private void insert(long k, long id) {
+        int b;
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+            b = 0;
+        } else {
+            b = Math.min(firstBlock(k, id), blocks.size() - 1);
+        }
+        Block block = blocks.get(b);
+        int i = position(block, k, id);
+        System.arraycopy(block.keys, i, block.keys, i + 1, block.count - i);
+        System.arraycopy(block.ids, i, block.ids, i + 1, block.count - i);
+        block.keys[i] = k;
+        block.ids[i] = id;
+        block.count++;
+        size++;
+        if (block.count == BLOCK_SIZE) {
+            // При добавлении в конец индекса (ключи растут) нижний блок остаётся заполненным
+            Block upper = new Block();
+            int half = b == blocks.size() - 1 && i == BLOCK_SIZE - 1 ? BLOCK_SIZE - 1 : BLOCK_SIZE / 2;
+            System.arraycopy(block.keys, half, upper.keys, 0, BLOCK_SIZE - half);
+            System.arraycopy(block.ids, half, upper.ids, 0, BLOCK_SIZE - half);
+            upper.count = BLOCK_SIZE - half;
+            block.count = half;
+            blocks.add(b + 1, upper);
+        }
+    }
+
+    private void remove(long k, long id) {
+        int b = firstBlock(k, id);
+        if (b == blocks.size()) {
+            return;
+        }
+        Block block = blocks.get(b);
+        int i = position(block, k, id);
+        if (i == block.count || block.keys[i] != k || block.ids[i] != id) {
+            return;
+        }
+        System.arraycopy(block.keys, i + 1, block.keys, i, block.count - i - 1);
+        System.arraycopy(block.ids, i + 1, block.ids, i, block.count - i - 1);
+        block.count--;
+        size--;
+        if (block.count == 0) {
+            blocks.remove(b);
+        }
+    }
+
+    /**
+     * Номер первого блока, последняя пара которого не меньше (k, id), или количество блоков.
+     */
+    private int firstBlock(long k, long id) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Block block = blocks.get(middle);
+            int last = block.count - 1;
+            if (compare(block.keys[last], block.ids[last], k, id) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Позиция первой пары блока, не меньшей (k, id).
+     */
+    private static int position(Block block, long k, long id) {
+        int low = 0;
+        int high = block.count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(block.keys[middle], block.ids[middle], k, id) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(long k1, long id1, long k2, long id2) {
+        int byKey = Long.compare(k1, k2);
+        return byKey != 0 ? byKey : Long.compare(id1, id2);
+    }
+}
@@ -0,0 +1,140 @@
+package flatset.storage;
+
+import flatset.Flat;
+import flatset.utils.MemoryLayout;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Вторичный индекс квартир по количеству комнат.
+ * ID квартир хранятся в {@link RangeIndex} с ключом "количество комнат": пары (комнаты, ID) лежат
+ * отсортированными в блоках массивов long без упаковки, поэтому ID одной группы обходятся сразу
+ * в порядке возрастания, без копирования и сортировки. Отдельно для каждого количества комнат
+ * хранится размер группы, ключи упорядочены по возрастанию. Индекс обновляется хранилищем
+ * при каждом изменении, поэтому группировка квартир по количеству комнат не требует прохода по всей коллекции.
+ */
+public class RoomsIndex implements CollectionListener {
+    private final RangeIndex ids = new RangeIndex("rooms", Flat::getNumberOfRooms);
+    private final TreeMap<Long, int[]> counts = new TreeMap<>();
+
+    @Override
+    public void onAdd(Flat flat) {
+        ids.onAdd(flat);
+        int[] count = counts.get(flat.getNumberOfRooms());
+        if (count == null) {
+            counts.put(flat.getNumberOfRooms(), new int[]{1});
+        } else {
+            count[0]++;
+        }
+    }
+
+    @Override
+    public void onRemove(Flat flat) {
+        ids.onRemove(flat);
+        int[] count = counts.get(flat.getNumberOfRooms());
+        if (count != null && --count[0] == 0) {
+            counts.remove(flat.getNumberOfRooms());
+        }
+    }
+
+    @Override
+    public void onReplace(Flat previous, Flat updated) {
+        if (previous.getNumberOfRooms() != updated.getNumberOfRooms()) {
+            onRemove(previous);
+            onAdd(updated);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        ids.onClear();
+        counts.clear();
+    }
+
+    /**
+     * @return различные количества комнат в порядке возрастания (только для чтения)
+     */
+    public NavigableSet<Long> roomCounts() {
+        return Collections.unmodifiableNavigableSet(counts.navigableKeySet());
+    }
+
+    /**
+     * Передаёт ID квартир с указанным количеством комнат в порядке возрастания, пока действие возвращает true.
+     *
+     * @param rooms количество комнат
+     * @param action действие; false прекращает обход
+     */
+    public void forEachWithRooms(long rooms, LongPredicate action) {
+        ids.forEachInRange(rooms, rooms, action);
+    }
+
+    /**
+     * @param rooms количество комнат
+     * @return ID квартир с указанным количеством комнат в порядке возрастания
+     */
+    public long[] idsWithRooms(long rooms) {
+        long[] result = new long[count(rooms)];
+        int[] filled = new int[1];
+        forEachWithRooms(rooms, id -> {
+            result[filled[0]++] = id;
+            return filled[0] < result.length;
+        });
+        return result;
+    }
+
+    /**
+     * @param low наименьшее количество комнат (включительно)
+     * @param high наибольшее количество комнат (включительно)
+     * @return ID квартир с количеством комнат в диапазоне в порядке возрастания
+     */
+    public long[] idsWithRooms(long low, long high) {
+        return low == high ? idsWithRooms(low) : ids.idsInRange(low, high);
+    }
+
+    /**
+     * @param rooms количество комнат
+     * @return количество квартир с указанным количеством комнат
+     */
+    public int count(long rooms) {
+        int[] count = counts.get(rooms);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * @param low наименьшее количество комнат (включительно)
+     * @param high наибольшее количество комнат (включительно)
+     * @return количество квартир с количеством комнат в диапазоне
+     */
+    public int count(long low, long high) {
+        return ids.count(low, high);
+    }
+
+    /**
+     * @return упорядоченный индекс пар (комнаты, ID); его концы — наименьшее и наибольшее количество комнат
+     */
+    RangeIndex getRangeIndex() {
+        return ids;
+    }
+
+    /**
+     * Оценивает память, занимаемую индексом (без самих квартир).
+     *
+     * @param layout модель размещения объектов
+     * @return размер в байтах
+     */
+    long retainedSize(MemoryLayout layout) {
+        long size = layout.shallowSize(getClass()) + ids.retainedSize(layout)
+                + layout.shallowSize(TreeMap.class) + layout.treeSize(counts.size());
+        for (long rooms : counts.keySet()) {
+            if (rooms < -128 || rooms > 127) {
+                // Меньшие значения Long берутся из общего кэша Long.valueOf
+                size += layout.shallowSize(Long.class);
+            }
+            size += layout.arraySize(int.class, 1);
+        }
+        return size;
+    }
+}
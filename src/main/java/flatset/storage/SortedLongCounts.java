@@ -0,0 +1,176 @@
+package flatset.storage;
+
+import flatset.utils.MemoryLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Упорядоченное мультимножество значений long: для каждого различного значения хранится количество повторений.
+ * Значения и количества лежат отсортированными в блоках до {@value #BLOCK_SIZE} элементов в параллельных
+ * массивах long и int без упаковки, как пары в {@link RangeIndex}; массивы блока растут по мере заполнения,
+ * поэтому несколько различных значений занимают несколько десятков байт, а не целый блок.
+ * Добавление и удаление стоят O(log n + BLOCK_SIZE), наименьшее и наибольшее значение — O(1).
+ */
+final class SortedLongCounts {
+    private static final int BLOCK_SIZE = 512;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private int distinct;
+
+    /**
+     * Блок отсортированных различных значений с количествами.
+     */
+    private static final class Block {
+        long[] keys;
+        int[] counts;
+        int size;
+
+        Block(int capacity) {
+            keys = new long[capacity];
+            counts = new int[capacity];
+        }
+    }
+
+    /**
+     * Добавляет одно повторение значения.
+     */
+    void add(long key) {
+        int b;
+        if (blocks.isEmpty()) {
+            blocks.add(new Block(INITIAL_CAPACITY));
+            b = 0;
+        } else {
+            b = Math.min(firstBlock(key), blocks.size() - 1);
+        }
+        Block block = blocks.get(b);
+        int i = position(block, key);
+        if (i < block.size && block.keys[i] == key) {
+            block.counts[i]++;
+            return;
+        }
+        if (block.size == block.keys.length) {
+            int capacity = Math.min(block.keys.length * 2, BLOCK_SIZE);
+            long[] keys = new long[capacity];
+            int[] counts = new int[capacity];
+            System.arraycopy(block.keys, 0, keys, 0, block.size);
+            System.arraycopy(block.counts, 0, counts, 0, block.size);
+            block.keys = keys;
+            block.counts = counts;
+        }
+        System.arraycopy(block.keys, i, block.keys, i + 1, block.size - i);
+        System.arraycopy(block.counts, i, block.counts, i + 1, block.size - i);
+        block.keys[i] = key;
+        block.counts[i] = 1;
+        block.size++;
+        distinct++;
+        if (block.size == BLOCK_SIZE) {
+            Block upper = new Block(BLOCK_SIZE);
+            int half = BLOCK_SIZE / 2;
+            System.arraycopy(block.keys, half, upper.keys, 0, BLOCK_SIZE - half);
+            System.arraycopy(block.counts, half, upper.counts, 0, BLOCK_SIZE - half);
+            upper.size = BLOCK_SIZE - half;
+            block.size = half;
+            blocks.add(b + 1, upper);
+        }
+    }
+
+    /**
+     * Удаляет одно повторение значения; отсутствующее значение игнорируется.
+     */
+    void remove(long key) {
+        int b = firstBlock(key);
+        if (b == blocks.size()) {
+            return;
+        }
+        Block block = blocks.get(b);
+        int i = position(block, key);
+        if (i == block.size || block.keys[i] != key || --block.counts[i] > 0) {
+            return;
+        }
+        System.arraycopy(block.keys, i + 1, block.keys, i, block.size - i - 1);
+        System.arraycopy(block.counts, i + 1, block.counts, i, block.size - i - 1);
+        block.size--;
+        distinct--;
+        if (block.size == 0) {
+            blocks.remove(b);
+        }
+    }
+
+    void clear() {
+        blocks.clear();
+        distinct = 0;
+    }
+
+    boolean isEmpty() {
+        return distinct == 0;
+    }
+
+    /**
+     * @return наименьшее значение (мультимножество не должно быть пустым)
+     */
+    long first() {
+        return blocks.get(0).keys[0];
+    }
+
+    /**
+     * @return наибольшее значение (мультимножество не должно быть пустым)
+     */
+    long last() {
+        Block block = blocks.get(blocks.size() - 1);
+        return block.keys[block.size - 1];
+    }
+
+    /**
+     * @return количество различных значений
+     */
+    int distinct() {
+        return distinct;
+    }
+
+    long retainedSize(MemoryLayout layout) {
+        long size = layout.shallowSize(getClass()) + layout.shallowSize(ArrayList.class)
+                + layout.arraySize(Object.class, blocks.size());
+        for (Block block : blocks) {
+            size += layout.shallowSize(Block.class) + layout.arraySize(long.class, block.keys.length)
+                    + layout.arraySize(int.class, block.counts.length);
+        }
+        return size;
+    }
+
+    /**
+     * Номер первого блока, последнее значение которого не меньше key, или количество блоков.
+     */
+    private int firstBlock(long key) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Block block = blocks.get(middle);
+            if (block.keys[block.size - 1] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Позиция первого значения блока, не меньшего key.
+     */
+    private static int position(Block block, long key) {
+        int low = 0;
+        int high = block.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (block.keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
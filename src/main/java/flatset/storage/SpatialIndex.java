@@ -0,0 +1,420 @@
+package flatset.storage;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.utils.LongHashMap;
+import flatset.utils.MemoryLayout;
+
+import java.util.Arrays;
+
+/**
+ * Пространственный индекс квартир по координатам: равномерная сетка квадратных ячеек.
+ * Ячейки хранятся в хэш-таблице по упакованному номеру (cx, cy), поэтому пустые области памяти не занимают;
+ * в ячейке ID и координаты квартир лежат в параллельных массивах без упаковки.
+ * Сторона ячейки — степень двойки. Когда в среднем на непустую ячейку приходится больше
+ * {@value #MAX_AVERAGE_OCCUPANCY} квартир, сетка перестраивается с ячейками вдвое меньше;
+ * проверка повторяется после удвоения количества квартир, поэтому перестройка амортизированно
+ * стоит O(1) на добавление даже для скоплений квартир в одной точке.
+ *
+ * Запрос по прямоугольнику просматривает только пересекающие его ячейки, поиск ближайших —
+ * концентрические кольца ячеек вокруг точки, пока следующее кольцо не может дать квартиру ближе
+ * уже найденных.
+ */
+public class SpatialIndex implements CollectionListener {
+    /** Начальная сторона ячейки: 2^10 */
+    private static final int INITIAL_SHIFT = 10;
+    private static final int MAX_AVERAGE_OCCUPANCY = 16;
+    private static final long[] NO_IDS = new long[0];
+
+    private LongHashMap<Cell> cells = new LongHashMap<>();
+    private int shift = INITIAL_SHIFT;
+    private int size;
+    /** Размер индекса, при котором снова проверяется заполненность ячеек */
+    private int nextRefine = MAX_AVERAGE_OCCUPANCY;
+
+    /**
+     * Ячейка сетки: квартиры, координаты которых попадают в квадрат с номером (cx, cy).
+     */
+    private static final class Cell {
+        final int cx;
+        final int cy;
+        long[] ids = new long[4];
+        int[] xs = new int[4];
+        int[] ys = new int[4];
+        int count;
+
+        Cell(int cx, int cy) {
+            this.cx = cx;
+            this.cy = cy;
+        }
+
+        void add(long id, int x, int y) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            ids[count] = id;
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+
+        boolean remove(long id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    count--;
+                    ids[i] = ids[count];
+                    xs[i] = xs[count];
+                    ys[i] = ys[count];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void onAdd(Flat flat) {
+        Coordinates coordinates = flat.getCoordinates();
+        insert(flat.getId(), coordinates.getX(), coordinates.getY());
+        size++;
+        if (size >= nextRefine) {
+            refine();
+        }
+    }
+
+    @Override
+    public void onRemove(Flat flat) {
+        Coordinates coordinates = flat.getCoordinates();
+        int cx = coordinates.getX() >> shift;
+        int cy = coordinates.getY() >> shift;
+        long key = key(cx, cy);
+        Cell cell = cells.get(key);
+        if (cell != null && cell.remove(flat.getId())) {
+            size--;
+            if (cell.count == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void onReplace(Flat previous, Flat updated) {
+        Coordinates before = previous.getCoordinates();
+        Coordinates after = updated.getCoordinates();
+        if (before.getX() != after.getX() || before.getY() != after.getY()) {
+            onRemove(previous);
+            onAdd(updated);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        cells = new LongHashMap<>();
+        shift = INITIAL_SHIFT;
+        size = 0;
+        nextRefine = MAX_AVERAGE_OCCUPANCY;
+    }
+
+    /**
+     * @return количество квартир в индексе
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return сторона ячейки сетки
+     */
+    public int getCellSize() {
+        return 1 << shift;
+    }
+
+    /**
+     * @return количество непустых ячеек
+     */
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    /**
+     * Оценивает память, занимаемую индексом (без самих квартир).
+     *
+     * @param layout модель размещения объектов
+     * @return размер в байтах
+     */
+    long retainedSize(MemoryLayout layout) {
+        long size = layout.shallowSize(getClass()) + layout.shallowSize(LongHashMap.class)
+                + layout.arraySize(long.class, cells.capacity()) + layout.arraySize(Object.class, cells.capacity());
+        for (Cell cell : cells) {
+            size += layout.shallowSize(Cell.class) + layout.arraySize(long.class, cell.ids.length)
+                    + layout.arraySize(int.class, cell.xs.length) + layout.arraySize(int.class, cell.ys.length);
+        }
+        return size;
+    }
+
+    /**
+     * Находит квартиры в прямоугольнике (границы включаются; порядок углов не важен).
+     *
+     * @return ID квартир в порядке возрастания
+     */
+    public long[] within(int x1, int y1, int x2, int y2) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        int fromCx = minX >> shift;
+        int toCx = maxX >> shift;
+        int fromCy = minY >> shift;
+        int toCy = maxY >> shift;
+
+        IdBuffer found = new IdBuffer();
+        long cellsInRange = ((long) toCx - fromCx + 1) * ((long) toCy - fromCy + 1);
+        if (cellsInRange > cells.size()) {
+            // Прямоугольник покрывает больше ячеек, чем занято: быстрее обойти занятые
+            for (Cell cell : cells) {
+                if (cell.cx >= fromCx && cell.cx <= toCx && cell.cy >= fromCy && cell.cy <= toCy) {
+                    found.collect(cell, minX, minY, maxX, maxY);
+                }
+            }
+        } else {
+            for (long cx = fromCx; cx <= toCx; cx++) {
+                for (long cy = fromCy; cy <= toCy; cy++) {
+                    Cell cell = cells.get(key((int) cx, (int) cy));
+                    if (cell != null) {
+                        found.collect(cell, minX, minY, maxX, maxY);
+                    }
+                }
+            }
+        }
+        return found.toSortedArray();
+    }
+
+    /**
+     * Растущий буфер ID без упаковки.
+     */
+    private static final class IdBuffer {
+        long[] ids = NO_IDS;
+        int size;
+
+        /**
+         * Добавляет ID квартир ячейки, попавших в прямоугольник.
+         */
+        void collect(Cell cell, int minX, int minY, int maxX, int maxY) {
+            for (int i = 0; i < cell.count; i++) {
+                int x = cell.xs[i];
+                int y = cell.ys[i];
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    if (size == ids.length) {
+                        ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+                    }
+                    ids[size++] = cell.ids[i];
+                }
+            }
+        }
+
+        long[] toSortedArray() {
+            long[] result = size == ids.length ? ids : Arrays.copyOf(ids, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    /**
+     * Находит k квартир, ближайших к точке (евклидово расстояние; при равенстве — меньший ID).
+     *
+     * @param x координата x точки
+     * @param y координата y точки
+     * @param k количество квартир
+     * @return ID не более чем k квартир в порядке возрастания расстояния
+     */
+    public long[] nearest(int x, int y, int k) {
+        if (k <= 0 || size == 0) {
+            return NO_IDS;
+        }
+        Nearest best = new Nearest(Math.min(k, size), x, y);
+        int cx = x >> shift;
+        int cy = y >> shift;
+        long visited = 0;
+        for (int r = 0; ; r++) {
+            if (r > 0) {
+                double gap = ringGap(x, y, cx, cy, r);
+                if (best.isFull() && gap * gap > best.worst()) {
+                    break;
+                }
+            }
+            if ((2L * r + 1) * (2L * r + 1) > 4L * cells.size()) {
+                // Кольца разрослись сильнее, чем занято ячеек: досматриваем оставшиеся ячейки подряд
+                for (Cell cell : cells) {
+                    if (Math.max(Math.abs((long) cell.cx - cx), Math.abs((long) cell.cy - cy)) >= r) {
+                        best.offer(cell);
+                    }
+                }
+                break;
+            }
+            if (r == 0) {
+                visited += visit(best, cx, cy);
+            } else {
+                for (long i = -r; i <= r; i++) {
+                    visited += visit(best, cx + i, cy - r);
+                    visited += visit(best, cx + i, cy + r);
+                }
+                for (long j = -r + 1; j <= r - 1; j++) {
+                    visited += visit(best, cx - r, cy + j);
+                    visited += visit(best, cx + r, cy + j);
+                }
+            }
+            if (visited == size) {
+                break;
+            }
+        }
+        return best.sortedIds();
+    }
+
+    /**
+     * Нижняя граница расстояния от точки до квартир кольца r вокруг её ячейки.
+     */
+    private double ringGap(int x, int y, int cx, int cy, int r) {
+        long left = x - (((long) cx - r + 1) << shift);
+        long right = (((long) cx + r) << shift) - x;
+        long bottom = y - (((long) cy - r + 1) << shift);
+        long top = (((long) cy + r) << shift) - y;
+        return Math.max(0, Math.min(Math.min(left, right), Math.min(bottom, top)));
+    }
+
+    private int visit(Nearest best, long cx, long cy) {
+        if (cx < Integer.MIN_VALUE || cx > Integer.MAX_VALUE || cy < Integer.MIN_VALUE || cy > Integer.MAX_VALUE) {
+            return 0;
+        }
+        Cell cell = cells.get(key((int) cx, (int) cy));
+        if (cell == null) {
+            return 0;
+        }
+        best.offer(cell);
+        return cell.count;
+    }
+
+    /**
+     * Ограниченная max-куча кандидатов: на вершине — самый дальний из найденных.
+     */
+    private static final class Nearest {
+        final double[] distances;
+        final long[] ids;
+        final int x;
+        final int y;
+        int count;
+
+        Nearest(int k, int x, int y) {
+            this.distances = new double[k];
+            this.ids = new long[k];
+            this.x = x;
+            this.y = y;
+        }
+
+        boolean isFull() {
+            return count == ids.length;
+        }
+
+        double worst() {
+            return distances[0];
+        }
+
+        void offer(Cell cell) {
+            for (int i = 0; i < cell.count; i++) {
+                double dx = (double) cell.xs[i] - x;
+                double dy = (double) cell.ys[i] - y;
+                offer(dx * dx + dy * dy, cell.ids[i]);
+            }
+        }
+
+        void offer(double distance, long id) {
+            if (count < ids.length) {
+                int i = count++;
+                while (i > 0) {
+                    int parent = (i - 1) >> 1;
+                    if (!farther(distance, id, distances[parent], ids[parent])) {
+                        break;
+                    }
+                    distances[i] = distances[parent];
+                    ids[i] = ids[parent];
+                    i = parent;
+                }
+                distances[i] = distance;
+                ids[i] = id;
+            } else if (farther(distances[0], ids[0], distance, id)) {
+                siftDown(distance, id);
+            }
+        }
+
+        private void siftDown(double distance, long id) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && farther(distances[child + 1], ids[child + 1], distances[child], ids[child])) {
+                    child++;
+                }
+                if (!farther(distances[child], ids[child], distance, id)) {
+                    break;
+                }
+                distances[i] = distances[child];
+                ids[i] = ids[child];
+                i = child;
+            }
+            distances[i] = distance;
+            ids[i] = id;
+        }
+
+        private static boolean farther(double d1, long id1, double d2, long id2) {
+            return d1 > d2 || (d1 == d2 && id1 > id2);
+        }
+
+        long[] sortedIds() {
+            long[] result = new long[count];
+            for (int i = count - 1; i >= 0; i--) {
+                result[i] = ids[0];
+                double lastDistance = distances[count - 1];
+                long lastId = ids[count - 1];
+                count--;
+                siftDown(lastDistance, lastId);
+            }
+            return result;
+        }
+    }
+
+    private void insert(long id, int x, int y) {
+        int cx = x >> shift;
+        int cy = y >> shift;
+        long key = key(cx, cy);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(cx, cy);
+            cells.put(key, cell);
+        }
+        cell.add(id, x, y);
+    }
+
+    /**
+     * Уменьшает ячейки, пока средняя заполненность непустой ячейки выше допустимой.
+     */
+    private void refine() {
+        while (shift > 0 && size > (long) MAX_AVERAGE_OCCUPANCY * cells.size()) {
+            LongHashMap<Cell> previous = cells;
+            cells = new LongHashMap<>(previous.size() * 4);
+            shift--;
+            for (Cell cell : previous) {
+                for (int i = 0; i < cell.count; i++) {
+                    insert(cell.ids[i], cell.xs[i], cell.ys[i]);
+                }
+            }
+        }
+        nextRefine = size > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : size * 2;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,35 @@
+package flatset.utils;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Буферизованный вывод в консоль для команд с большим объёмом вывода.
+ * Данные накапливаются в большом буфере и сбрасываются крупными блоками вместо
+ * синхронизированной записи в System.out на каждый элемент.
+ */
+public class ConsoleWriter {
+    /** Размер буфера по умолчанию */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Открывает буферизованный writer поверх текущего System.out.
+     * Writer нужно сбросить (flush) после вывода; закрывать его не следует, так как это закроет System.out.
+     *
+     * @return буферизованный writer
+     */
+    public static PrintWriter open() {
+        return open(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Открывает буферизованный writer поверх текущего System.out с указанным размером буфера.
+     *
+     * @param bufferSize размер буфера в символах
+     * @return буферизованный writer
+     */
+    public static PrintWriter open(int bufferSize) {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), bufferSize));
+    }
+}
@@ -0,0 +1,71 @@
+package flatset.utils;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+
+import java.io.PrintWriter;
+
+/**
+ * Потоковое форматирование квартир.
+ * Пишет тот же текст, что и {@link Flat#toString()}, но сразу в writer по частям,
+ * не собирая промежуточную строку для каждой квартиры.
+ */
+public class FlatFormatter {
+
+    /**
+     * Записывает текстовое представление квартиры (без перевода строки).
+     *
+     * @param out writer для вывода
+     * @param flat квартира
+     */
+    public static void write(PrintWriter out, Flat flat) {
+        out.write("Flat{id=");
+        out.print(flat.getId());
+        out.write(", name='");
+        out.print(flat.getName());
+        out.write("', coordinates=");
+        writeCoordinates(out, flat.getCoordinates());
+        out.write(", creationDate=");
+        out.print(flat.getCreationDate());
+        out.write(", area=");
+        out.print(flat.getArea());
+        out.write(", numberOfRooms=");
+        out.print(flat.getNumberOfRooms());
+        out.write(", isNew=");
+        out.print(flat.isNew());
+        out.write(", timeToMetroByTransport=");
+        out.print(flat.getTimeToMetroByTransport());
+        out.write(", view=");
+        out.print(flat.getView());
+        out.write(", house=");
+        writeHouse(out, flat.getHouse());
+        out.write('}');
+    }
+
+    private static void writeCoordinates(PrintWriter out, Coordinates coordinates) {
+        if (coordinates == null) {
+            out.write("null");
+            return;
+        }
+        out.write("Coordinates{x=");
+        out.print(coordinates.getX());
+        out.write(", y=");
+        out.print(coordinates.getY());
+        out.write('}');
+    }
+
+    private static void writeHouse(PrintWriter out, House house) {
+        if (house == null) {
+            out.write("null");
+            return;
+        }
+        out.write("House{name='");
+        out.print(house.getName());
+        out.write("', year=");
+        out.print(house.getYear());
+        out.write(", numberOfFlatsOnFloor=");
+        out.print(house.getNumberOfFlatsOnFloor());
+        out.write('}');
+    }
+}
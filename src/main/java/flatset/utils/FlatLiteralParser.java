@@ -0,0 +1,348 @@
+package flatset.utils;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+import flatset.View;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Однопроходный разборщик строкового литерала квартиры:
+ * {@code {name,x,y,area,numberOfRooms,isNew,timeToMetroByTransport,view[,houseName,houseYear,houseFlats]}},
+ * где данные дома можно также записать вложенными скобками: {@code ...,view,{houseName,houseYear,houseFlats}}.
+ * Фигурные скобки вокруг всего литерала необязательны.
+ *
+ * Строка просматривается на месте, без split, trim и substring для числовых полей:
+ * числа, флаг новизны и вид разбираются прямо по символам и сразу проверяются.
+ * Ошибки не выбрасываются, а запоминаются: {@link #parse(CharSequence)} возвращает false,
+ * а текст ошибки доступен через {@link #getError()}.
+ * Строки создаются только для названий квартиры и дома.
+ * Экземпляр хранит результат последнего разбора и может использоваться повторно, но не из нескольких потоков.
+ */
+public class FlatLiteralParser {
+    /** Описание формата для сообщений об ошибках */
+    public static final String FORMAT =
+            "{name,x,y,area,numberOfRooms,isNew,timeToMetroByTransport,view[,houseName,houseYear,houseFlats]}";
+
+    private static final int FLAT_FIELDS = 8;
+    private static final View[] VIEWS = View.values();
+    /** Степени десяти, точно представимые в double */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /** Максимальное количество цифр, при котором мантисса точно представима в double */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private CharSequence input;
+    private int pos;
+    private int limit;
+    private int tokenStart;
+    private int tokenEnd;
+    private String error;
+    private long number;
+
+    private String name;
+    private int x;
+    private int y;
+    private long area;
+    private long numberOfRooms;
+    private boolean isNew;
+    private double timeToMetroByTransport;
+    private View view;
+    private boolean hasHouse;
+    private String houseName;
+    private int houseYear;
+    private int houseFlats;
+
+    /**
+     * Разбирает литерал квартиры.
+     *
+     * @param input строка с литералом
+     * @return true, если литерал корректен; иначе false и {@link #getError()} возвращает причину
+     */
+    public boolean parse(CharSequence input) {
+        this.input = input;
+        error = null;
+        hasHouse = false;
+
+        int start = 0;
+        int end = input.length();
+        while (start < end && Character.isWhitespace(input.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(input.charAt(end - 1))) end--;
+        if (start < end && input.charAt(start) == '{') {
+            if (end - start < 2 || input.charAt(end - 1) != '}') {
+                return fail("Invalid format. Parameters must be in curly brackets");
+            }
+            start++;
+            end--;
+        }
+        pos = start;
+        limit = end;
+
+        if (!nextToken() || !readName("name")) return false;
+        name = takeText();
+        if (!nextToken() || !readLong("coordinate x", Integer.MIN_VALUE, Integer.MAX_VALUE, null)) return false;
+        x = (int) number;
+        if (!nextToken() || !readLong("coordinate y", -317, Integer.MAX_VALUE, "Coordinate y must be greater than -318")) {
+            return false;
+        }
+        y = (int) number;
+        if (!nextToken() || !readLong("area", 1, Long.MAX_VALUE, "Area must be a positive number")) return false;
+        area = number;
+        if (!nextToken() || !readLong("number of rooms", 1, Long.MAX_VALUE, "Number of rooms must be a positive number")) {
+            return false;
+        }
+        numberOfRooms = number;
+        if (!nextToken() || !readBoolean()) return false;
+        if (!nextToken() || !readTime()) return false;
+        if (!nextToken() || !readView()) return false;
+
+        if (pos > limit) {
+            return true;
+        }
+        return readHouse(end);
+    }
+
+    /**
+     * @return текст ошибки последнего разбора или null, если разбор успешен
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return true, если в последнем разобранном литерале указан дом
+     */
+    public boolean hasHouse() {
+        return hasHouse;
+    }
+
+    /**
+     * Создаёт квартиру из последнего успешно разобранного литерала.
+     *
+     * @param id ID квартиры
+     * @param creationDate дата создания
+     * @param houses функция, возвращающая канонический экземпляр дома (например, пул домов хранилища)
+     * @return новая квартира
+     */
+    public Flat build(long id, ZonedDateTime creationDate, UnaryOperator<House> houses) {
+        House house = hasHouse ? houses.apply(new House(houseName, houseYear, houseFlats)) : null;
+        return new Flat(id, name, new Coordinates(x, y), creationDate, area, numberOfRooms,
+                isNew, timeToMetroByTransport, view, house);
+    }
+
+    /**
+     * Разбирает данные дома: либо вложенный литерал в скобках, либо три последних поля.
+     */
+    private boolean readHouse(int end) {
+        int houseEnd = end;
+        while (pos < limit && Character.isWhitespace(input.charAt(pos))) pos++;
+        if (pos < limit && input.charAt(pos) == '{') {
+            int close = pos + 1;
+            while (close < limit && input.charAt(close) != '}') close++;
+            if (close == limit) {
+                return fail("Invalid format for house. Missing closing bracket");
+            }
+            for (int i = close + 1; i < end; i++) {
+                if (!Character.isWhitespace(input.charAt(i))) {
+                    return fail("Unexpected characters after house: " + input.subSequence(close + 1, end));
+                }
+            }
+            pos++;
+            houseEnd = close;
+            limit = close;
+        }
+
+        if (!nextToken() || !readName("house name")) return houseFail();
+        houseName = takeText();
+        if (!nextToken() || !readLong("house year", 1, Integer.MAX_VALUE, "House year must be a positive integer")) {
+            return houseFail();
+        }
+        houseYear = (int) number;
+        if (!nextToken() || !readLong("flats per floor", 1, Integer.MAX_VALUE,
+                "Number of flats in house must be positive")) {
+            return houseFail();
+        }
+        houseFlats = (int) number;
+        if (pos <= houseEnd) {
+            return fail("Too many values. Expected format: " + FORMAT);
+        }
+        hasHouse = true;
+        return true;
+    }
+
+    private boolean houseFail() {
+        if (error == null || error.startsWith("Expected")) {
+            error = "Invalid format for house. Required: houseName,houseYear,houseNumberOfFlats";
+        }
+        return false;
+    }
+
+    /**
+     * Выделяет следующее поле до запятой или границы литерала, отбрасывая пробелы по краям.
+     */
+    private boolean nextToken() {
+        if (pos > limit) {
+            return fail("Expected at least " + FLAT_FIELDS + " values separated by commas. Format: " + FORMAT);
+        }
+        int i = pos;
+        while (i < limit && input.charAt(i) != ',') i++;
+        int a = pos;
+        int b = i;
+        while (a < b && Character.isWhitespace(input.charAt(a))) a++;
+        while (b > a && Character.isWhitespace(input.charAt(b - 1))) b--;
+        tokenStart = a;
+        tokenEnd = b;
+        pos = i + 1;
+        return true;
+    }
+
+    private boolean readName(String field) {
+        if (tokenStart == tokenEnd) {
+            return fail(field + " cannot be empty");
+        }
+        return true;
+    }
+
+    private String takeText() {
+        return input.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * Разбирает целое число текущего поля и проверяет, что оно лежит в [min, max].
+     */
+    private boolean readLong(String field, long min, long max, String rangeMessage) {
+        int i = tokenStart;
+        if (i == tokenEnd) {
+            return fail(field + " cannot be empty");
+        }
+        boolean negative = false;
+        char first = input.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (i == tokenEnd) {
+                return invalid(field);
+            }
+        }
+        // Накопление в отрицательную сторону, чтобы представить Long.MIN_VALUE
+        long bound = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyBound = bound / 10;
+        long value = 0;
+        for (; i < tokenEnd; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value < multiplyBound) {
+                return invalid(field);
+            }
+            value *= 10;
+            if (value < bound + digit) {
+                return invalid(field);
+            }
+            value -= digit;
+        }
+        number = negative ? value : -value;
+        if (number < min || number > max) {
+            return rangeMessage == null ? invalid(field) : fail(rangeMessage);
+        }
+        return true;
+    }
+
+    private boolean readBoolean() {
+        if (matchesIgnoreCase("true")) {
+            isNew = true;
+            return true;
+        }
+        if (matchesIgnoreCase("false")) {
+            isNew = false;
+            return true;
+        }
+        return fail("isNew must be true or false");
+    }
+
+    /**
+     * Разбирает время до метро. Десятичные числа до 15 значащих цифр без экспоненты
+     * вычисляются напрямую (результат совпадает с Double.parseDouble), остальные записи
+     * передаются в Double.parseDouble.
+     */
+    private boolean readTime() {
+        if (tokenStart == tokenEnd) {
+            return fail("time to metro cannot be empty");
+        }
+        int i = tokenStart;
+        boolean negative = false;
+        char first = input.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long mantissa = 0;
+        boolean sawDigit = false;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < tokenEnd; i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                sawDigit = true;
+                if (mantissa != 0) digits++;
+                if (fractionDigits >= 0) fractionDigits++;
+                if (digits > MAX_EXACT_DIGITS) break;
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+
+        double value;
+        if (i == tokenEnd && sawDigit && fractionDigits < POWERS_OF_TEN.length) {
+            value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            if (negative) value = -value;
+        } else {
+            try {
+                value = Double.parseDouble(takeText());
+            } catch (NumberFormatException e) {
+                return invalid("time to metro");
+            }
+        }
+        if (value < 0) {
+            return fail("Time to metro must be non-negative");
+        }
+        timeToMetroByTransport = value;
+        return true;
+    }
+
+    private boolean readView() {
+        for (View candidate : VIEWS) {
+            if (matchesIgnoreCase(candidate.name())) {
+                view = candidate;
+                return true;
+            }
+        }
+        return fail("Invalid view: " + takeText() + ". Valid options: " + Arrays.toString(VIEWS));
+    }
+
+    private boolean matchesIgnoreCase(String word) {
+        if (tokenEnd - tokenStart != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toUpperCase(input.charAt(tokenStart + i)) != Character.toUpperCase(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean invalid(String field) {
+        return fail("Invalid value for " + field + ": " + takeText());
+    }
+
+    private boolean fail(String message) {
+        error = message;
+        return false;
+    }
+}
@@ -4,92 +4,197 @@ import flatset.Coordinates;
 import flatset.Flat;
 import flatset.House;
 import flatset.View;
+import flatset.storage.FlatRepository;
 
 import javax.json.Json;
-import javax.json.JsonArray;
+import javax.json.JsonException;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
+import javax.json.stream.JsonParser;
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.HashSet;
+import java.util.function.UnaryOperator;
 
 public class FlatLoader {
     private static final String DEFAULT_DATA_FILE = "flats.json";
+    /** Поле файла данных с наибольшим выданным ID квартиры */
+    public static final String LAST_ID_FIELD = "lastId";
+    /** Поле файла данных с массивом квартир */
+    public static final String FLATS_FIELD = "flats";
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    /** Размер файла, начиная с которого при старте используется параллельная загрузка */
+    private static final long PARALLEL_LOAD_THRESHOLD = 16L << 20;
 
     /**
-     * Загружает исходные данные из файла по умолчанию
-     * @return Множество загруженных квартир или пустое множество, если файл не найден
+     * Загружает исходные данные из файла по умолчанию.
+     * Если двоичный снимок существует и не старше JSON-файла, данные загружаются из снимка.
+     * Источник, время начала и длительность загрузки записываются в статистику хранилища.
+     * @return Хранилище загруженных квартир или пустое хранилище, если файл не найден
      */
-    public static HashSet<Flat> loadInitialData() {
+    public static FlatRepository loadInitialData() {
+        File snapshot = new File(FlatSnapshot.DEFAULT_SNAPSHOT_FILE);
+        File json = new File(DEFAULT_DATA_FILE);
+        if (snapshot.isFile() && (!json.exists() || snapshot.lastModified() >= json.lastModified())) {
+            try {
+                System.out.println("Loading snapshot from " + snapshot + "...");
+                Instant startedAt = Instant.now();
+                long started = System.nanoTime();
+                FlatRepository flats = FlatSnapshot.loadFromFile(snapshot.getPath());
+                flats.getStatistics().recordLoad(snapshot.getPath(), startedAt, System.nanoTime() - started);
+                System.out.println("Successfully loaded " + flats.size() + " apartments");
+                return flats;
+            } catch (Exception e) {
+                System.err.println("Warning: Failed to load snapshot - " + e.getMessage());
+            }
+        }
         return loadInitialData(DEFAULT_DATA_FILE);
     }
 
     /**
      * Загружает исходные данные из указанного файла
      * @param filePath Путь к JSON-файлу с данными о квартирах
-     * @return Множество загруженных квартир или пустое множество, если файл не найден/некорректен
+     * @return Хранилище загруженных квартир или пустое хранилище, если файл не найден/некорректен
      */
-    public static HashSet<Flat> loadInitialData(String filePath) {
+    public static FlatRepository loadInitialData(String filePath) {
         try {
             System.out.println("Loading data from " + filePath + "...");
-            HashSet<Flat> flats = loadFromFile(filePath);
+            Instant startedAt = Instant.now();
+            long started = System.nanoTime();
+            FlatRepository flats = shouldLoadInParallel(filePath)
+                    ? ParallelFlatLoader.loadFromFile(filePath)
+                    : loadFromFile(filePath);
+            flats.getStatistics().recordLoad(filePath, startedAt, System.nanoTime() - started);
             System.out.println("Successfully loaded " + flats.size() + " apartments");
             return flats;
         } catch (FileNotFoundException e) {
             System.out.println("Data file not found - starting with an empty collection");
-            return new HashSet<>();
+            return new FlatRepository();
         } catch (Exception e) {
             System.err.println("Warning: Failed to load data - " + e.getMessage());
-            return new HashSet<>();
+            return new FlatRepository();
         }
     }
 
     /**
-     * Непосредственно загружает квартиры из указанного JSON-файла
+     * Определяет, стоит ли загружать файл параллельно: файл должен быть достаточно большим,
+     * а в системе должно быть больше одного ядра.
+     */
+    private static boolean shouldLoadInParallel(String filePath) {
+        return new File(filePath).length() >= PARALLEL_LOAD_THRESHOLD
+                && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * Непосредственно загружает квартиры из указанного JSON-файла.
+     * Поддерживается как формат с сохранённым генератором ID ({"lastId": N, "flats": [...]}),
+     * так и старый формат в виде простого массива квартир.
+     * Генератор ID хранилища инициализируется сохранённой отметкой один раз при загрузке.
+     * Файл читается потоково: в памяти одновременно находится только текущая запись,
+     * поэтому пиковое потребление памяти не зависит от размера файла.
      * @param filePath Путь к JSON-файлу
-     * @return Множество загруженных квартир
+     * @return Хранилище загруженных квартир
      * @throws FileNotFoundException если указанный файл не существует
      * @throws IOException при проблемах с чтением файла
      * @throws javax.json.JsonException при ошибках парсинга JSON
      */
-    public static HashSet<Flat> loadFromFile(String filePath)
+    public static FlatRepository loadFromFile(String filePath)
             throws FileNotFoundException, IOException {
-        HashSet<Flat> flatSet = new HashSet<>();
+        FlatRepository flats = new FlatRepository();
 
         try (FileInputStream fis = new FileInputStream(filePath);
-             BufferedInputStream bis = new BufferedInputStream(fis);
-             JsonReader jsonReader = Json.createReader(bis)) {
-
-            JsonArray jsonArray = jsonReader.readArray();
-            for (JsonObject jsonObject : jsonArray.getValuesAs(JsonObject.class)) {
-                try {
-                    Flat flat = parseJsonObject(jsonObject);
-                    flatSet.add(flat);
-                } catch (Exception e) {
-                    System.err.println("Skipping invalid apartment record: " + e.getMessage());
-                }
+             BufferedInputStream bis = new BufferedInputStream(fis, READ_BUFFER_SIZE);
+             JsonParser parser = Json.createParser(bis)) {
+
+            if (!parser.hasNext()) {
+                throw new JsonException("Data file is empty");
+            }
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.START_ARRAY) {
+                readFlatArray(parser, flats);
+            } else if (event == JsonParser.Event.START_OBJECT) {
+                readEnvelope(parser, flats);
+            } else {
+                throw new JsonException("Expected an array of apartments or an object with the '" + FLATS_FIELD + "' field");
+            }
+        }
+        return flats;
+    }
+
+    /**
+     * Читает объект-обёртку {"lastId": N, "flats": [...]}; неизвестные поля пропускаются.
+     * Парсер должен стоять на событии START_OBJECT.
+     */
+    private static void readEnvelope(JsonParser parser, FlatRepository flats) {
+        while (parser.hasNext()) {
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_OBJECT) {
+                return;
+            }
+            String key = parser.getString();
+            event = parser.next();
+            if (LAST_ID_FIELD.equals(key) && event == JsonParser.Event.VALUE_NUMBER) {
+                flats.getIdSequence().advanceTo(parser.getLong());
+            } else if (FLATS_FIELD.equals(key) && event == JsonParser.Event.START_ARRAY) {
+                readFlatArray(parser, flats);
+            } else if (event == JsonParser.Event.START_OBJECT) {
+                parser.skipObject();
+            } else if (event == JsonParser.Event.START_ARRAY) {
+                parser.skipArray();
             }
         }
-        return flatSet;
+    }
+
+    /**
+     * Читает массив квартир, превращая каждый элемент в Flat сразу по мере чтения.
+     * Парсер должен стоять на событии START_ARRAY.
+     */
+    private static void readFlatArray(JsonParser parser, FlatRepository flats) {
+        while (parser.hasNext()) {
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_ARRAY) {
+                return;
+            }
+            if (event != JsonParser.Event.START_OBJECT) {
+                System.err.println("Skipping invalid apartment record: " + parser.getValue());
+                continue;
+            }
+            addRecord(flats, parser.getObject());
+        }
+    }
+
+    /**
+     * Добавляет одну запись в хранилище, пропуская некорректные записи и записи с повторяющимся ID.
+     */
+    private static void addRecord(FlatRepository flats, JsonObject jsonObject) {
+        try {
+            Flat flat = parseJsonObject(jsonObject, flats.getHousePool()::intern);
+            if (!flats.add(flat)) {
+                System.err.println("Skipping apartment record with duplicate id: " + flat.getId());
+            }
+        } catch (Exception e) {
+            System.err.println("Skipping invalid apartment record: " + e.getMessage());
+        }
     }
 
     /**
      * Парсит JSON-объект в объект Flat
      * @param jsonObject JSON-объект с данными о квартире
+     * @param houses возвращает канонический экземпляр дома, чтобы квартиры одного дома разделяли один объект
      * @return Распарсенный объект Flat
      * @throws IllegalArgumentException если отсутствуют обязательные поля или они некорректны
      */
-    private static Flat parseJsonObject(JsonObject jsonObject) {
-        Flat flat = new Flat();
+    static Flat parseJsonObject(JsonObject jsonObject, UnaryOperator<House> houses) {
+        Flat.Builder flat = Flat.builder();
 
         // Обязательные поля с валидацией
         if (!jsonObject.containsKey("id")) {
             throw new IllegalArgumentException("Missing mandatory field: id");
         }
-        flat.setId(jsonObject.getInt("id"));
+        flat.setId(jsonObject.getJsonNumber("id").longValueExact());
 
         flat.setName(getStringField(jsonObject, "name"));
         flat.setCreationDate(ZonedDateTime.parse(getStringField(jsonObject, "creationDate")));
@@ -109,7 +214,7 @@ public class FlatLoader {
         flat.setNumberOfRooms(getIntField(jsonObject, "numberOfRooms"));
 
         // Опциональное булево поле
-        if (jsonObject.containsKey("new")) {
+        if (jsonObject.containsKey("new") && !jsonObject.isNull("new")) {
             flat.setNew(jsonObject.getBoolean("new"));
         }
 
@@ -122,14 +227,14 @@ public class FlatLoader {
         // Дом (опционально)
         if (jsonObject.containsKey("house") && !jsonObject.isNull("house")) {
             JsonObject houseJson = jsonObject.getJsonObject("house");
-            House house = new House();
-            house.setName(getStringField(houseJson, "name"));
-            house.setYear(getIntField(houseJson, "year"));
-            house.setNumberOfFlatsOnFloor(getIntField(houseJson, "numberOfFlatsOnFloor"));
-            flat.setHouse(house);
+            flat.setHouse(houses.apply(new House(
+                    getStringField(houseJson, "name"),
+                    getIntField(houseJson, "year"),
+                    getIntField(houseJson, "numberOfFlatsOnFloor")
+            )));
         }
 
-        return flat;
+        return flat.build();
     }
 
     // Вспомогательный метод для обязательных строковых полей
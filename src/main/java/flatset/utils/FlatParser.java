@@ -9,69 +9,20 @@ import javax.json.JsonObject;
 import javax.json.JsonReader;
 import java.io.StringReader;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
+import java.util.function.UnaryOperator;
 
 public class FlatParser {
-    private static final int MIN_FIELDS = 8; // Минимальное количество обязательных полей для парсинга строки
-    private static final String FIELD_SEPARATOR = ",";
-
     /**
      * Парсит данные о квартире из строки в формате командной строки
      * Формат: {name,x,y,area,numberOfRooms,isNew,timeToMetroByTransport,view[,houseName,houseYear,houseFlats]}
+     * Разбор выполняет {@link FlatLiteralParser}; ID квартиры равен 0, дата создания — текущий момент.
      */
     public static Flat parseFlat(String input) throws IllegalArgumentException {
-        try {
-            // Очистка и валидация входных данных
-            String trimmedInput = input.trim();
-            if (trimmedInput.startsWith("{") && trimmedInput.endsWith("}")) {
-                trimmedInput = trimmedInput.substring(1, trimmedInput.length() - 1).trim();
-            }
-
-            String[] parts = trimmedInput.split(FIELD_SEPARATOR, -1); // Сохраняем пустые строки в конце
-            if (parts.length < MIN_FIELDS) {
-                throw new IllegalArgumentException(
-                        String.format("Expected at least %d values separated by commas, but got %d",
-                                MIN_FIELDS, parts.length));
-            }
-
-            // Создание и заполнение объекта квартиры
-            Flat flat = new Flat();
-            int index = 0;
-
-            // Обязательные поля
-            flat.setName(parseString(parts[index++], "name"));
-            flat.setCoordinates(new Coordinates(
-                    parseInt(parts[index++], "coordinate x"),
-                    parseInt(parts[index++], "coordinate y")
-            ));
-            flat.setArea(parseLong(parts[index++], "area"));
-            flat.setNumberOfRooms(parseLong(parts[index++], "number of rooms"));
-            flat.setNew(parseBoolean(parts[index++], "new flag"));
-            flat.setTimeToMetroByTransport(parseDouble(parts[index++], "time to metro"));
-            flat.setView(parseView(parts[index++]));
-
-            // Автоматически заполняемые поля
-            flat.setCreationDate(ZonedDateTime.now());
-
-            // Опциональные поля дома
-            if (parts.length > index) {
-                House house = new House();
-                house.setName(parseString(parts[index++], "house name"));
-
-                if (parts.length > index) {
-                    house.setYear(parseInt(parts[index++], "house year"));
-                }
-                if (parts.length > index) {
-                    house.setNumberOfFlatsOnFloor(parseInt(parts[index], "flats per floor"));
-                }
-
-                flat.setHouse(house);
-            }
-
-            return flat;
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Error parsing apartment: " + e.getMessage(), e);
+        FlatLiteralParser parser = new FlatLiteralParser();
+        if (!parser.parse(input)) {
+            throw new IllegalArgumentException("Error parsing apartment: " + parser.getError());
         }
+        return parser.build(0, ZonedDateTime.now(), UnaryOperator.identity());
     }
 
     /**
@@ -91,7 +42,7 @@ public class FlatParser {
      * Парсит данные о квартире из JsonObject
      */
     public static Flat parseJsonObject(JsonObject jsonObject) throws IllegalArgumentException {
-        Flat flat = new Flat();
+        Flat.Builder flat = Flat.builder();
 
         // Обязательные поля
         flat.setName(getJsonString(jsonObject, "name"));
@@ -114,62 +65,14 @@ public class FlatParser {
         // Данные о доме
         if (jsonObject.containsKey("house") && !jsonObject.isNull("house")) {
             JsonObject houseJson = jsonObject.getJsonObject("house");
-            House house = new House();
-            house.setName(getJsonString(houseJson, "name"));
-            house.setYear(getJsonInt(houseJson, "year"));
-            house.setNumberOfFlatsOnFloor(getJsonInt(houseJson, "numberOfFlatsOnFloor"));
-            flat.setHouse(house);
-        }
-
-        return flat;
-    }
-
-    // Вспомогательные методы для парсинга строк
-    private static String parseString(String value, String fieldName) {
-        if (value == null || value.trim().isEmpty()) {
-            throw new IllegalArgumentException(fieldName + " cannot be empty");
-        }
-        return value.trim();
-    }
-
-    private static int parseInt(String value, String fieldName) {
-        try {
-            return Integer.parseInt(value.trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid value for " + fieldName + ": " + value);
-        }
-    }
-
-    private static long parseLong(String value, String fieldName) {
-        try {
-            return Long.parseLong(value.trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid value for " + fieldName + ": " + value);
-        }
-    }
-
-    private static double parseDouble(String value, String fieldName) {
-        try {
-            return Double.parseDouble(value.trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid value for " + fieldName + ": " + value);
-        }
-    }
-
-    private static boolean parseBoolean(String value, String fieldName) {
-        if (!value.trim().equalsIgnoreCase("true") && !value.trim().equalsIgnoreCase("false")) {
-            throw new IllegalArgumentException("Invalid value for " + fieldName + ": must be 'true' or 'false'");
+            flat.setHouse(new House(
+                    getJsonString(houseJson, "name"),
+                    getJsonInt(houseJson, "year"),
+                    getJsonInt(houseJson, "numberOfFlatsOnFloor")
+            ));
         }
-        return Boolean.parseBoolean(value.trim());
-    }
 
-    private static View parseView(String value) {
-        try {
-            return View.valueOf(value.trim().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid view: " + value +
-                    ". Valid options: " + Arrays.toString(View.values()));
-        }
+        return flat.build();
     }
 
     // Вспомогательные методы для парсинга JSON
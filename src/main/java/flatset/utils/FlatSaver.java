@@ -0,0 +1,145 @@
+package flatset.utils;
+
+import flatset.Flat;
+import flatset.House;
+import flatset.storage.FlatRepository;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Класс для сохранения коллекции квартир в JSON-файл.
+ * Квартиры записываются потоково через JsonGenerator во временный файл рядом с целевым,
+ * который после fsync атомарно переименовывается в целевой. Поэтому сохранение требует
+ * почти постоянного объёма дополнительной памяти, а сбой во время записи не портит предыдущую копию данных.
+ */
+public class FlatSaver {
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Сохраняет хранилище в указанный файл в формате {"lastId": N, "flats": [...]}.
+     *
+     * @param flats хранилище квартир
+     * @param filePath путь к целевому файлу
+     * @return количество сохранённых квартир
+     * @throws IOException при ошибке записи; в этом случае целевой файл остаётся нетронутым
+     */
+    public static int saveToFile(FlatRepository flats, String filePath) throws IOException {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path directory = target.getParent();
+        Path tempFile = createTempFileFor(target);
+
+        int count = 0;
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tempFile.toFile());
+                 BufferedOutputStream bos = new BufferedOutputStream(fos, WRITE_BUFFER_SIZE);
+                 JsonGenerator generator = Json.createGenerator(bos)) {
+
+                generator.writeStartObject();
+                generator.write(FlatLoader.LAST_ID_FIELD, flats.getIdSequence().getHighWaterMark());
+                generator.writeStartArray(FlatLoader.FLATS_FIELD);
+                for (Flat flat : flats) {
+                    writeFlat(generator, flat);
+                    count++;
+                }
+                generator.writeEnd();
+                generator.writeEnd();
+
+                generator.flush();
+                fos.getChannel().force(true);
+            }
+            moveIntoPlace(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        syncDirectory(directory);
+        return count;
+    }
+
+    /**
+     * Записывает одну квартиру как JSON-объект.
+     */
+    private static void writeFlat(JsonGenerator generator, Flat flat) {
+        generator.writeStartObject()
+                .write("id", flat.getId())
+                .write("name", flat.getName())
+                .write("area", flat.getArea())
+                .write("numberOfRooms", flat.getNumberOfRooms());
+        if (flat.isNew() != null) {
+            generator.write("new", flat.isNew());
+        } else {
+            generator.writeNull("new");
+        }
+        generator.write("timeToMetroByTransport", flat.getTimeToMetroByTransport())
+                .write("view", flat.getView().toString())
+                .write("creationDate", flat.getCreationDate().toString());
+
+        generator.writeStartObject("coordinates")
+                .write("x", flat.getCoordinates().getX())
+                .write("y", flat.getCoordinates().getY())
+                .writeEnd();
+
+        House house = flat.getHouse();
+        if (house != null) {
+            generator.writeStartObject("house")
+                    .write("name", house.getName())
+                    .write("year", house.getYear())
+                    .write("numberOfFlatsOnFloor", house.getNumberOfFlatsOnFloor())
+                    .writeEnd();
+        }
+        generator.writeEnd();
+    }
+
+    /**
+     * Создаёт временный файл рядом с целевым, чтобы переименование не пересекало файловые системы.
+     * Имя файла уникально, поэтому одновременные сохранения в один файл не пишут в общий временный файл
+     * и не удаляют чужой. Файл создаётся с обычными правами доступа, которые затем наследует целевой файл.
+     */
+    static Path createTempFileFor(Path target) throws IOException {
+        while (true) {
+            Path candidate = target.resolveSibling(target.getFileName() + "."
+                    + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(candidate);
+            } catch (FileAlreadyExistsException e) {
+                // Имя занято - пробуем другое
+            }
+        }
+    }
+
+    /**
+     * Атомарно заменяет целевой файл временным; если файловая система не поддерживает
+     * атомарное переименование, выполняется обычная замена.
+     */
+    static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Сбрасывает на диск запись каталога, чтобы переименование пережило сбой питания.
+     * На платформах, где каталог нельзя открыть как файл, шаг пропускается.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Не все платформы позволяют синхронизировать каталог
+        }
+    }
+}
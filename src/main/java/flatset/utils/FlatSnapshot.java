@@ -0,0 +1,369 @@
+package flatset.utils;
+
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+import flatset.View;
+import flatset.storage.FlatRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактный двоичный формат снимка коллекции для быстрого старта.
+ * JSON остаётся форматом обмена данными, а снимок используется для быстрого сохранения и загрузки.
+ *
+ * Формат (версия 1, порядок байт big-endian):
+ * <pre>
+ * int    MAGIC ("FLTS")
+ * short  версия формата
+ * long   наибольший выданный ID
+ * int    количество часовых поясов, затем для каждого: строка
+ * int    количество домов, затем для каждого: строка name, int year, int numberOfFlatsOnFloor
+ * int    количество квартир, затем для каждой:
+ *        long id, int x, int y, long epochSecond, int nano, int индекс пояса,
+ *        long area, long numberOfRooms, double timeToMetroByTransport,
+ *        byte ordinal View, byte isNew (0 - false, 1 - true, 2 - null), int индекс дома (-1 - нет дома),
+ *        строка name
+ * </pre>
+ * Строки хранятся как int длина в байтах и байты UTF-8.
+ * Загрузка читает файл через отображённый в память FileChannel: в новое хранилище при старте
+ * ({@link #loadFromFile}) или на место содержимого уже работающего хранилища ({@link #loadInto}).
+ */
+public class FlatSnapshot {
+    /** Имя файла снимка по умолчанию */
+    public static final String DEFAULT_SNAPSHOT_FILE = "flats.snapshot";
+    private static final int MAGIC = 0x464C5453;
+    private static final short VERSION = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final byte NEW_FALSE = 0;
+    private static final byte NEW_TRUE = 1;
+    private static final byte NEW_NULL = 2;
+    private static final int NO_HOUSE = -1;
+
+    /**
+     * Сохраняет хранилище в двоичный снимок.
+     * Запись выполняется во временный файл, который после fsync атомарно заменяет целевой.
+     *
+     * @param flats хранилище квартир
+     * @param filePath путь к файлу снимка
+     * @return количество сохранённых квартир
+     * @throws IOException при ошибке записи; в этом случае целевой файл остаётся нетронутым
+     */
+    public static int saveToFile(FlatRepository flats, String filePath) throws IOException {
+        Map<ZoneId, Integer> zones = new HashMap<>();
+        Map<House, Integer> houses = new HashMap<>();
+        List<ZoneId> zoneTable = new ArrayList<>();
+        List<House> houseTable = new ArrayList<>();
+        for (Flat flat : flats) {
+            ZoneId zone = flat.getCreationDate().getZone();
+            if (!zones.containsKey(zone)) {
+                zones.put(zone, zoneTable.size());
+                zoneTable.add(zone);
+            }
+            House house = flat.getHouse();
+            if (house != null && !houses.containsKey(house)) {
+                houses.put(house, houseTable.size());
+                houseTable.add(house);
+            }
+        }
+
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path directory = target.getParent();
+        Path tempFile = FlatSaver.createTempFileFor(target);
+        int count = 0;
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tempFile.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, WRITE_BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(flats.getIdSequence().getHighWaterMark());
+
+                out.writeInt(zoneTable.size());
+                for (ZoneId zone : zoneTable) {
+                    writeString(out, zone.getId());
+                }
+                out.writeInt(houseTable.size());
+                for (House house : houseTable) {
+                    writeString(out, house.getName());
+                    out.writeInt(house.getYear());
+                    out.writeInt(house.getNumberOfFlatsOnFloor());
+                }
+
+                out.writeInt(flats.size());
+                for (Flat flat : flats) {
+                    ZonedDateTime date = flat.getCreationDate();
+                    out.writeLong(flat.getId());
+                    out.writeInt(flat.getCoordinates().getX());
+                    out.writeInt(flat.getCoordinates().getY());
+                    out.writeLong(date.toEpochSecond());
+                    out.writeInt(date.getNano());
+                    out.writeInt(zones.get(date.getZone()));
+                    out.writeLong(flat.getArea());
+                    out.writeLong(flat.getNumberOfRooms());
+                    out.writeDouble(flat.getTimeToMetroByTransport());
+                    out.writeByte(flat.getView().ordinal());
+                    out.writeByte(flat.isNew() == null ? NEW_NULL : (flat.isNew() ? NEW_TRUE : NEW_FALSE));
+                    out.writeInt(flat.getHouse() == null ? NO_HOUSE : houses.get(flat.getHouse()));
+                    writeString(out, flat.getName());
+                    count++;
+                }
+
+                out.flush();
+                fos.getChannel().force(true);
+            }
+            FlatSaver.moveIntoPlace(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        FlatSaver.syncDirectory(directory);
+        return count;
+    }
+
+    /**
+     * Загружает хранилище из двоичного снимка.
+     *
+     * @param filePath путь к файлу снимка
+     * @return хранилище загруженных квартир
+     * @throws FileNotFoundException если файл снимка не существует
+     * @throws IOException при ошибке чтения или повреждённом/несовместимом снимке
+     */
+    public static FlatRepository loadFromFile(String filePath) throws FileNotFoundException, IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel);
+            Header header = readHeader(in, filePath);
+            FlatRepository flats = new FlatRepository(header.count);
+            flats.getIdSequence().advanceTo(header.lastId);
+            readFlats(in, header, flats);
+            return flats;
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filePath);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted snapshot file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Заменяет содержимое существующего хранилища содержимым снимка, не создавая второго хранилища
+     * с индексами. Перед изменением хранилища проверяется структура всего файла, поэтому
+     * повреждённый или несовместимый снимок хранилище не изменяет.
+     * Вызывающий должен удерживать блокировку записи хранилища; слушатели получают clear и add каждой квартиры.
+     *
+     * @param flats хранилище, содержимое которого заменяется
+     * @param filePath путь к файлу снимка
+     * @return количество загруженных квартир
+     * @throws FileNotFoundException если файл снимка не существует
+     * @throws IOException при ошибке чтения или повреждённом/несовместимом снимке
+     */
+    public static int loadInto(FlatRepository flats, String filePath) throws FileNotFoundException, IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel);
+            Header header = readHeader(in, filePath);
+            long start = in.position();
+            validateFlats(in, header, filePath);
+            in.seek(start);
+
+            flats.clear();
+            flats.getIdSequence().advanceTo(header.lastId);
+            readFlats(in, header, flats);
+            return flats.size();
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filePath);
+        }
+    }
+
+    /**
+     * Заголовок снимка: наибольший выданный ID, таблицы поясов и домов и количество квартир.
+     */
+    private static final class Header {
+        long lastId;
+        ZoneId[] zones;
+        House[] houses;
+        int count;
+    }
+
+    private static Header readHeader(MappedInput in, String filePath) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a flat snapshot file: " + filePath);
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        Header header = new Header();
+        header.lastId = in.readLong();
+        header.zones = new ZoneId[in.readInt()];
+        for (int i = 0; i < header.zones.length; i++) {
+            header.zones[i] = ZoneId.of(in.readString());
+        }
+        header.houses = new House[in.readInt()];
+        for (int i = 0; i < header.houses.length; i++) {
+            header.houses[i] = new House(in.readString(), in.readInt(), in.readInt());
+        }
+        header.count = in.readInt();
+        return header;
+    }
+
+    private static void readFlats(MappedInput in, Header header, FlatRepository flats) throws IOException {
+        View[] views = View.values();
+        for (int i = 0; i < header.count; i++) {
+            long id = in.readLong();
+            Coordinates coordinates = new Coordinates(in.readInt(), in.readInt());
+            long epochSecond = in.readLong();
+            int nano = in.readInt();
+            ZonedDateTime creationDate = ZonedDateTime.ofInstant(
+                    Instant.ofEpochSecond(epochSecond, nano), header.zones[in.readInt()]);
+            long area = in.readLong();
+            long numberOfRooms = in.readLong();
+            double timeToMetroByTransport = in.readDouble();
+            View view = views[in.readByte()];
+            byte isNew = in.readByte();
+            int houseIndex = in.readInt();
+            String name = in.readString();
+
+            flats.add(new Flat(id, name, coordinates, creationDate, area, numberOfRooms,
+                    isNew == NEW_NULL ? null : isNew == NEW_TRUE, timeToMetroByTransport, view,
+                    houseIndex == NO_HOUSE ? null : header.houses[houseIndex]));
+        }
+    }
+
+    /**
+     * Проходит записи квартир, не создавая объектов, и проверяет длины и ссылки на таблицы.
+     */
+    private static void validateFlats(MappedInput in, Header header, String filePath) throws IOException {
+        int views = View.values().length;
+        for (int i = 0; i < header.count; i++) {
+            in.skip(Long.BYTES + Integer.BYTES * 2 + Long.BYTES);
+            int nano = in.readInt();
+            int zone = in.readInt();
+            in.skip(Long.BYTES * 2 + Double.BYTES);
+            int view = in.readByte();
+            int isNew = in.readByte();
+            int house = in.readInt();
+            in.skip(in.readStringLength());
+            if (nano < 0 || nano > 999_999_999 || zone < 0 || zone >= header.zones.length
+                    || view < 0 || view >= views || isNew < NEW_FALSE || isNew > NEW_NULL
+                    || house < NO_HOUSE || house >= header.houses.length) {
+                throw new IOException("Corrupted snapshot file: " + filePath + " (record " + (i + 1) + ")");
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Чтение файла через отображение в память окнами ограниченного размера,
+     * чтобы поддерживать снимки больше 2 ГБ.
+     */
+    private static class MappedInput {
+        private static final long WINDOW_SIZE = 1L << 30;
+        private final FileChannel channel;
+        private final long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private byte[] stringBuffer = new byte[256];
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.fileSize = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (fileSize - position < bytes) {
+                    throw new IOException("Unexpected end of snapshot file");
+                }
+                map(position);
+            }
+        }
+
+        int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        short readShort() throws IOException {
+            ensure(Short.BYTES);
+            return window.getShort();
+        }
+
+        long readLong() throws IOException {
+            ensure(Long.BYTES);
+            return window.getLong();
+        }
+
+        double readDouble() throws IOException {
+            ensure(Double.BYTES);
+            return window.getDouble();
+        }
+
+        byte readByte() throws IOException {
+            ensure(Byte.BYTES);
+            return window.get();
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        void seek(long position) throws IOException {
+            if (position >= windowStart && position <= windowStart + window.limit()) {
+                window.position((int) (position - windowStart));
+            } else {
+                map(position);
+            }
+        }
+
+        void skip(int bytes) throws IOException {
+            ensure(bytes);
+            window.position(window.position() + bytes);
+        }
+
+        int readStringLength() throws IOException {
+            int length = readInt();
+            if (length < 0 || length > WINDOW_SIZE) {
+                throw new IOException("Invalid string length in snapshot: " + length);
+            }
+            return length;
+        }
+
+        String readString() throws IOException {
+            int length = readStringLength();
+            ensure(length);
+            if (stringBuffer.length < length) {
+                stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+            }
+            window.get(stringBuffer, 0, length);
+            return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -13,15 +13,18 @@ import java.io.StringReader;
 /**
  * Класс для обновления полей объекта Flat из JSON-данных.
  * Предоставляет функциональность для частичного или полного обновления информации о квартире.
+ * Квартиры неизменяемы, поэтому обновление создаёт новую версию квартиры, которую затем
+ * нужно заменить в хранилище.
  */
 public class FlatUpdater {
 
     /**
-     * Обновляет поля объекта Flat на основе данных в JSON-формате.
+     * Создаёт новую версию квартиры с полями, обновлёнными на основе данных в JSON-формате.
      * Поддерживает обновление как основных полей квартиры, так и вложенных объектов (координат и дома).
      *
-     * @param flat объект Flat для обновления
+     * @param flat исходная квартира (не изменяется)
      * @param jsonData строка с данными в JSON-формате для обновления
+     * @return обновлённая квартира с тем же ID
      * @throws IllegalArgumentException если переданные данные содержат неизвестные поля
      *                                  или имеют некорректный формат
      *
@@ -33,40 +36,42 @@ public class FlatUpdater {
      *     "house": {"name": "Дом", "year": 2020}
      * }
      */
-    public static void updateFields(Flat flat, String jsonData) throws IllegalArgumentException {
+    public static Flat updateFields(Flat flat, String jsonData) throws IllegalArgumentException {
         try (JsonReader reader = Json.createReader(new StringReader(jsonData))) {
             JsonObject jsonObject = reader.readObject();
+            Flat.Builder updated = flat.toBuilder();
 
             for (String key : jsonObject.keySet()) {
                 switch (key.toLowerCase()) {
                     case "name":
-                        flat.setName(jsonObject.getString(key));
+                        updated.setName(jsonObject.getString(key));
                         break;
                     case "area":
-                        flat.setArea(jsonObject.getInt(key));
+                        updated.setArea(jsonObject.getInt(key));
                         break;
                     case "numberofrooms":
-                        flat.setNumberOfRooms(jsonObject.getInt(key));
+                        updated.setNumberOfRooms(jsonObject.getInt(key));
                         break;
                     case "new":
-                        flat.setNew(jsonObject.getBoolean(key));
+                        updated.setNew(jsonObject.getBoolean(key));
                         break;
                     case "timetometrobytransport":
-                        flat.setTimeToMetroByTransport(jsonObject.getJsonNumber(key).doubleValue());
+                        updated.setTimeToMetroByTransport(jsonObject.getJsonNumber(key).doubleValue());
                         break;
                     case "view":
-                        flat.setView(View.valueOf(jsonObject.getString(key).toUpperCase()));
+                        updated.setView(View.valueOf(jsonObject.getString(key).toUpperCase()));
                         break;
                     case "coordinates":
-                        updateCoordinates(flat.getCoordinates(), jsonObject.getJsonObject(key));
+                        updated.setCoordinates(updateCoordinates(updated.getCoordinates(), jsonObject.getJsonObject(key)));
                         break;
                     case "house":
-                        updateHouse(flat.getHouse(), jsonObject.getJsonObject(key));
+                        updated.setHouse(updateHouse(updated.getHouse(), jsonObject.getJsonObject(key)));
                         break;
                     default:
                         throw new IllegalArgumentException("Unknown field: " + key);
                 }
             }
+            return updated.build();
         } catch (Exception e) {
             throw new IllegalArgumentException("Failed to update flat: " + e.getMessage(), e);
         }
@@ -75,37 +80,48 @@ public class FlatUpdater {
     /**
      * Внутренний метод для обновления координат квартиры.
      *
-     * @param coords объект Coordinates для обновления
+     * @param coords текущие координаты
      * @param json JSON-объект с новыми значениями координат
+     * @return новые координаты
      */
-    private static void updateCoordinates(Coordinates coords, JsonObject json) {
-        if (json.containsKey("x")) {
-            coords.setX(json.getInt("x"));
-        }
-        if (json.containsKey("y")) {
-            coords.setY(json.getInt("y"));
-        }
+    private static Coordinates updateCoordinates(Coordinates coords, JsonObject json) {
+        int x = json.containsKey("x") ? json.getInt("x") : coords.getX();
+        int y = json.containsKey("y") ? json.getInt("y") : coords.getY();
+        return new Coordinates(x, y);
     }
 
     /**
      * Внутренний метод для обновления информации о доме.
-     * Если объект House не существует, создает новый.
+     * Если у квартиры нет дома, JSON-объект должен задавать все характеристики нового дома.
      *
-     * @param house объект House для обновления (может быть null)
+     * @param house текущий дом (может быть null)
      * @param json JSON-объект с новыми значениями характеристик дома
+     * @return новый дом
+     * @throws IllegalArgumentException если у квартиры нет дома, а заданы не все его характеристики
      */
-    private static void updateHouse(House house, JsonObject json) {
-        if (house == null) {
-            house = new House();
-        }
-        if (json.containsKey("name")) {
-            house.setName(json.getString("name"));
-        }
-        if (json.containsKey("year")) {
-            house.setYear(json.getInt("year"));
+    private static House updateHouse(House house, JsonObject json) {
+        String name = house == null ? null : house.getName();
+        Integer year = house == null ? null : house.getYear();
+        Integer numberOfFlatsOnFloor = house == null ? null : house.getNumberOfFlatsOnFloor();
+        for (String key : json.keySet()) {
+            switch (key.toLowerCase()) {
+                case "name":
+                    name = json.getString(key);
+                    break;
+                case "year":
+                    year = json.getInt(key);
+                    break;
+                case "numberofflatsonfloor":
+                    numberOfFlatsOnFloor = json.getInt(key);
+                    break;
+                default:
+                    break;
+            }
         }
-        if (json.containsKey("numberofflatsonfloor")) {
-            house.setNumberOfFlatsOnFloor(json.getInt("numberofflatsonfloor"));
+        if (name == null || year == null || numberOfFlatsOnFloor == null) {
+            throw new IllegalArgumentException(
+                    "The flat has no house: name, year and numberOfFlatsOnFloor are required");
         }
+        return new House(name, year, numberOfFlatsOnFloor);
     }
 }
@@ -0,0 +1,260 @@
+package flatset.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Хэш-таблица с примитивными ключами типа long и открытой адресацией (линейное пробирование).
+ * Ключи не упаковываются в Long, поэтому поиск, вставка и удаление выполняются
+ * за O(1) в среднем без дополнительных аллокаций.
+ * Значения null не допускаются: пустая ячейка распознаётся по значению null.
+ *
+ * @param <V> тип хранимых значений
+ */
+public class LongHashMap<V> implements Iterable<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    /**
+     * Создает пустую таблицу с ёмкостью по умолчанию.
+     */
+    public LongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Создает пустую таблицу, рассчитанную на указанное количество элементов без перестроения.
+     *
+     * @param expectedSize ожидаемое количество элементов
+     */
+    public LongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key ключ
+     * @return значение или null, если ключ отсутствует
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет наличие ключа в таблице.
+     *
+     * @param key ключ
+     * @return true, если ключ присутствует
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Сохраняет значение по ключу, заменяя предыдущее.
+     *
+     * @param key ключ
+     * @param value значение (не null)
+     * @return предыдущее значение или null, если ключ отсутствовал
+     * @throws NullPointerException если value равно null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        Object existing;
+        while ((existing = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) existing;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет значение по ключу.
+     * Использует обратный сдвиг последующих элементов цепочки, поэтому "надгробия" не накапливаются.
+     *
+     * @param key ключ
+     * @return удалённое значение или null, если ключ отсутствовал
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет все элементы, сохраняя выделенную ёмкость.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * @return количество элементов в таблице
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return количество ячеек выделенной таблицы (для оценки занимаемой памяти)
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return true, если таблица пуста
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Выполняет действие для каждого значения таблицы.
+     *
+     * @param action действие над значением
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        Object[] table = values;
+        for (Object value : table) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Возвращает итератор по значениям таблицы.
+     * Итератор не поддерживает удаление и не должен использоваться при изменении таблицы.
+     *
+     * @return итератор по значениям
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private final Object[] table = values;
+            private int index = advance(0);
+            private int advance(int from) {
+                while (from < table.length && table[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < table.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (index >= table.length) {
+                    throw new NoSuchElementException();
+                }
+                V value = (V) table[index];
+                index = advance(index + 1);
+                return value;
+            }
+        };
+    }
+
+    private void shiftBack(int hole) {
+        int mask = keys.length - 1;
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+            int home = mix(keys[i]) & mask;
+            // Элемент можно перенести в "дыру", если его домашняя позиция не лежит между дырой и ним
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = mix(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
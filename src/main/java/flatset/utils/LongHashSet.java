@@ -0,0 +1,215 @@
+package flatset.utils;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Множество примитивных значений типа long с открытой адресацией (линейное пробирование).
+ * Значения не упаковываются в Long, поэтому добавление, удаление и проверка наличия
+ * выполняются за O(1) в среднем без дополнительных аллокаций.
+ * Пустая ячейка обозначается значением 0, а наличие самого 0 хранится отдельным флагом.
+ */
+public class LongHashSet {
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long FREE = 0L;
+
+    private long[] table;
+    private boolean containsFree;
+    private int size;
+    private int threshold;
+
+    /**
+     * Создает пустое множество с ёмкостью по умолчанию.
+     */
+    public LongHashSet() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Добавляет значение.
+     *
+     * @param value значение
+     * @return true, если значения ещё не было в множестве
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        long existing;
+        while ((existing = table[i]) != FREE) {
+            if (existing == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        if (++size > threshold) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Удаляет значение, сдвигая последующие элементы цепочки назад.
+     *
+     * @param value значение
+     * @return true, если значение было в множестве
+     */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        long existing;
+        while ((existing = table[i]) != FREE) {
+            if (existing == value) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @param value значение
+     * @return true, если значение есть в множестве
+     */
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        long existing;
+        while ((existing = table[i]) != FREE) {
+            if (existing == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return количество значений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return количество ячеек выделенной таблицы (для оценки занимаемой памяти)
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    /**
+     * @return true, если множество пусто
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Удаляет все значения, сохраняя выделенную ёмкость.
+     */
+    public void clear() {
+        Arrays.fill(table, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    /**
+     * Выполняет действие для каждого значения (в произвольном порядке).
+     *
+     * @param action действие над значением
+     */
+    public void forEach(LongConsumer action) {
+        if (containsFree) {
+            action.accept(FREE);
+        }
+        for (long value : table) {
+            if (value != FREE) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * @return значения множества в порядке возрастания
+     */
+    public long[] toSortedArray() {
+        long[] result = new long[size];
+        int index = 0;
+        if (containsFree) {
+            result[index++] = FREE;
+        }
+        for (long value : table) {
+            if (value != FREE) {
+                result[index++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void shiftBack(int hole) {
+        int mask = table.length - 1;
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (table[i] == FREE) {
+                break;
+            }
+            int home = mix(table[i]) & mask;
+            // Элемент можно перенести в "дыру", если его домашняя позиция не лежит между дырой и ним
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = FREE;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = table;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (long value : old) {
+            if (value != FREE) {
+                int i = mix(value) & mask;
+                while (table[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
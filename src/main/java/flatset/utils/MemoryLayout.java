@@ -0,0 +1,206 @@
+package flatset.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Модель размещения объектов в куче HotSpot для подсчёта занимаемой памяти без агента Instrumentation.
+ * Размер объекта — заголовок плюс сумма размеров его полей (включая поля суперклассов),
+ * выровненная до 8 байт; размер массива — заголовок, длина и элементы.
+ * Размер заголовка и ссылки зависит от сжатия указателей (-XX:+UseCompressedOops,
+ * -XX:+UseCompressedClassPointers): параметры читаются у самой JVM, а если это невозможно,
+ * сжатие предполагается при куче меньше 32 ГБ, как это делает HotSpot по умолчанию.
+ * Строки учитываются вместе с массивом символов: начиная с Java 9 строка из символов Latin-1
+ * хранит один байт на символ (если не отключено -XX:-CompactStrings).
+ * Выравнивание полей внутри объекта не моделируется, поэтому размер отдельного объекта
+ * может быть занижен не более чем на 8 байт.
+ */
+public final class MemoryLayout {
+    private static final int ALIGNMENT = 8;
+    private static final MemoryLayout CURRENT = detect();
+
+    private final int objectHeader;
+    private final int referenceSize;
+    private final boolean compactStrings;
+    private final ConcurrentHashMap<Class<?>, Long> shallowSizes = new ConcurrentHashMap<>();
+
+    /**
+     * @param objectHeader размер заголовка объекта в байтах
+     * @param referenceSize размер ссылки в байтах
+     * @param compactStrings хранят ли строки Latin-1 один байт на символ
+     */
+    public MemoryLayout(int objectHeader, int referenceSize, boolean compactStrings) {
+        this.objectHeader = objectHeader;
+        this.referenceSize = referenceSize;
+        this.compactStrings = compactStrings;
+    }
+
+    /**
+     * @return модель размещения объектов текущей JVM
+     */
+    public static MemoryLayout current() {
+        return CURRENT;
+    }
+
+    private static MemoryLayout detect() {
+        boolean is64Bit = !"32".equals(System.getProperty("sun.arch.data.model"));
+        if (!is64Bit) {
+            return new MemoryLayout(8, 4, isJava9OrLater() && vmOption("CompactStrings", true));
+        }
+        boolean smallHeap = Runtime.getRuntime().maxMemory() < (32L << 30);
+        boolean compressedOops = vmOption("UseCompressedOops", smallHeap);
+        boolean compressedClasses = vmOption("UseCompressedClassPointers", compressedOops);
+        return new MemoryLayout(compressedClasses ? 12 : 16, compressedOops ? 4 : 8,
+                isJava9OrLater() && vmOption("CompactStrings", true));
+    }
+
+    private static boolean vmOption(String name, boolean fallback) {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean =
+                    ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return bean == null ? fallback : Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // Не HotSpot или опции нет в этой версии JVM
+            return fallback;
+        }
+    }
+
+    private static boolean isJava9OrLater() {
+        return !System.getProperty("java.specification.version", "1.8").startsWith("1.");
+    }
+
+    /**
+     * @return размер заголовка объекта в байтах
+     */
+    public int getObjectHeader() {
+        return objectHeader;
+    }
+
+    /**
+     * @return размер ссылки в байтах
+     */
+    public int getReferenceSize() {
+        return referenceSize;
+    }
+
+    /**
+     * Размер объекта класса без учёта объектов, на которые он ссылается.
+     *
+     * @param type класс объекта (не массив)
+     * @return размер в байтах
+     */
+    public long shallowSize(Class<?> type) {
+        Long size = shallowSizes.get(type);
+        if (size == null) {
+            long fields = 0;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        fields += fieldSize(field.getType());
+                    }
+                }
+            }
+            size = align(objectHeader + fields);
+            shallowSizes.put(type, size);
+        }
+        return size;
+    }
+
+    /**
+     * Размер объекта по имени класса, например внутреннего класса JDK ("java.util.TreeMap$Entry").
+     *
+     * @param className полное имя класса
+     * @return размер в байтах или размер пустого объекта, если класс недоступен
+     */
+    public long shallowSize(String className) {
+        try {
+            return shallowSize(Class.forName(className));
+        } catch (ClassNotFoundException e) {
+            return align(objectHeader);
+        }
+    }
+
+    /**
+     * @param componentType тип элементов массива
+     * @param length длина массива
+     * @return размер массива в байтах
+     */
+    public long arraySize(Class<?> componentType, long length) {
+        return align(objectHeader + 4 + length * fieldSize(componentType));
+    }
+
+    /**
+     * Размер строки вместе с её массивом символов.
+     *
+     * @param value строка
+     * @return размер в байтах или 0 для null
+     */
+    public long stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int bytesPerChar = 2;
+        if (compactStrings) {
+            bytesPerChar = 1;
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) > 0xFF) {
+                    bytesPerChar = 2;
+                    break;
+                }
+            }
+        }
+        return shallowSize(String.class) + align(objectHeader + 4 + (long) value.length() * bytesPerChar);
+    }
+
+    /**
+     * Размер коллекции JDK на основе хэш-таблицы (HashMap, HashSet) без ключей и значений:
+     * таблица и узлы. Ёмкость таблицы оценивается так, как её выбирает HashMap при росте.
+     *
+     * @param size количество элементов
+     * @return размер таблицы и узлов в байтах
+     */
+    public long hashTableSize(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        int capacity = 16;
+        while (capacity * 0.75 < size) {
+            capacity <<= 1;
+        }
+        return arraySize(Object.class, capacity) + size * shallowSize("java.util.HashMap$Node");
+    }
+
+    /**
+     * @param size количество элементов
+     * @return размер узлов TreeMap (или TreeSet) без ключей и значений в байтах
+     */
+    public long treeSize(int size) {
+        return size * shallowSize("java.util.TreeMap$Entry");
+    }
+
+    /**
+     * @param bytes размер
+     * @return размер, выровненный до границы объектов
+     */
+    public static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private long fieldSize(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return referenceSize;
+        }
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,113 @@
+package flatset.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Перехват консольного вывода команд в рамках одного потока.
+ * Команды пишут результат в System.out и System.err; после {@link #install()} оба потока
+ * заменяются маршрутизаторами, которые направляют байты в приёмник, назначенный текущему потоку
+ * через {@link #run(OutputStream, Runnable)} (или отдельные приёмники для каждого потока вывода через
+ * {@link #run(OutputStream, OutputStream, Runnable)}), а если приёмника нет — в исходную консоль.
+ * Так вывод команды можно вернуть клиенту сервера или записать в результат пакетной обработки,
+ * не меняя сами команды. Перехваченный текст кодируется в UTF-8.
+ */
+public class OutputCapture {
+    private static final ThreadLocal<OutputStream> OUT_TARGET = new ThreadLocal<>();
+    private static final ThreadLocal<OutputStream> ERR_TARGET = new ThreadLocal<>();
+    private static boolean installed;
+
+    /**
+     * Заменяет System.out и System.err маршрутизирующими потоками. Повторный вызов ничего не делает.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        try {
+            System.setOut(new PrintStream(new Router(System.out, OUT_TARGET), true, StandardCharsets.UTF_8.name()));
+            System.setErr(new PrintStream(new Router(System.err, ERR_TARGET), true, StandardCharsets.UTF_8.name()));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        installed = true;
+    }
+
+    /**
+     * Выполняет действие, направляя весь вывод текущего потока в System.out и System.err в приёмник.
+     * Вызовы могут быть вложенными: после завершения восстанавливается предыдущий приёмник.
+     *
+     * @param target приёмник вывода
+     * @param action действие
+     */
+    public static void run(OutputStream target, Runnable action) {
+        run(target, target, action);
+    }
+
+    /**
+     * Выполняет действие, направляя вывод текущего потока в System.out и System.err в разные приёмники.
+     *
+     * @param out приёмник System.out
+     * @param err приёмник System.err
+     * @param action действие
+     */
+    public static void run(OutputStream out, OutputStream err, Runnable action) {
+        install();
+        OutputStream previousOut = OUT_TARGET.get();
+        OutputStream previousErr = ERR_TARGET.get();
+        OUT_TARGET.set(out);
+        ERR_TARGET.set(err);
+        try {
+            action.run();
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            restore(OUT_TARGET, previousOut);
+            restore(ERR_TARGET, previousErr);
+        }
+    }
+
+    private static void restore(ThreadLocal<OutputStream> target, OutputStream previous) {
+        if (previous == null) {
+            target.remove();
+        } else {
+            target.set(previous);
+        }
+    }
+
+    /**
+     * Поток, передающий байты приёмнику текущего потока или исходной консоли.
+     */
+    private static final class Router extends OutputStream {
+        private final OutputStream console;
+        private final ThreadLocal<OutputStream> targets;
+
+        Router(OutputStream console, ThreadLocal<OutputStream> targets) {
+            this.console = console;
+            this.targets = targets;
+        }
+
+        private OutputStream target() {
+            OutputStream target = targets.get();
+            return target != null ? target : console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package flatset.utils;
+
+import flatset.Flat;
+import flatset.House;
+import flatset.storage.FlatRepository;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Параллельная загрузка больших JSON-файлов с квартирами.
+ * Файл сначала быстро просматривается побайтово, чтобы найти границы записей массива квартир,
+ * и делится на куски, выровненные по записям. Затем куски разбираются на ForkJoinPool
+ * (JSON-парсинг, ZonedDateTime.parse, View.valueOf выполняются на всех ядрах),
+ * а результаты добавляются в хранилище в исходном порядке. Некорректные записи пропускаются
+ * с предупреждением так же, как при последовательной загрузке.
+ */
+public class ParallelFlatLoader {
+    private static final int MIN_CHUNK_SIZE = 4 << 20;
+    private static final int MAX_CHUNK_SIZE = 256 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+    private static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+
+    /**
+     * Загружает квартиры из JSON-файла, используя общий ForkJoinPool.
+     *
+     * @param filePath путь к JSON-файлу
+     * @return хранилище загруженных квартир
+     * @throws FileNotFoundException если файл не существует
+     * @throws IOException при ошибке чтения файла
+     * @throws JsonException при ошибках структуры JSON
+     */
+    public static FlatRepository loadFromFile(String filePath) throws FileNotFoundException, IOException {
+        return loadFromFile(filePath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Загружает квартиры из JSON-файла, разбирая куски файла на указанном пуле.
+     *
+     * @param filePath путь к JSON-файлу
+     * @param pool пул потоков для разбора кусков
+     * @return хранилище загруженных квартир
+     * @throws FileNotFoundException если файл не существует
+     * @throws IOException при ошибке чтения файла
+     * @throws JsonException при ошибках структуры JSON
+     */
+    public static FlatRepository loadFromFile(String filePath, ForkJoinPool pool)
+            throws FileNotFoundException, IOException {
+        long fileSize = new File(filePath).length();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE,
+                Math.min(MAX_CHUNK_SIZE, fileSize / ((long) pool.getParallelism() * CHUNKS_PER_THREAD)));
+
+        RecordScanner scanner = new RecordScanner(chunkSize);
+        try (InputStream in = new FileInputStream(filePath)) {
+            scanner.scan(in);
+        }
+
+        FlatRepository flats = new FlatRepository(scanner.recordCount);
+        if (scanner.lastId != null) {
+            flats.getIdSequence().advanceTo(scanner.lastId);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // Общий для всех кусков словарь домов: квартиры одного дома получают один экземпляр House
+            ConcurrentHashMap<House, House> houses = new ConcurrentHashMap<>();
+            List<ForkJoinTask<ChunkResult>> tasks = new ArrayList<>(scanner.chunks.size());
+            for (long[] chunk : scanner.chunks) {
+                tasks.add(pool.submit(() -> parseChunk(channel, chunk[0], chunk[1], houses)));
+            }
+            for (ForkJoinTask<ChunkResult> task : tasks) {
+                ChunkResult result = task.join();
+                for (String warning : result.warnings) {
+                    System.err.println(warning);
+                }
+                for (Flat flat : result.flats) {
+                    if (!flats.add(flat)) {
+                        System.err.println("Skipping apartment record with duplicate id: " + flat.getId());
+                    }
+                }
+            }
+        }
+        return flats;
+    }
+
+    /**
+     * Разбирает один кусок файла [start, end), содержащий записи массива через запятую.
+     */
+    private static ChunkResult parseChunk(FileChannel channel, long start, long end,
+                                          ConcurrentHashMap<House, House> houses) {
+        ChunkResult result = new ChunkResult();
+        try {
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            InputStream chunk = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                    new ByteArrayInputStream(new byte[]{'['}),
+                    new BufferedInputStream(new ByteBufferInputStream(region), 1 << 16),
+                    new ByteArrayInputStream(new byte[]{']'}))));
+
+            try (JsonParser parser = PARSER_FACTORY.createParser(chunk, StandardCharsets.UTF_8)) {
+                parser.next();
+                while (parser.hasNext()) {
+                    JsonParser.Event event = parser.next();
+                    if (event == JsonParser.Event.END_ARRAY) {
+                        break;
+                    }
+                    if (event != JsonParser.Event.START_OBJECT) {
+                        result.warnings.add("Skipping invalid apartment record: " + parser.getValue());
+                        continue;
+                    }
+                    JsonObject record = parser.getObject();
+                    try {
+                        result.flats.add(FlatLoader.parseJsonObject(record, house -> {
+                            House existing = houses.putIfAbsent(house, house);
+                            return existing == null ? house : existing;
+                        }));
+                    } catch (Exception e) {
+                        result.warnings.add("Skipping invalid apartment record: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonException("Failed to read data chunk at offset " + start + ": " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Результат разбора одного куска: квартиры и предупреждения в порядке следования в файле.
+     */
+    private static class ChunkResult {
+        private final List<Flat> flats = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+    }
+
+    /**
+     * Побайтовый сканер, находящий границы записей массива квартир.
+     * Отслеживает глубину вложенности и строковые литералы, не создавая объектов для записей.
+     * Поддерживает оба формата файла: массив квартир и обёртку {"lastId": N, "flats": [...]}.
+     */
+    private static class RecordScanner {
+        private final long chunkSize;
+        private final List<long[]> chunks = new ArrayList<>();
+        private int recordCount;
+        private Long lastId;
+
+        private long offset;
+        private int depth;
+        private boolean rootIsObject;
+        private boolean inString;
+        private boolean escaped;
+        private int arrayDepth = -1;
+        private long chunkStart = -1;
+        private final StringBuilder token = new StringBuilder();
+        private String lastString;
+        private String currentKey;
+
+        RecordScanner(long chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        void scan(InputStream in) throws IOException {
+            byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++, offset++) {
+                    accept(buffer[i]);
+                }
+            }
+            if (arrayDepth == -1) {
+                throw new JsonException("Expected an array of apartments or an object with the '"
+                        + FlatLoader.FLATS_FIELD + "' field");
+            }
+            if (depth != 0 || inString) {
+                throw new JsonException("Unexpected end of data file");
+            }
+        }
+
+        private void accept(byte b) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                    if (depth == 1) {
+                        lastString = token.toString();
+                    }
+                } else if (depth == 1 && token.length() < 64) {
+                    token.append((char) b);
+                }
+                return;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    token.setLength(0);
+                    break;
+                case '{':
+                    if (depth == 0) {
+                        rootIsObject = true;
+                    }
+                    depth++;
+                    if (arrayDepth > 0 && depth == arrayDepth + 1 && chunkStart < 0) {
+                        chunkStart = offset;
+                    }
+                    break;
+                case '}':
+                    if (arrayDepth > 0 && depth == arrayDepth + 1) {
+                        recordCount++;
+                        if (offset + 1 - chunkStart >= chunkSize) {
+                            emitChunk(offset + 1);
+                        }
+                    }
+                    depth--;
+                    break;
+                case '[':
+                    depth++;
+                    if (arrayDepth == -1 && ((depth == 1 && !rootIsObject)
+                            || (depth == 2 && rootIsObject && FlatLoader.FLATS_FIELD.equals(currentKey)))) {
+                        arrayDepth = depth;
+                    }
+                    break;
+                case ']':
+                    if (depth == arrayDepth) {
+                        if (chunkStart >= 0) {
+                            emitChunk(offset);
+                        }
+                        arrayDepth = 0;
+                    }
+                    depth--;
+                    break;
+                case ':':
+                    if (depth == 1) {
+                        currentKey = lastString;
+                        token.setLength(0);
+                    }
+                    break;
+                case ',':
+                    if (depth == 1) {
+                        finishLastId();
+                        currentKey = null;
+                    }
+                    break;
+                default:
+                    if (depth == 1 && FlatLoader.LAST_ID_FIELD.equals(currentKey)
+                            && (b == '-' || (b >= '0' && b <= '9'))) {
+                        token.append((char) b);
+                    }
+                    break;
+            }
+            if (b == '}' && depth == 0) {
+                finishLastId();
+            }
+        }
+
+        private void finishLastId() {
+            if (FlatLoader.LAST_ID_FIELD.equals(currentKey) && token.length() > 0) {
+                lastId = Long.parseLong(token.toString());
+            }
+        }
+
+        private void emitChunk(long end) {
+            chunks.add(new long[]{chunkStart, end});
+            chunkStart = -1;
+        }
+    }
+
+    /**
+     * Поток чтения поверх ByteBuffer (в том числе отображённого в память участка файла).
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import flatset.batch.BatchProcessor;
+import flatset.commands.CommandManager;
+import flatset.storage.FlatRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchProcessorTest {
+
+    private Path requests;
+    private Path results;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        requests = Files.createTempFile("requests", ".jsonl");
+        results = Files.createTempFile("results", ".jsonl");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(requests);
+        Files.deleteIfExists(results);
+    }
+
+    /**
+     * Тест пакетной обработки.
+     * Проверяет, что на каждый запрос записывается результат с верным статусом и выводом,
+     * id запроса возвращается, а запросы после exit пропускаются.
+     */
+    @Test
+    void testResultPerRequest() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 2_000; i++) {
+            input.append("{\"id\": ").append(i).append(", \"command\": \"add\", \"argument\": \"{Flat ")
+                    .append(i).append(",1,2,75,3,true,10,PARK,{House,2000,4}}\"}\n");
+        }
+        input.append("{\"id\": \"remove\", \"command\": \"remove_by_id 1\"}\n")
+                .append("\n")
+                .append("{\"command\": \"remove_by_id\", \"argument\": \"abc\"}\n")
+                .append("not json\n")
+                .append("{\"command\": \"bogus\"}\n")
+                .append("{\"command\": \"update\"}\n")
+                .append("{\"command\": \"exit\"}\n")
+                .append("{\"command\": \"clear\"}\n");
+        Files.write(requests, input.toString().getBytes(StandardCharsets.UTF_8));
+
+        FlatRepository repository = new FlatRepository();
+        BatchProcessor.Summary summary = new BatchProcessor(new CommandManager(repository)).process(requests, results);
+
+        List<JsonObject> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(results, StandardCharsets.UTF_8)) {
+            lines.add(Json.createReader(new StringReader(line)).readObject());
+        }
+        assertEquals(2_007, lines.size());
+        assertEquals(2_007, summary.requests);
+        assertEquals(1_999, repository.size());
+
+        JsonObject first = lines.get(0);
+        assertEquals(1, first.getInt("id"));
+        assertEquals("ok", first.getString("status"));
+        assertTrue(first.getString("output").contains("Element added successfully"));
+        assertTrue(first.containsKey("durationMicros"));
+
+        assertEquals("remove", lines.get(2_000).getString("id"));
+        assertEquals(2_001, lines.get(2_000).getInt("line"));
+        assertEquals("ok", lines.get(2_000).getString("status"));
+        assertEquals("error", lines.get(2_001).getString("status"));
+        assertEquals("invalid", lines.get(2_002).getString("status"));
+        assertEquals("unknown", lines.get(2_003).getString("status"));
+        assertEquals("rejected", lines.get(2_004).getString("status"));
+        assertEquals("ok", lines.get(2_005).getString("status"));
+        assertEquals("skipped", lines.get(2_006).getString("status"));
+        assertEquals(5, summary.failed);
+    }
+
+    /**
+     * Тест скрипта с интерактивными командами в пакетном режиме.
+     * Строки скрипта, которым нужен ввод с консоли, пропускаются с ошибкой, остальные выполняются.
+     */
+    @Test
+    void testScriptRejectsInteractiveLines() throws Exception {
+        Path script = Files.createTempFile("script", ".txt");
+        try {
+            Files.write(script, ("add\n"
+                    + "add {Flat 1,1,2,75,3,true,10,PARK,{House,2000,4}}\n"
+                    + "update\n").getBytes(StandardCharsets.UTF_8));
+            Files.write(requests, Json.createObjectBuilder()
+                    .add("command", "execute_script")
+                    .add("argument", "-q " + script)
+                    .build().toString().concat("\n").getBytes(StandardCharsets.UTF_8));
+
+            FlatRepository repository = new FlatRepository();
+            new BatchProcessor(new CommandManager(repository)).process(requests, results);
+
+            List<String> lines = Files.readAllLines(results, StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+            JsonObject result = Json.createReader(new StringReader(lines.get(0))).readObject();
+            assertEquals("error", result.getString("status"));
+            assertTrue(result.getString("output").contains("Element added successfully"));
+            assertTrue(result.getString("error").contains("line skipped: add\n"));
+            assertTrue(result.getString("error").contains("line skipped: update\n"));
+            assertEquals(1, repository.size());
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import flatset.commands.CommandManager;
+import flatset.server.CommandServer;
+import flatset.server.LoadClient;
+import flatset.storage.FlatRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandServerTest {
+
+    private FlatRepository repository;
+    private CommandServer server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = new FlatRepository();
+        server = new CommandServer(new CommandManager(repository), 0);
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        serverThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+        serverThread.join(10_000);
+    }
+
+    /**
+     * Тест конвейерной обработки команд.
+     * Клиент отправляет несколько команд одним блоком и получает ответы в том же порядке,
+     * каждый с терминатором; exit закрывает соединение.
+     */
+    @Test
+    void testPipelinedCommands() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("add {Flat 1,1,2,75,3,true,10,PARK,{House,2000,4}}\n"
+                    + "add {Flat 2,1,2,75,3,true,10,PARK,{House,2000,4}}\r\n"
+                    + "remove_by_id 1\n\n"
+                    + "add\n"
+                    + "info\n"
+                    + "exit\n"
+                    + "info\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            List<String> replies = readReplies(socket);
+            assertEquals(6, replies.size());
+            assertTrue(replies.get(0).contains("Element added successfully"));
+            assertTrue(replies.get(2).contains("successfully removed"));
+            assertTrue(replies.get(3).startsWith("Interactive input is not available"));
+            assertTrue(replies.get(4).contains("Number of elements: 1"));
+            assertEquals("Bye.\n", replies.get(5));
+        }
+        assertEquals(1, repository.size());
+        assertTrue(repository.contains(2));
+    }
+
+    /**
+     * Тест сессий соединений.
+     * Постраничный просмотр одного клиента не сбивается командами show другого клиента.
+     */
+    @Test
+    void testShowCursorIsPerConnection() throws IOException {
+        try (Socket first = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             Socket second = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            StringBuilder commands = new StringBuilder();
+            for (int i = 1; i <= 5; i++) {
+                commands.append("add {Flat ").append(i).append(",1,2,75,3,true,10,PARK,{House,2000,4}}\n");
+            }
+            commands.append("show 0 2\n");
+            send(first, commands.toString());
+            BufferedReader firstIn = reader(first);
+            for (int i = 0; i < 5; i++) {
+                readReply(firstIn);
+            }
+            assertTrue(readReply(firstIn).contains("Shown elements 1-2 of 5."));
+
+            send(second, "show 3 1\nshow next\nexit\n");
+            List<String> secondReplies = readReplies(second);
+            assertTrue(secondReplies.get(0).contains("Shown elements 4-4 of 5."));
+            assertTrue(secondReplies.get(1).contains("Shown elements 5-5 of 5."));
+
+            send(first, "show next\nexit\n");
+            assertTrue(readReply(firstIn).contains("Shown elements 3-4 of 5."));
+        }
+    }
+
+    /**
+     * Тест скрипта с интерактивными командами по сети.
+     * Строки скрипта, которым нужен ввод с консоли, пропускаются с ошибкой вместо ожидания ввода,
+     * остальные строки выполняются.
+     */
+    @Test
+    void testScriptRejectsInteractiveLines() throws IOException {
+        Path script = Files.createTempFile("script", ".txt");
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            Files.write(script, ("add\n"
+                    + "add {Flat 1,1,2,75,3,true,10,PARK,{House,2000,4}}\n"
+                    + "update\n").getBytes(StandardCharsets.UTF_8));
+            socket.setSoTimeout(10_000);
+            send(socket, "execute_script -q " + script + "\nexit\n");
+
+            List<String> replies = readReplies(socket);
+            assertEquals(2, replies.size());
+            assertTrue(replies.get(0).contains("line skipped: add\n"));
+            assertTrue(replies.get(0).contains("Element added successfully"));
+            assertTrue(replies.get(0).contains("line skipped: update\n"));
+        } finally {
+            Files.deleteIfExists(script);
+        }
+        assertEquals(1, repository.size());
+    }
+
+    /**
+     * Тест генератора нагрузки.
+     * Проверяет, что по нескольким соединениям приходит ответ на каждую отправленную команду.
+     */
+    @Test
+    void testLoadClientReceivesEveryReply() throws Exception {
+        LoadClient.Result result = LoadClient.run(server.getPort(), 3, 500, "info");
+        assertEquals(1_500, result.replies);
+        assertEquals(1_500, server.getCommandsExecuted());
+    }
+
+    private static void send(Socket socket, String text) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Читает один ответ до строки из одной точки.
+     */
+    private static String readReply(BufferedReader in) throws IOException {
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            reply.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+        }
+        return reply.toString();
+    }
+
+    /**
+     * Читает ответы до закрытия соединения сервером; строка из одной точки завершает ответ.
+     */
+    private static List<String> readReplies(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        List<String> replies = new ArrayList<>();
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(".")) {
+                replies.add(reply.toString());
+                reply.setLength(0);
+            } else {
+                reply.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+            }
+        }
+        return replies;
+    }
+}
@@ -2,12 +2,16 @@ import flatset.Coordinates;
 import flatset.Flat;
 import flatset.House;
 import flatset.View;
+import flatset.utils.FlatLiteralParser;
+import flatset.utils.FlatUpdater;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.ZonedDateTime;
 import java.util.HashSet;
 import java.util.Comparator;
+import java.util.Random;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -207,4 +211,130 @@ class FlatCollectionTest {
 
         assertArrayEquals(new House[]{house2, house1, house1}, sortedHouses);
     }
-}
\ No newline at end of file
+
+    /**
+     * Тест порядка сравнения квартир.
+     * Проверяет, что compareTo упорядочивает квартиры так же, как эквивалентная цепочка компараторов,
+     * в том числе при совпадающих полях и отсутствующих значениях.
+     */
+    @Test
+    void testCompareToMatchesComparatorChain() {
+        Comparator<Flat> reference = Comparator.comparingLong(Flat::getId)
+                .thenComparing(Flat::getName)
+                .thenComparing(Flat::getCoordinates, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Flat::getCreationDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingLong(Flat::getArea)
+                .thenComparingLong(Flat::getNumberOfRooms)
+                .thenComparing(Flat::isNew, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingDouble(Flat::getTimeToMetroByTransport)
+                .thenComparing(Flat::getView, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Flat::getHouse, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        Random random = new Random(42);
+        ZonedDateTime now = ZonedDateTime.now();
+        Flat[] flats = new Flat[300];
+        for (int i = 0; i < flats.length; i++) {
+            House house = random.nextInt(3) == 0 ? null
+                    : new House("House " + random.nextInt(2), 2000 + random.nextInt(2), 1 + random.nextInt(2));
+            Flat flat = new Flat(random.nextInt(2), "Flat " + random.nextInt(2),
+                    new Coordinates(random.nextInt(2), random.nextInt(2)), now.plusSeconds(random.nextInt(2)),
+                    75 + random.nextInt(2), 1 + random.nextInt(2), random.nextBoolean(), 10.0 + random.nextInt(2),
+                    View.values()[random.nextInt(2)], house);
+            if (random.nextInt(4) == 0) {
+                flat = flat.toBuilder().setNew(null).build();
+            }
+            flats[i] = flat;
+        }
+
+        for (Flat a : flats) {
+            for (Flat b : flats) {
+                assertEquals(Integer.signum(reference.compare(a, b)), Integer.signum(a.compareTo(b)));
+            }
+        }
+    }
+
+    /**
+     * Тест обновления полей неизменяемой квартиры.
+     * Проверяет, что обновление создаёт новую версию, а исходная квартира остаётся
+     * неизменной и по-прежнему находится в хэш-множестве.
+     */
+    @Test
+    void testUpdateFieldsCreatesNewVersion() {
+        Flat flat = new Flat(1, "Flat 1", new Coordinates(10, -100), ZonedDateTime.now(), 75, 3, true, 15.5, View.PARK,
+                new House("House A", 2005, 4));
+        flatSet.add(flat);
+        int hash = flat.hashCode();
+
+        Flat updated = FlatUpdater.updateFields(flat,
+                "{\"name\": \"Updated\", \"coordinates\": {\"y\": 5}, \"house\": {\"year\": 2010}}");
+
+        assertEquals("Flat 1", flat.getName());
+        assertEquals(hash, flat.hashCode());
+        assertTrue(flatSet.contains(flat));
+        assertEquals(1, updated.getId());
+        assertEquals("Updated", updated.getName());
+        assertEquals(new Coordinates(10, 5), updated.getCoordinates());
+        assertEquals(new House("House A", 2010, 4), updated.getHouse());
+        assertEquals(2005, flat.getHouse().getYear());
+    }
+
+    /**
+     * Тест обновления дома у квартиры без дома.
+     * Частичное описание дома отклоняется, полное создаёт дом.
+     */
+    @Test
+    void testUpdateHouseOfFlatWithoutHouse() {
+        Flat flat = new Flat(1, "Flat 1", new Coordinates(10, -100), ZonedDateTime.now(), 75, 3, true, 15.5, View.PARK,
+                null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> FlatUpdater.updateFields(flat, "{\"house\": {\"year\": 2000}}"));
+        assertNull(flat.getHouse());
+
+        Flat updated = FlatUpdater.updateFields(flat,
+                "{\"house\": {\"name\": \"House B\", \"year\": 2000, \"numberOfFlatsOnFloor\": 6}}");
+        assertEquals(new House("House B", 2000, 6), updated.getHouse());
+    }
+
+    /**
+     * Тест разбора строкового литерала квартиры.
+     * Проверяет обе записи дома, совпадение чисел с Double.parseDouble и сообщения об ошибках без исключений.
+     */
+    @Test
+    void testFlatLiteralParser() {
+        FlatLiteralParser parser = new FlatLiteralParser();
+        House house = new House("House A", 2005, 4);
+
+        assertTrue(parser.parse("{Flat 1, 10, -20, 75, 3, TRUE, 12.5, park, {House A, 2005, 4}}"));
+        Flat nested = parser.build(1, ZonedDateTime.now(), UnaryOperator.identity());
+        assertTrue(parser.parse("{Flat 1,10,-20,75,3,true,12.5,PARK,House A,2005,4}"));
+        Flat trailing = parser.build(1, nested.getCreationDate(), h -> house);
+        assertEquals(nested, trailing);
+        assertSame(house, trailing.getHouse());
+
+        assertTrue(parser.parse("Flat 2,0,0,1,1,false,0,BAD"));
+        assertFalse(parser.hasHouse());
+        assertNull(parser.build(2, ZonedDateTime.now(), UnaryOperator.identity()).getHouse());
+
+        Random random = new Random(17);
+        for (int i = 0; i < 1_000; i++) {
+            String time = i % 2 == 0 ? Double.toString(random.nextDouble() * 100) : (random.nextInt(100_000) / 1000.0) + "";
+            assertTrue(parser.parse("a,1,1,1,1,true," + time + ",STREET"));
+            assertEquals(Double.parseDouble(time),
+                    parser.build(1, ZonedDateTime.now(), UnaryOperator.identity()).getTimeToMetroByTransport());
+        }
+
+        assertFalse(parser.parse("{Flat,1,-318,75,3,true,1,PARK}"));
+        assertEquals("Coordinate y must be greater than -318", parser.getError());
+        assertFalse(parser.parse("{Flat,1,2,0,3,true,1,PARK}"));
+        assertEquals("Area must be a positive number", parser.getError());
+        assertFalse(parser.parse("{Flat,1,2,99999999999999999999,3,true,1,PARK}"));
+        assertTrue(parser.getError().startsWith("Invalid value for area"));
+        assertFalse(parser.parse("{Flat,1,2,3,3,true,1}"));
+        assertTrue(parser.getError().startsWith("Expected at least 8 values"));
+        assertFalse(parser.parse("{Flat,1,2,3,3,true,1,PARK,{House,2005}}"));
+        assertTrue(parser.getError().startsWith("Invalid format for house"));
+        assertFalse(parser.parse("{Flat,1,2,3,3,maybe,1,PARK}"));
+        assertEquals("isNew must be true or false", parser.getError());
+    }
+}
@@ -0,0 +1,346 @@
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+import flatset.View;
+import flatset.commands.CommandManager;
+import flatset.commands.CommandSession;
+import flatset.storage.FlatRepository;
+import flatset.storage.Journal;
+import flatset.utils.FlatLoader;
+import flatset.utils.FlatSaver;
+import flatset.utils.FlatSnapshot;
+import flatset.utils.ParallelFlatLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatLoaderTest {
+
+    private Path dataFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataFile = Files.createTempFile("flats", ".json");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(dataFile);
+    }
+
+    private static FlatRepository generate(int count) {
+        FlatRepository repository = new FlatRepository(count);
+        House house = new House("House A", 2005, 4);
+        for (long id = 1; id <= count; id++) {
+            repository.add(new Flat(id, "Flat \"" + id + "\"", new Coordinates((int) id, -100),
+                    ZonedDateTime.now(), 75 + id, 1 + id % 5, id % 2 == 0, 15.5, View.values()[(int) (id % 4)],
+                    id % 3 == 0 ? null : house));
+        }
+        return repository;
+    }
+
+    /**
+     * Тест сохранения и повторной загрузки коллекции.
+     * Проверяет, что после сохранения и загрузки квартиры и генератор ID совпадают с исходными.
+     */
+    @Test
+    void testSaveAndLoadRoundTrip() throws IOException {
+        FlatRepository original = generate(100);
+        original.removeById(100);
+        FlatSaver.saveToFile(original, dataFile.toString());
+
+        FlatRepository loaded = FlatLoader.loadFromFile(dataFile.toString());
+
+        assertEquals(99, loaded.size());
+        for (Flat flat : original) {
+            assertEquals(flat, loaded.get(flat.getId()));
+        }
+        assertEquals(101, loaded.nextId());
+    }
+
+    /**
+     * Тест атомарной замены файла при сохранении.
+     * Сбой посреди записи не портит сохранённую ранее копию, одновременные сохранения в один файл
+     * не мешают друг другу, и ни в одном случае не остаётся временных файлов.
+     */
+    @Test
+    void testSaveReplacesFileAtomically() throws Exception {
+        FlatRepository original = generate(100);
+        FlatSaver.saveToFile(original, dataFile.toString());
+        byte[] saved = Files.readAllBytes(dataFile);
+
+        FlatRepository broken = generate(10);
+        // Квартира без вида не может быть записана: сохранение прервётся на середине
+        broken.add(new Flat(11, "Broken", new Coordinates(1, 1), ZonedDateTime.now(), 50, 2, null, 5, null, null));
+        assertThrows(RuntimeException.class, () -> FlatSaver.saveToFile(broken, dataFile.toString()));
+        assertArrayEquals(saved, Files.readAllBytes(dataFile));
+        assertEquals(0, countTempFiles());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> saves = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                saves.add(executor.submit(() -> FlatSaver.saveToFile(original, dataFile.toString())));
+            }
+            for (Future<Integer> save : saves) {
+                assertEquals(100, (int) save.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(100, FlatLoader.loadFromFile(dataFile.toString()).size());
+        assertEquals(0, countTempFiles());
+    }
+
+    /**
+     * Считает оставшиеся временные файлы сохранения рядом с файлом данных.
+     */
+    private long countTempFiles() throws IOException {
+        String prefix = dataFile.getFileName() + ".";
+        try (Stream<Path> files = Files.list(dataFile.getParent())) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(".tmp"))
+                    .count();
+        }
+    }
+
+    /**
+     * Тест выполнения скрипта.
+     * Проверяет, что скрипт, вызывающий сам себя, не зацикливается, а exit завершает только скрипт.
+     */
+    @Test
+    void testScriptRecursionAndExit() throws IOException {
+        FlatRepository repository = generate(10);
+        CommandManager manager = new CommandManager(repository);
+        String script = "# self-referencing script\nremove_by_id 1\nexecute_script " + dataFile
+                + "\nremove_by_id 2\nexit\nremove_by_id 3\n";
+        Files.write(dataFile, script.getBytes(StandardCharsets.UTF_8));
+
+        manager.executeCommand("execute_script -q " + dataFile);
+
+        assertEquals(8, repository.size());
+        assertFalse(repository.contains(1));
+        assertFalse(repository.contains(2));
+        assertTrue(repository.contains(3));
+        assertTrue(manager.isRunning());
+    }
+
+    /**
+     * Тест скрипта в неинтерактивной сессии.
+     * Строки, которым нужен ввод с консоли, пропускаются, не дожидаясь ввода; остальные выполняются.
+     */
+    @Test
+    void testScriptSkipsInteractiveLinesWithoutConsole() throws IOException {
+        FlatRepository repository = generate(10);
+        CommandManager manager = new CommandManager(repository);
+        Files.write(dataFile, "add\nremove_by_id 1\nupdate\n".getBytes(StandardCharsets.UTF_8));
+
+        manager.execute(manager.compile("execute_script -q " + dataFile, new CommandSession(false)));
+
+        assertEquals(9, repository.size());
+        assertFalse(repository.contains(1));
+    }
+
+    /**
+     * Тест сохранения и загрузки двоичного снимка.
+     * Проверяет, что квартиры, в том числе без дома и со статусом новизны null, восстанавливаются без изменений.
+     */
+    @Test
+    void testSnapshotRoundTrip() throws IOException {
+        FlatRepository original = generate(1_000);
+        original.replace(original.get(1).toBuilder().setNew(null).build());
+        original.replace(original.get(2).toBuilder().setName("Квартира 2").build());
+        original.removeById(1_000);
+        FlatSnapshot.saveToFile(original, dataFile.toString());
+
+        FlatRepository loaded = FlatSnapshot.loadFromFile(dataFile.toString());
+
+        assertEquals(original.size(), loaded.size());
+        for (Flat flat : original) {
+            assertEquals(flat, loaded.get(flat.getId()));
+        }
+        assertEquals(1_001, loaded.nextId());
+    }
+
+    /**
+     * Тест восстановления коллекции из снимка и журнала изменений.
+     * Проверяет, что проигрывание журнала поверх снимка воспроизводит все изменения,
+     * а оборванная последняя запись отбрасывается.
+     */
+    @Test
+    void testJournalReplayOverSnapshot() throws IOException {
+        Path journalFile = Files.createTempFile("flats", ".journal");
+        try {
+            FlatRepository live = generate(10);
+            FlatSnapshot.saveToFile(live, dataFile.toString());
+
+            try (Journal journal = Journal.open(journalFile.toString())) {
+                live.addListener(journal);
+                live.removeById(3);
+                live.replace(live.get(4).toBuilder().setName("Renamed").build());
+                live.add(new Flat(live.nextId(), "Flat 11", new Coordinates(1, 1), ZonedDateTime.now(),
+                        50, 2, false, 3.0, View.BAD, new House("House B", 2010, 6)));
+                live.removeIf(f -> f.getId() > 8 && f.getId() < 11);
+            }
+            Files.write(journalFile, new byte[]{0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+
+            FlatRepository restored = FlatSnapshot.loadFromFile(dataFile.toString());
+            try (Journal journal = Journal.open(journalFile.toString())) {
+                assertEquals(5, journal.replay(restored));
+            }
+
+            assertEquals(live.size(), restored.size());
+            for (Flat flat : live) {
+                assertEquals(flat, restored.get(flat.getId()));
+            }
+            assertEquals(12, restored.nextId());
+        } finally {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    /**
+     * Тест устойчивости журнала к ошибкам записей.
+     * Прерванная исключением запись не оставляет байтов в следующей записи,
+     * а запись с верной контрольной суммой, но нечитаемым содержимым отбрасывается как оборванный хвост.
+     */
+    @Test
+    void testJournalSkipsFailedAndCorruptRecords() throws IOException {
+        Path journalFile = Files.createTempFile("flats", ".journal");
+        try {
+            Flat valid = new Flat(1, "Flat 1", new Coordinates(1, 1), ZonedDateTime.now(),
+                    50, 2, false, 3.0, View.BAD, new House("House B", 2010, 6));
+            try (Journal journal = Journal.open(journalFile.toString())) {
+                assertThrows(NullPointerException.class, () -> journal.onAdd(valid.toBuilder().setId(2)
+                        .setHouse(new House(null, 2000, 0)).build()));
+                journal.onAdd(valid);
+            }
+            long intact = Files.size(journalFile);
+            // Запись PUT из одного байта типа: CRC верна, но квартиру прочитать нельзя
+            byte[] payload = {1};
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            Files.write(journalFile, ByteBuffer.allocate(9).putInt(1).putInt((int) crc.getValue()).put(payload).array(),
+                    StandardOpenOption.APPEND);
+
+            FlatRepository restored = new FlatRepository();
+            try (Journal journal = Journal.open(journalFile.toString())) {
+                assertEquals(1, journal.replay(restored));
+            }
+            assertEquals(1, restored.size());
+            assertEquals(valid, restored.get(1));
+            assertEquals(intact, Files.size(journalFile));
+        } finally {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    /**
+     * Тест загрузки снимка в работающую коллекцию с журналом.
+     * Снимок заменяет содержимое коллекции, становится базой журнала вместо записи каждой квартиры в журнал,
+     * а повреждённый снимок коллекцию не меняет.
+     */
+    @Test
+    void testLoadSnapshotRebasesJournal() throws IOException {
+        Path directory = Files.createTempDirectory("flats");
+        try {
+            FlatRepository live = generate(10);
+            try (Journal journal = Journal.open(directory.resolve(Journal.DEFAULT_JOURNAL_FILE).toString())) {
+                live.addListener(journal);
+                CommandManager manager = new CommandManager(live, journal);
+                live.removeById(1);
+
+                FlatRepository other = generate(500);
+                Path snapshot = directory.resolve("other.snapshot");
+                FlatSnapshot.saveToFile(other, snapshot.toString());
+                manager.executeCommand("load_snapshot " + snapshot);
+
+                assertEquals(500, live.size());
+                for (Flat flat : other) {
+                    assertEquals(flat, live.get(flat.getId()));
+                }
+                long emptyJournal = journal.size();
+                live.removeById(2);
+                assertTrue(journal.size() > emptyJournal);
+                assertTrue(emptyJournal < 16);
+
+                byte[] bytes = Files.readAllBytes(snapshot);
+                Files.write(snapshot, Arrays.copyOf(bytes, bytes.length / 2));
+                manager.executeCommand("load_snapshot " + snapshot);
+                assertEquals(499, live.size());
+            }
+
+            FlatRepository restored = FlatSnapshot.loadFromFile(directory.resolve(FlatSnapshot.DEFAULT_SNAPSHOT_FILE).toString());
+            try (Journal journal = Journal.open(directory.resolve(Journal.DEFAULT_JOURNAL_FILE).toString())) {
+                assertEquals(1, journal.replay(restored));
+            }
+            assertEquals(live.size(), restored.size());
+            for (Flat flat : live) {
+                assertEquals(flat, restored.get(flat.getId()));
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Тест параллельной загрузки большого файла.
+     * Проверяет, что файл из нескольких кусков загружается так же, как последовательным загрузчиком.
+     */
+    @Test
+    void testParallelLoadMatchesSequential() throws IOException {
+        FlatRepository original = generate(30_000);
+        FlatSaver.saveToFile(original, dataFile.toString());
+
+        FlatRepository sequential = FlatLoader.loadFromFile(dataFile.toString());
+        FlatRepository parallel = ParallelFlatLoader.loadFromFile(dataFile.toString(), new ForkJoinPool(4));
+
+        assertEquals(sequential.size(), parallel.size());
+        for (Flat flat : sequential) {
+            assertEquals(flat, parallel.get(flat.getId()));
+        }
+        assertEquals(sequential.nextId(), parallel.nextId());
+    }
+
+    /**
+     * Тест пропуска некорректных записей при параллельной загрузке.
+     * Проверяет, что некорректные записи старого формата (простой массив) пропускаются.
+     */
+    @Test
+    void testParallelLoadSkipsInvalidRecords() throws IOException {
+        String json = "[{\"id\": 1, \"name\": \"A\", \"coordinates\": {\"x\": 1, \"y\": 2},"
+                + " \"creationDate\": \"2023-10-01T12:00:00Z\", \"area\": 75, \"numberOfRooms\": 3, \"new\": null,"
+                + " \"timeToMetroByTransport\": 15.5, \"view\": \"PARK\", \"house\": null},"
+                + " {\"id\": 2, \"name\": \"B\"}, 42]";
+        Files.write(dataFile, json.getBytes(StandardCharsets.UTF_8));
+
+        FlatRepository loaded = ParallelFlatLoader.loadFromFile(dataFile.toString());
+
+        assertEquals(1, loaded.size());
+        assertNull(loaded.get(1).isNew());
+    }
+}
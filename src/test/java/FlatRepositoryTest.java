@@ -0,0 +1,582 @@
+import flatset.Coordinates;
+import flatset.Flat;
+import flatset.House;
+import flatset.query.FlatQuery;
+import flatset.View;
+import flatset.storage.CollectionStatistics;
+import flatset.storage.FlatRepository;
+import flatset.storage.HousePool;
+import flatset.storage.MemoryReport;
+import flatset.storage.RangeIndex;
+import flatset.storage.RoomsIndex;
+import flatset.storage.SpatialIndex;
+import flatset.utils.FlatFormatter;
+import flatset.utils.MemoryLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatRepositoryTest {
+
+    private FlatRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new FlatRepository();
+    }
+
+    private static Flat flat(long id) {
+        return new Flat(id, "Flat " + id, new Coordinates(10, -100), ZonedDateTime.now(), 75, 3, true, 15.5, View.PARK, null);
+    }
+
+    /**
+     * Тест поиска квартиры по ID.
+     * Проверяет, что квартира находится по своему ID, а повторное добавление того же ID отклоняется.
+     */
+    @Test
+    void testAddAndGetById() {
+        Flat flat = flat(1);
+        assertTrue(repository.add(flat));
+        assertFalse(repository.add(flat(1)));
+        assertSame(flat, repository.get(1));
+        assertNull(repository.get(2));
+        assertEquals(1, repository.size());
+    }
+
+    /**
+     * Тест замены квартиры по ID.
+     * Проверяет, что замена выполняется только для существующего ID.
+     */
+    @Test
+    void testReplace() {
+        repository.add(flat(1));
+        Flat updated = flat(1).toBuilder().setName("Updated Flat").build();
+
+        assertNotNull(repository.replace(updated));
+        assertSame(updated, repository.get(1));
+        assertNull(repository.replace(flat(2)));
+        assertFalse(repository.contains(2));
+    }
+
+    /**
+     * Тест удаления большого числа квартир по ID.
+     * Проверяет, что после удалений оставшиеся квартиры по-прежнему находятся по ID.
+     */
+    @Test
+    void testRemoveManyById() {
+        for (long id = 1; id <= 10_000; id++) {
+            repository.add(flat(id));
+        }
+        for (long id = 1; id <= 10_000; id += 2) {
+            assertNotNull(repository.removeById(id));
+        }
+
+        assertEquals(5_000, repository.size());
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id % 2 == 0, repository.contains(id));
+        }
+        assertNull(repository.removeById(1));
+    }
+
+    /**
+     * Тест удаления квартир по условию.
+     * Проверяет, что удаляются только квартиры, удовлетворяющие условию,
+     * а ID удалённых квартир не выдаются повторно.
+     */
+    @Test
+    void testRemoveIf() {
+        for (long id = 1; id <= 10; id++) {
+            repository.add(flat(id));
+        }
+
+        assertEquals(5, repository.removeIf(f -> f.getId() > 5));
+        assertEquals(5, repository.size());
+        assertEquals(11, repository.nextId());
+    }
+
+    /**
+     * Тест упорядоченного индекса.
+     * Проверяет минимум, максимум и удаление квартир больше заданной после замен и удалений.
+     */
+    @Test
+    void testOrderedIndex() {
+        for (long id = 1; id <= 100; id++) {
+            repository.add(flat(id));
+        }
+        Flat renamed = repository.get(100).toBuilder().setName("A").build();
+        repository.replace(renamed);
+        repository.removeById(1);
+
+        assertEquals(2, repository.min().getId());
+        assertSame(renamed, repository.max());
+
+        assertEquals(50, repository.removeGreaterThan(flat(50)));
+        assertEquals(49, repository.size());
+        assertEquals(50, repository.max().getId());
+        assertEquals(49, repository.ordered().size());
+
+        repository.removeById(10);
+        assertEquals(11, repository.fromId(10).first().getId());
+        assertEquals(40, repository.fromId(10).size());
+        assertTrue(repository.fromId(51).isEmpty());
+    }
+
+    /**
+     * Тест потокового форматирования.
+     * Проверяет, что FlatFormatter пишет ровно тот же текст, что и Flat.toString.
+     */
+    @Test
+    void testFlatFormatterMatchesToString() {
+        Flat withHouse = flat(7).toBuilder().setHouse(new House("House", 1999, 4)).build();
+        Flat sparse = new Flat(8, "Sparse", null, null, 1, 1, null, 0.5, null, null);
+        for (Flat flat : Arrays.asList(flat(1), withHouse, sparse)) {
+            StringWriter text = new StringWriter();
+            PrintWriter out = new PrintWriter(text);
+            FlatFormatter.write(out, flat);
+            out.flush();
+            assertEquals(flat.toString(), text.toString());
+        }
+    }
+
+    /**
+     * Тест пула домов.
+     * Проверяет, что квартиры с одинаковыми домами разделяют один экземпляр House,
+     * дом исчезает из пула, когда на него не остаётся ссылок, а обход в порядке убывания
+     * возвращает каждый дом с количеством его вхождений.
+     */
+    @Test
+    void testHousePool() {
+        for (long id = 1; id <= 10; id++) {
+            House house = new House(id % 2 == 0 ? "House A" : "House B", 2005, 4);
+            repository.add(flat(id).toBuilder().setHouse(house).build());
+        }
+        HousePool pool = repository.getHousePool();
+
+        assertEquals(2, pool.size());
+        assertSame(repository.get(2).getHouse(), repository.get(4).getHouse());
+        assertEquals(5, pool.referenceCount(new House("House A", 2005, 4)));
+
+        repository.replace(repository.get(2).toBuilder().setHouse(new House("House C", 2010, 6)).build());
+        repository.removeIf(f -> f.getHouse().getName().equals("House B"));
+
+        assertEquals(2, pool.size());
+        assertEquals(4, pool.referenceCount(new House("House A", 2005, 4)));
+        assertEquals(0, pool.referenceCount(new House("House B", 2005, 4)));
+
+        StringBuilder descending = new StringBuilder();
+        pool.forEachDescending((house, count) -> descending.append(house.getName()).append('x').append(count).append(' '));
+        assertEquals("House Cx1 House Ax4 ", descending.toString());
+
+        repository.clear();
+        assertEquals(0, pool.size());
+    }
+
+    /**
+     * Тест индекса по количеству комнат.
+     * Проверяет, что индекс отражает добавления, замены, удаления и очистку коллекции.
+     */
+    @Test
+    void testRoomsIndex() {
+        for (long id = 0; id < 1_000; id++) {
+            repository.add(flat(id).toBuilder().setNumberOfRooms(1 + id % 4).build());
+        }
+        RoomsIndex index = repository.getRoomsIndex();
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), Arrays.asList(index.roomCounts().toArray()));
+        assertEquals(250, index.count(2));
+
+        repository.replace(repository.get(1).toBuilder().setNumberOfRooms(7).build());
+        repository.removeIf(f -> f.getNumberOfRooms() == 1);
+        repository.removeById(5);
+
+        assertArrayEquals(new long[]{1}, index.idsWithRooms(7));
+        assertEquals(0, index.count(1));
+        assertEquals(248, index.count(2));
+        assertEquals(Arrays.asList(2L, 3L, 4L, 7L), Arrays.asList(index.roomCounts().toArray()));
+        long[] ids = index.idsWithRooms(3);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+        List<Long> visited = new ArrayList<>();
+        index.forEachWithRooms(3, visited::add);
+        assertEquals(Arrays.stream(ids).boxed().collect(Collectors.toList()), visited);
+        long[] range = index.idsWithRooms(2, 4);
+        assertEquals(index.count(2) + index.count(3) + index.count(4), range.length);
+        assertEquals(range.length, index.count(2, 4));
+        for (int i = 1; i < range.length; i++) {
+            assertTrue(range[i - 1] < range[i]);
+        }
+
+        repository.clear();
+        assertTrue(index.roomCounts().isEmpty());
+    }
+
+    /**
+     * Тест пространственного индекса.
+     * Сравнивает поиск ближайших квартир и квартир в прямоугольнике с полным перебором
+     * после добавлений (в том числе скопления в одной точке), перемещений и удалений.
+     */
+    @Test
+    void testSpatialIndex() {
+        Random random = new Random(7);
+        for (long id = 1; id <= 5_000; id++) {
+            Coordinates coordinates = id % 10 == 0
+                    ? new Coordinates(5, 5)
+                    : new Coordinates(random.nextInt(2_000) - 1_000, random.nextInt(1_000) - 300);
+            repository.add(flat(id).toBuilder().setCoordinates(coordinates).build());
+        }
+        for (long id = 1; id <= 5_000; id += 7) {
+            repository.replace(repository.get(id).toBuilder()
+                    .setCoordinates(new Coordinates(random.nextInt(4_000) - 2_000, random.nextInt(2_000) - 300)).build());
+        }
+        repository.removeIf(f -> f.getId() % 11 == 0);
+        SpatialIndex index = repository.getSpatialIndex();
+        assertEquals(repository.size(), index.size());
+        assertTrue(index.getCellSize() < 1024);
+
+        for (int query = 0; query < 200; query++) {
+            int x = random.nextInt(5_000) - 2_500;
+            int y = random.nextInt(3_000) - 1_000;
+            int k = 1 + random.nextInt(20);
+            long[] expected = repository.stream()
+                    .sorted(Comparator.comparingDouble((Flat f) -> distanceSquared(f, x, y)).thenComparingLong(Flat::getId))
+                    .limit(k).mapToLong(Flat::getId).toArray();
+            assertArrayEquals(expected, index.nearest(x, y, k));
+
+            int x2 = x + random.nextInt(500);
+            int y2 = y + random.nextInt(500);
+            long[] inside = repository.stream()
+                    .filter(f -> f.getCoordinates().getX() >= x && f.getCoordinates().getX() <= x2
+                            && f.getCoordinates().getY() >= y && f.getCoordinates().getY() <= y2)
+                    .mapToLong(Flat::getId).sorted().toArray();
+            assertArrayEquals(inside, index.within(x2, y2, x, y));
+        }
+        assertEquals(repository.size(), index.within(Integer.MIN_VALUE, Integer.MIN_VALUE,
+                Integer.MAX_VALUE, Integer.MAX_VALUE).length);
+        assertEquals(repository.size(), index.nearest(Integer.MAX_VALUE, Integer.MIN_VALUE, 10_000).length);
+
+        repository.clear();
+        assertEquals(0, index.nearest(0, 0, 3).length);
+    }
+
+    private static double distanceSquared(Flat flat, int x, int y) {
+        double dx = (double) flat.getCoordinates().getX() - x;
+        double dy = (double) flat.getCoordinates().getY() - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Тест упорядоченных индексов по площади и времени до метро.
+     * Сравнивает диапазоны, подсчёт и обход по убыванию с полным перебором после добавлений,
+     * замен и удалений, затрагивающих много блоков индекса.
+     */
+    @Test
+    void testRangeIndexes() {
+        Random random = new Random(11);
+        for (long id = 1; id <= 5_000; id++) {
+            repository.add(flat(id).toBuilder()
+                    .setArea(20 + random.nextInt(200))
+                    .setTimeToMetroByTransport(random.nextInt(600) / 10.0)
+                    .build());
+        }
+        for (long id = 1; id <= 5_000; id += 3) {
+            repository.replace(repository.get(id).toBuilder().setArea(20 + random.nextInt(200)).build());
+        }
+        repository.removeIf(f -> f.getId() % 7 == 0);
+        RangeIndex area = repository.getAreaIndex();
+        RangeIndex metro = repository.getMetroIndex();
+        assertEquals(repository.size(), area.size());
+        assertEquals(repository.size(), metro.size());
+
+        for (int query = 0; query < 50; query++) {
+            long low = 20 + random.nextInt(200);
+            long high = low + random.nextInt(40);
+            long[] expected = repository.stream().filter(f -> f.getArea() >= low && f.getArea() <= high)
+                    .mapToLong(Flat::getId).sorted().toArray();
+            assertEquals(expected.length, area.count(low, high));
+            assertArrayEquals(expected, area.idsInRange(low, high));
+
+            double from = random.nextInt(600) / 10.0;
+            double to = from + random.nextInt(100) / 10.0;
+            long inMetroRange = repository.stream()
+                    .filter(f -> f.getTimeToMetroByTransport() >= from && f.getTimeToMetroByTransport() <= to).count();
+            assertEquals(inMetroRange, metro.count(RangeIndex.sortableKey(from), RangeIndex.sortableKey(to)));
+        }
+
+        List<Long> top = new ArrayList<>();
+        area.forEachDescending(id -> top.add(id) && top.size() < 10);
+        List<Long> expectedTop = new ArrayList<>();
+        repository.stream()
+                .sorted(Comparator.comparingLong(Flat::getArea).thenComparingLong(Flat::getId).reversed())
+                .limit(10).forEach(f -> expectedTop.add(f.getId()));
+        assertEquals(expectedTop, top);
+
+        double[] values = {Double.NEGATIVE_INFINITY, -2.5, -0.0, 0.0, 1e-300, 0.1, 2.5, Double.MAX_VALUE};
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(RangeIndex.sortableKey(values[i - 1]) <= RangeIndex.sortableKey(values[i]));
+        }
+        assertEquals(RangeIndex.sortableKey(0.0), RangeIndex.sortableKey(-0.0));
+    }
+
+    /**
+     * Тест статистики коллекции.
+     * Сравнивает агрегаты по всей коллекции и по видам с прямым подсчётом
+     * после добавлений, замен и удалений, в том числе удалений текущего минимума и максимума.
+     */
+    @Test
+    void testCollectionStatistics() {
+        Random random = new Random(5);
+        for (long id = 1; id <= 2_000; id++) {
+            repository.add(flat(id).toBuilder()
+                    .setArea(20 + random.nextInt(200))
+                    .setNumberOfRooms(1 + random.nextInt(6))
+                    .setTimeToMetroByTransport(random.nextInt(600) / 10.0)
+                    .setNew(random.nextInt(3) == 0 ? null : random.nextBoolean())
+                    .setView(View.values()[random.nextInt(View.values().length)])
+                    .build());
+        }
+        for (long id = 1; id <= 2_000; id += 5) {
+            repository.replace(repository.get(id).toBuilder().setView(View.BAD).setArea(500).build());
+        }
+        repository.removeIf(f -> f.getArea() == 500 && f.getId() % 2 == 0);
+        repository.removeIf(f -> f.getTimeToMetroByTransport() < 1 || f.getNumberOfRooms() == 6);
+
+        CollectionStatistics statistics = repository.getStatistics();
+        assertGroupMatches(statistics.getTotal(), repository.stream().collect(Collectors.toList()));
+        for (View view : View.values()) {
+            assertGroupMatches(statistics.getByView(view),
+                    repository.stream().filter(f -> f.getView() == view).collect(Collectors.toList()));
+        }
+
+        // Больше различных значений времени до метро, чем помещается в один блок сводки вида
+        for (long id = 2_001; id <= 5_000; id++) {
+            repository.add(flat(id).toBuilder().setView(View.PARK)
+                    .setTimeToMetroByTransport(random.nextInt(1_000_000) / 1000.0).build());
+        }
+        repository.removeIf(f -> f.getView() == View.PARK && f.getId() % 3 == 0);
+        assertGroupMatches(statistics.getByView(View.PARK),
+                repository.stream().filter(f -> f.getView() == View.PARK).collect(Collectors.toList()));
+        assertGroupMatches(statistics.getTotal(), repository.stream().collect(Collectors.toList()));
+
+        repository.clear();
+        assertEquals(0, statistics.getTotal().getCount());
+        assertTrue(Double.isNaN(statistics.getTotal().getArea().getMin()));
+    }
+
+    private static void assertGroupMatches(CollectionStatistics.Group group, List<Flat> flats) {
+        assertEquals(flats.size(), group.getCount());
+        assertEquals(flats.stream().filter(f -> Boolean.TRUE.equals(f.isNew())).count(), group.getNewCount());
+        assertEquals(flats.stream().mapToLong(Flat::getArea).sum(), group.getArea().getSum(), 1e-9);
+        assertEquals(flats.stream().mapToLong(Flat::getArea).min().getAsLong(), group.getArea().getMin());
+        assertEquals(flats.stream().mapToLong(Flat::getArea).max().getAsLong(), group.getArea().getMax());
+        assertEquals(flats.stream().mapToLong(Flat::getNumberOfRooms).max().getAsLong(), group.getRooms().getMax());
+        assertEquals(flats.stream().mapToDouble(Flat::getTimeToMetroByTransport).min().getAsDouble(), group.getMetro().getMin());
+        assertEquals(flats.stream().mapToDouble(Flat::getTimeToMetroByTransport).max().getAsDouble(), group.getMetro().getMax());
+        assertEquals(flats.stream().mapToDouble(Flat::getTimeToMetroByTransport).sum(), group.getMetro().getSum(), 1e-6);
+    }
+
+    /**
+     * Тест подсчёта памяти коллекции.
+     * Сверяет размеры квартир, названий и дат с моделью размещения объектов, проверяет,
+     * что выборка для большой коллекции даёт близкий к точному результат, а индексы и дома учитываются.
+     */
+    @Test
+    void testMemoryReport() {
+        MemoryLayout layout = new MemoryLayout(12, 4, true);
+        ZonedDateTime date = ZonedDateTime.of(2020, 1, 1, 10, 30, 0, 0, ZoneOffset.UTC);
+        for (long id = 1; id <= 1_000; id++) {
+            repository.add(new Flat(id, "Flat " + id, new Coordinates((int) id, (int) id), date,
+                    20 + id % 100, 1 + id % 5, true, id % 60, View.PARK, new House("House " + id % 10, 2000, 4)));
+        }
+        MemoryReport report = repository.measureMemory(layout);
+        assertFalse(report.isSampled());
+        assertEquals(1_000 * (layout.shallowSize(Flat.class) + layout.shallowSize(Coordinates.class)),
+                report.get(MemoryReport.Component.FLATS));
+        assertEquals(repository.stream().mapToLong(f -> layout.stringSize(f.getName())).sum(),
+                report.get(MemoryReport.Component.NAMES));
+        // ZonedDateTime, LocalDateTime, LocalDate и LocalTime по 24 байта
+        assertEquals(1_000 * 4 * 24, report.get(MemoryReport.Component.DATES));
+        long total = 0;
+        for (MemoryReport.Component component : MemoryReport.Component.values()) {
+            assertTrue(report.get(component) > 0, component.getLabel());
+            total += report.get(component);
+        }
+        assertEquals(total, report.getTotal());
+        long houses = report.get(MemoryReport.Component.HOUSES);
+
+        for (long id = 1_001; id <= 20_000; id++) {
+            repository.add(flat(id));
+        }
+        MemoryReport sampled = repository.measureMemory(layout);
+        assertTrue(sampled.isSampled());
+        assertEquals(MemoryReport.SAMPLE_SIZE, sampled.getSampledFlats());
+        long exactNames = repository.stream().mapToLong(f -> layout.stringSize(f.getName())).sum();
+        assertEquals(exactNames, sampled.get(MemoryReport.Component.NAMES), exactNames * 0.02);
+        assertEquals(houses, sampled.get(MemoryReport.Component.HOUSES));
+        assertTrue(sampled.getIndexTotal() > report.getIndexTotal());
+
+        repository.clear();
+        MemoryReport empty = repository.measureMemory(layout);
+        assertEquals(0, empty.get(MemoryReport.Component.FLATS));
+        assertTrue(empty.getTotal() < sampled.getTotal());
+        // Таблица ID сохраняет ёмкость после очистки, и отчёт это показывает
+        assertEquals(sampled.get(MemoryReport.Component.ID_INDEX),
+                empty.get(MemoryReport.Component.ID_INDEX) + layout.treeSize(20_000));
+    }
+
+    /**
+     * Тест фильтра.
+     * Проверяет, что запрос находит те же квартиры, что и прямая проверка, в порядке ID,
+     * использует индекс по комнатам для избирательного условия и сообщает ошибки разбора.
+     */
+    @Test
+    void testFilterQuery() {
+        House house = new House("Tower", 2005, 8);
+        for (long id = 1; id <= 1_000; id++) {
+            repository.add(flat(id).toBuilder()
+                    .setNumberOfRooms(1 + id % 5)
+                    .setView(View.values()[(int) (id % View.values().length)])
+                    .setTimeToMetroByTransport(id % 40)
+                    .setHouse(id % 3 == 0 ? house : null)
+                    .build());
+        }
+
+        FlatQuery query = FlatQuery.parse("rooms = 3 and view = PARK and metro < 20");
+        List<Long> matched = new ArrayList<>();
+        FlatQuery.Result result = repository.read(() -> query.execute(repository, f -> matched.add(f.getId())));
+        List<Long> expected = new ArrayList<>();
+        for (Flat flat : repository.ordered()) {
+            if (flat.getNumberOfRooms() == 3 && flat.getView() == View.PARK && flat.getTimeToMetroByTransport() < 20) {
+                expected.add(flat.getId());
+            }
+        }
+        assertEquals(expected, matched);
+        assertEquals(expected.size(), result.matched);
+        assertEquals(200, result.scanned);
+        assertTrue(result.plan.contains("rooms = 3"));
+
+        FlatQuery or = FlatQuery.parse("(house.year >= 2005 or id <= 10) and not (rooms >= 2)");
+        FlatQuery.Result full = repository.read(() -> or.execute(repository, f -> { }));
+        assertEquals("full scan", full.plan);
+        assertEquals(1_000, full.scanned);
+        assertEquals(repository.stream().filter(f -> (f.getHouse() != null || f.getId() <= 10)
+                && f.getNumberOfRooms() < 2).count(), full.matched);
+
+        assertTrue(FlatQuery.parse("house = null and name != 'Flat 7'").test(flat(1)));
+        assertFalse(FlatQuery.parse("house.name = Tower").test(flat(1)));
+        assertThrows(IllegalArgumentException.class, () -> FlatQuery.parse("rooms >"));
+        assertThrows(IllegalArgumentException.class, () -> FlatQuery.parse("view > PARK"));
+        assertThrows(IllegalArgumentException.class, () -> FlatQuery.parse("floor = 2"));
+    }
+
+    /**
+     * Нагрузочный тест параллельного доступа.
+     * Писатели добавляют, заменяют и удаляют квартиры, а читатели одновременно выполняют точечные чтения
+     * и обходы под блокировкой чтения. Проверяет отсутствие исключений и согласованность индексов
+     * в каждом обходе и после завершения всех потоков.
+     */
+    @Test
+    void testConcurrentReadersAndWriters() throws InterruptedException {
+        for (long id = 1; id <= 1_000; id++) {
+            repository.add(flat(id));
+        }
+        int operations = 20_000;
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < 2; w++) {
+            Random random = new Random(w);
+            threads.add(new Thread(() -> runConcurrently(start, failures, () -> {
+                for (int i = 0; i < operations; i++) {
+                    long id = 1 + random.nextInt(2_000);
+                    House house = new House("House " + random.nextInt(5), 2000, 4);
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            repository.add(flat(id).toBuilder().setNumberOfRooms(1 + id % 4).setHouse(house).build());
+                            break;
+                        case 1:
+                            repository.removeById(id);
+                            break;
+                        case 2:
+                            repository.replace(flat(id).toBuilder().setNumberOfRooms(1 + i % 7).setHouse(house).build());
+                            break;
+                        default:
+                            repository.write(() -> repository.add(flat(repository.nextId()).toBuilder().setHouse(house).build()));
+                    }
+                }
+            })));
+        }
+        for (int r = 0; r < 4; r++) {
+            Random random = new Random(100 + r);
+            threads.add(new Thread(() -> runConcurrently(start, failures, () -> {
+                for (int i = 0; i < operations; i++) {
+                    long id = 1 + random.nextInt(2_000);
+                    Flat flat = repository.get(id);
+                    if (flat != null) {
+                        assertEquals(id, flat.getId());
+                    }
+                    if (i % 200 == 0) {
+                        repository.read(() -> {
+                            assertConsistent();
+                            return null;
+                        });
+                    }
+                }
+            })));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(60_000);
+        }
+
+        assertTrue(failures.isEmpty(), () -> "Concurrent access failed: " + failures.peek());
+        assertConsistent();
+    }
+
+    private static void runConcurrently(CountDownLatch start, Queue<Throwable> failures, Runnable body) {
+        try {
+            start.await();
+            body.run();
+        } catch (Throwable e) {
+            failures.add(e);
+        }
+    }
+
+    /**
+     * Проверяет, что первичный ключ, упорядоченный индекс, индекс комнат и пул домов описывают одни и те же квартиры.
+     */
+    private void assertConsistent() {
+        int size = repository.size();
+        assertEquals(size, repository.ordered().size());
+        long indexed = 0;
+        for (long rooms : repository.getRoomsIndex().roomCounts()) {
+            indexed += repository.getRoomsIndex().count(rooms);
+        }
+        assertEquals(size, indexed);
+        long withHouse = repository.stream().filter(f -> f.getHouse() != null).count();
+        long referenced = 0;
+        for (House house : repository.getHousePool().houses()) {
+            referenced += repository.getHousePool().referenceCount(house);
+        }
+        assertEquals(withHouse, referenced);
+    }
+}